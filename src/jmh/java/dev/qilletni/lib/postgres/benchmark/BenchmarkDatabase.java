@@ -0,0 +1,127 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import dev.qilletni.lib.postgres.benchmark.jdbc.FakeDriver;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PoolConfig;
+import dev.qilletni.lib.postgres.pool.PooledConnection;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * The database benchmarks run against, holding a pool and one connection borrowed from it like a script's Connection
+ * entity would.
+ * <p>
+ * By default this is the in-process {@link FakeDriver}. With {@code -p backend=postgres}, a real PostgreSQL server is
+ * used instead, configured through the {@code QILLETNI_BENCHMARK_URL}, {@code QILLETNI_BENCHMARK_USERNAME} and
+ * {@code QILLETNI_BENCHMARK_PASSWORD} environment variables. A table with the same shape as the fake one is created on
+ * it for every combination of row and column counts.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    private static final String DEFAULT_POSTGRES_URL = "jdbc:postgresql://localhost:5432/postgres";
+
+    /**
+     * The column types generated columns cycle through, the same as the fake driver's.
+     */
+    private static final int[] COLUMN_TYPES = {Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.VARCHAR, Types.BIT};
+
+    @Param({"fake"})
+    private String backend;
+
+    @Param({"1000"})
+    private int rowCount;
+
+    @Param({"4", "16"})
+    private int columnCount;
+
+    private ConnectionPool pool;
+    private PooledConnection pooledConnection;
+    private String tableName;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        switch (backend) {
+            case "fake" -> {
+                pool = new ConnectionPool(FakeDriver.url(rowCount, columnCount), "", "", PoolConfig.DEFAULT);
+                tableName = "fake";
+            }
+            case "postgres" -> {
+                var url = Objects.requireNonNullElse(System.getenv("QILLETNI_BENCHMARK_URL"), DEFAULT_POSTGRES_URL);
+                var username = Objects.requireNonNullElse(System.getenv("QILLETNI_BENCHMARK_USERNAME"), "postgres");
+                var password = Objects.requireNonNullElse(System.getenv("QILLETNI_BENCHMARK_PASSWORD"), "");
+
+                pool = new ConnectionPool(url, username, password, PoolConfig.DEFAULT);
+                tableName = "qilletni_benchmark_%d_%d".formatted(rowCount, columnCount);
+            }
+            default -> throw new IllegalArgumentException("Unknown backend %s, expected fake or postgres".formatted(backend));
+        }
+
+        pooledConnection = pool.borrow();
+
+        if (backend.equals("postgres")) {
+            createTable();
+        }
+    }
+
+    /**
+     * Creates the benchmark table on PostgreSQL, with the same values and nulls as {@link
+     * dev.qilletni.lib.postgres.benchmark.jdbc.FakeTable}.
+     */
+    private void createTable() throws SQLException {
+        var columns = new ArrayList<String>();
+
+        for (int column = 0; column < columnCount; column++) {
+            var seed = "(g::bigint * %d + %d)".formatted(columnCount, column);
+            var value = switch (COLUMN_TYPES[column % COLUMN_TYPES.length]) {
+                case Types.INTEGER -> "(%s * 31)::int".formatted(seed);
+                case Types.BIGINT -> "%s * 1000003".formatted(seed);
+                case Types.DOUBLE -> "%s / 7.0::float8".formatted(seed);
+                case Types.BIT -> "%s %% 2 = 0".formatted(seed);
+                default -> "'value-' || %s".formatted(seed);
+            };
+
+            columns.add("CASE WHEN %s %% 17 = 0 THEN NULL ELSE %s END AS column_%d".formatted(seed, value, column));
+        }
+
+        try (var statement = pooledConnection.connection().createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + tableName);
+            statement.execute("CREATE TABLE %s AS SELECT %s FROM generate_series(0, %d) g".formatted(tableName, String.join(", ", columns), rowCount - 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.release(pooledConnection);
+        pool.close();
+    }
+
+    public ConnectionPool pool() {
+        return pool;
+    }
+
+    public PooledConnection pooledConnection() {
+        return pooledConnection;
+    }
+
+    public String selectAllSql() {
+        return "SELECT * FROM " + tableName;
+    }
+
+    public String selectOneSql() {
+        return "SELECT * FROM %s LIMIT 1".formatted(tableName);
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+}
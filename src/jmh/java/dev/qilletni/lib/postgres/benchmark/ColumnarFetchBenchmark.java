@@ -0,0 +1,161 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import dev.qilletni.lib.postgres.columnar.ColumnarReader;
+import dev.qilletni.lib.postgres.columnar.ColumnarResult;
+import dev.qilletni.lib.postgres.columnar.NumericColumn;
+import dev.qilletni.lib.postgres.decode.RowDecoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.ref.Reference;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Connection.fetchAll()'s list of row lists against Connection.fetchColumns()'s column storage, both in the
+ * time to read a result and to sum its first column, and in the memory a result keeps alive per row. The memory is
+ * reported through the rowsBytesPerRow and columnsBytesPerRow counters.
+ * <p>
+ * The fake driver hands out the same string instances on every read, so only the layout is measured and not the
+ * strings' characters. Against PostgreSQL, every row list would also hold its own copy of each string, while
+ * low-cardinality string columns share one per distinct value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnarFetchBenchmark {
+
+    @Benchmark
+    public List<List<Object>> fetchRows(BenchmarkDatabase database, RetainedMemory retainedMemory) throws SQLException {
+        retainedMemory.report();
+        return readRows(database);
+    }
+
+    @Benchmark
+    public ColumnarResult fetchColumns(BenchmarkDatabase database, RetainedMemory retainedMemory) throws SQLException {
+        retainedMemory.report();
+        return readColumns(database);
+    }
+
+    @Benchmark
+    public long sumRows(FetchedResults results) {
+        long sum = 0;
+        for (var row : results.rows) {
+            if (row.getFirst() instanceof Integer value) {
+                sum += value;
+            }
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public Number sumColumns(FetchedResults results) {
+        return ((NumericColumn) results.columns.columns().getFirst()).sum();
+    }
+
+    private static List<List<Object>> readRows(BenchmarkDatabase database) throws SQLException {
+        try (var statement = database.pooledConnection().connection().createStatement();
+             var resultSet = statement.executeQuery(database.selectAllSql())) {
+            var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+            var rows = new ArrayList<List<Object>>();
+
+            while (resultSet.next()) {
+                rows.add(rowDecoder.decodeRow(resultSet));
+            }
+
+            return rows;
+        }
+    }
+
+    private static ColumnarResult readColumns(BenchmarkDatabase database) throws SQLException {
+        try (var statement = database.pooledConnection().connection().createStatement();
+             var resultSet = statement.executeQuery(database.selectAllSql())) {
+            return ColumnarReader.read(resultSet, 0);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FetchedResults {
+
+        private List<List<Object>> rows;
+        private ColumnarResult columns;
+
+        @Setup(Level.Trial)
+        public void setup(BenchmarkDatabase database) throws SQLException {
+            rows = readRows(database);
+            columns = readColumns(database);
+        }
+    }
+
+    /**
+     * Measures the heap a result of each layout keeps alive, once per trial, by holding several copies and comparing
+     * the used heap after a GC.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedMemory {
+
+        private static final int COPIES = 20;
+
+        public double rowsBytesPerRow;
+        public double columnsBytesPerRow;
+
+        private double measuredRowsBytesPerRow;
+        private double measuredColumnsBytesPerRow;
+
+        @Setup(Level.Trial)
+        public void measure(BenchmarkDatabase database) throws SQLException {
+            long rowCount = readRows(database).size();
+
+            var rows = new Object[COPIES];
+            long before = usedHeap();
+            for (int i = 0; i < COPIES; i++) {
+                rows[i] = readRows(database);
+            }
+            measuredRowsBytesPerRow = (double) (usedHeap() - before) / (COPIES * rowCount);
+            Reference.reachabilityFence(rows);
+            rows = null;
+
+            var columns = new Object[COPIES];
+            before = usedHeap();
+            for (int i = 0; i < COPIES; i++) {
+                columns[i] = readColumns(database);
+            }
+            measuredColumnsBytesPerRow = (double) (usedHeap() - before) / (COPIES * rowCount);
+            Reference.reachabilityFence(columns);
+        }
+
+        /**
+         * Sets the counters to the measured memory. This is called from the benchmarks, as JMH resets counters after
+         * iteration setups.
+         */
+        public void report() {
+            rowsBytesPerRow = measuredRowsBytesPerRow;
+            columnsBytesPerRow = measuredColumnsBytesPerRow;
+        }
+
+        private static long usedHeap() {
+            var runtime = Runtime.getRuntime();
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
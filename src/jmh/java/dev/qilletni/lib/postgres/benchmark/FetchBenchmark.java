@@ -0,0 +1,71 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import dev.qilletni.lib.postgres.decode.RowDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JDBC side of Connection.fetchAll() and Connection.fetchOne(): running the statement and decoding rows
+ * into plain Java values, which is everything but wrapping them in Qilletni lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FetchBenchmark {
+
+    @Benchmark
+    public List<List<Object>> fetchAll(BenchmarkDatabase database) throws SQLException {
+        try (var statement = database.pooledConnection().connection().createStatement();
+             var resultSet = statement.executeQuery(database.selectAllSql())) {
+            var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+            var rows = new ArrayList<List<Object>>();
+
+            while (resultSet.next()) {
+                rows.add(rowDecoder.decodeRow(resultSet));
+            }
+
+            return rows;
+        }
+    }
+
+    @Benchmark
+    public void fetchOne(BenchmarkDatabase database, Blackhole blackhole) throws SQLException {
+        var statementHandle = database.pooledConnection().statementCache().prepare(database.selectOneSql());
+
+        try {
+            var statement = statementHandle.getStatement();
+            statement.setFetchSize(1);
+
+            try (var resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    blackhole.consume(RowDecoder.fromMetadata(resultSet.getMetaData()).decodeRow(resultSet));
+                }
+            }
+        } finally {
+            statementHandle.close();
+        }
+    }
+
+    /**
+     * The cost of borrowing a connection from the pool and giving it back, as done by createConnection(), disconnect()
+     * and every async query.
+     */
+    @Benchmark
+    public void borrowAndRelease(BenchmarkDatabase database) throws SQLException {
+        var pool = database.pool();
+        pool.release(pool.borrow());
+    }
+}
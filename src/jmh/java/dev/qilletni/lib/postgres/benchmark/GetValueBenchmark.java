@@ -0,0 +1,70 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import dev.qilletni.lib.postgres.decode.ColumnLookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading every cell of a result by column label, the way a script calls ResultSet.getValue(name) in a loop.
+ * The driver's own label lookup is compared against the {@link ColumnLookup} ResultSetFunctions uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetValueBenchmark {
+
+    private List<String> columnLabels;
+
+    @Setup
+    public void setup(BenchmarkDatabase database) {
+        columnLabels = new ArrayList<>();
+
+        // Upper case, so both lookups have to ignore case like getValue() does
+        for (int column = 0; column < database.getColumnCount(); column++) {
+            columnLabels.add("COLUMN_" + column);
+        }
+    }
+
+    @Benchmark
+    public void driverLookup(BenchmarkDatabase database, Blackhole blackhole) throws SQLException {
+        try (var statement = database.pooledConnection().connection().createStatement();
+             var resultSet = statement.executeQuery(database.selectAllSql())) {
+            while (resultSet.next()) {
+                for (var columnLabel : columnLabels) {
+                    blackhole.consume(resultSet.getObject(columnLabel));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void columnLookup(BenchmarkDatabase database, Blackhole blackhole) throws SQLException {
+        try (var statement = database.pooledConnection().connection().createStatement();
+             var resultSet = statement.executeQuery(database.selectAllSql())) {
+            var columnLookup = ColumnLookup.create(resultSet, columnLabels);
+
+            while (resultSet.next()) {
+                for (var columnLabel : columnLabels) {
+                    blackhole.consume(columnLookup.rowDecoder().decode(resultSet, columnLookup.indexOf(columnLabel)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Connection.prepareStatement() with parameters followed by running the statement, with and without the
+ * per-connection statement cache. Parameters are the plain Java values DatabaseTypeUtility converts Qilletni values to.
+ * <p>
+ * Preparing is free on the fake driver, so the difference between the two only shows against PostgreSQL.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrepareStatementBenchmark {
+
+    @Param({"1", "8"})
+    private int paramCount;
+
+    private String sql;
+    private List<Object> params;
+
+    @Setup
+    public void setup() {
+        var casts = new ArrayList<String>();
+        params = new ArrayList<>();
+
+        for (int i = 0; i < paramCount; i++) {
+            switch (i % 4) {
+                case 0 -> {
+                    casts.add("?::bigint");
+                    params.add((long) i);
+                }
+                case 1 -> {
+                    casts.add("?::text");
+                    params.add("param-" + i);
+                }
+                case 2 -> {
+                    casts.add("?::float8");
+                    params.add(i / 3D);
+                }
+                default -> {
+                    casts.add("?::boolean");
+                    params.add(i % 2 == 0);
+                }
+            }
+        }
+
+        sql = "SELECT " + String.join(", ", casts);
+    }
+
+    @Benchmark
+    public void uncached(BenchmarkDatabase database, Blackhole blackhole) throws SQLException {
+        try (var statement = database.pooledConnection().connection().prepareStatement(sql)) {
+            bindAndExecute(statement, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void cached(BenchmarkDatabase database, Blackhole blackhole) throws SQLException {
+        var statementHandle = database.pooledConnection().statementCache().prepare(sql);
+
+        try {
+            bindAndExecute(statementHandle.getStatement(), blackhole);
+        } finally {
+            statementHandle.close();
+        }
+    }
+
+    private void bindAndExecute(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            statement.setObject(i + 1, params.get(i));
+        }
+
+        try (var resultSet = statement.executeQuery()) {
+            blackhole.consume(resultSet.next());
+        }
+    }
+}
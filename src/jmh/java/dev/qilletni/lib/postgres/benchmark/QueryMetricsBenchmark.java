@@ -0,0 +1,35 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import dev.qilletni.lib.postgres.metrics.QueryMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead the instrumentation adds to every statement, recording into a connection's metrics and its
+ * pool's. Run with {@code -t} to see how it scales with threads recording at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryMetricsBenchmark {
+
+    private final QueryMetrics poolMetrics = new QueryMetrics();
+    private final QueryMetrics connectionMetrics = new QueryMetrics(poolMetrics);
+
+    @Benchmark
+    public void record() {
+        connectionMetrics.record("SELECT name, plays FROM songs WHERE artist = ? AND plays > ?", 1_250_000, 20, null);
+    }
+}
@@ -0,0 +1,96 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import dev.qilletni.lib.postgres.benchmark.jdbc.FakeDriver;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PoolConfig;
+import dev.qilletni.lib.postgres.replica.BalancingMode;
+import dev.qilletni.lib.postgres.replica.ReadOnlyStatements;
+import dev.qilletni.lib.postgres.replica.ReplicaRouter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of routing a read to one of two fake replicas: picking the replica, borrowing from its pool and
+ * running a single row query, compared to running the same query on a primary's pool directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ReplicaRouterBenchmark {
+
+    private static final String SQL = "SELECT * FROM fake WHERE id = 1";
+
+    @Param({"least_outstanding", "ewma"})
+    private String balancing;
+
+    private ConnectionPool primary;
+    private ReplicaRouter replicaRouter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        primary = new ConnectionPool(FakeDriver.url(1, 4), "", "", PoolConfig.DEFAULT);
+        replicaRouter = new ReplicaRouter();
+        replicaRouter.setBalancingMode(BalancingMode.fromName(balancing));
+
+        // Distinct sizes only to give the replicas distinct URLs
+        replicaRouter.addReplica(FakeDriver.url(1, 5), "", "", PoolConfig.DEFAULT);
+        replicaRouter.addReplica(FakeDriver.url(1, 6), "", "", PoolConfig.DEFAULT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        replicaRouter.close();
+        primary.close();
+    }
+
+    @Benchmark
+    public boolean primaryRead() throws SQLException {
+        var pooledConnection = primary.borrow();
+
+        try {
+            return readRow(pooledConnection.connection());
+        } finally {
+            primary.release(pooledConnection);
+        }
+    }
+
+    @Benchmark
+    public boolean replicaRead() throws SQLException {
+        return replicaRouter.read(pooledConnection -> readRow(pooledConnection.connection()), () -> false);
+    }
+
+    /**
+     * The check done on every string query to decide if it may be routed at all.
+     */
+    @Benchmark
+    public boolean classify() {
+        return ReadOnlyStatements.isReadOnly(SQL);
+    }
+
+    private static boolean readRow(Connection connection) throws SQLException {
+        try (var statement = connection.createStatement();
+             var resultSet = statement.executeQuery(SQL)) {
+            return resultSet.next();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dev.qilletni.lib.postgres.benchmark;
+
+import dev.qilletni.lib.postgres.benchmark.jdbc.FakeTable;
+import dev.qilletni.lib.postgres.decode.RowDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading rows through a {@link RowDecoder} plan against the previous path of one getObject per cell, with the
+ * column count read from the metadata on every row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowDecoderBenchmark {
+
+    @Param({"1000"})
+    private int rowCount;
+
+    @Param({"4", "16"})
+    private int columnCount;
+
+    private FakeTable table;
+
+    @Setup
+    public void setup() {
+        table = FakeTable.generate(rowCount, columnCount);
+    }
+
+    @Benchmark
+    public void getObjectPerCell(Blackhole blackhole) throws SQLException {
+        var resultSet = table.open();
+
+        while (resultSet.next()) {
+            var row = new ArrayList<>();
+            int columns = resultSet.getMetaData().getColumnCount();
+
+            for (int i = 1; i <= columns; i++) {
+                row.add(resultSet.getObject(i));
+            }
+
+            blackhole.consume(row);
+        }
+    }
+
+    @Benchmark
+    public void rowDecoder(Blackhole blackhole) throws SQLException {
+        var resultSet = table.open();
+        var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+
+        while (resultSet.next()) {
+            blackhole.consume(rowDecoder.decodeRow(resultSet));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package dev.qilletni.lib.postgres.benchmark.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * An in-process JDBC driver for URLs like {@code jdbc:qilletni-fake:1000x16}, whose every query returns a generated
+ * {@link FakeTable} of the given amount of rows and columns. Nothing is parsed or sent anywhere, so benchmarks against it
+ * only measure the library's own overhead.
+ * <p>
+ * Connections and statements are proxies that track the little state the library relies on, such as the fetch size,
+ * autocommit and whether they are closed. Other methods do nothing and return a default value.
+ */
+public class FakeDriver implements Driver {
+
+    public static final String URL_PREFIX = "jdbc:qilletni-fake:";
+
+    private static final FakeDriver INSTANCE = new FakeDriver();
+
+    private static final Map<String, FakeTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * Returned by {@link #invokeCommon(Object, Method, Object[])} for methods left to the specific proxy.
+     */
+    private static final Object UNHANDLED = new Object();
+
+    static {
+        try {
+            DriverManager.registerDriver(INSTANCE);
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Makes sure the driver is registered, and gets the URL of a table of the given size.
+     *
+     * @param rowCount    The amount of rows every query returns
+     * @param columnCount The amount of columns every query returns
+     * @return The URL to connect to
+     */
+    public static String url(int rowCount, int columnCount) {
+        return URL_PREFIX + rowCount + "x" + columnCount;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        var table = TABLES.computeIfAbsent(url, FakeDriver::generateTable);
+        return proxy(Connection.class, new ConnectionHandler(table));
+    }
+
+    private static FakeTable generateTable(String url) {
+        var size = url.substring(URL_PREFIX.length()).split("x");
+        return FakeTable.generate(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Handles the methods of {@link Object} and {@link java.sql.Wrapper} that every proxy needs to behave.
+     *
+     * @return The result, or {@link #UNHANDLED} if the method is not one of them
+     */
+    private static Object invokeCommon(Object proxy, Method method, Object[] args) throws SQLException {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> proxy.getClass().getInterfaces()[0].getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            case "isWrapperFor" -> ((Class<?>) args[0]).isInstance(proxy);
+            case "unwrap" -> {
+                if (!((Class<?>) args[0]).isInstance(proxy)) {
+                    throw new SQLException("Not a wrapper for " + args[0]);
+                }
+
+                yield proxy;
+            }
+            default -> UNHANDLED;
+        };
+    }
+
+    private static Object defaultValue(Class<?> returnType) {
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        } else if (returnType == double.class) {
+            return 0D;
+        } else if (returnType == float.class) {
+            return 0F;
+        } else if (returnType == short.class) {
+            return (short) 0;
+        } else if (returnType == byte.class) {
+            return (byte) 0;
+        }
+
+        return null;
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private final FakeTable table;
+        private boolean closed;
+        private boolean autoCommit = true;
+
+        private ConnectionHandler(FakeTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            var common = invokeCommon(proxy, method, args);
+            if (common != UNHANDLED) {
+                return common;
+            }
+
+            return switch (method.getName()) {
+                case "createStatement" -> proxy(PreparedStatement.class, new StatementHandler((Connection) proxy, table));
+                case "prepareStatement" -> proxy(PreparedStatement.class, new StatementHandler((Connection) proxy, table));
+                case "close" -> {
+                    closed = true;
+                    yield null;
+                }
+                case "isClosed" -> closed;
+                case "isValid" -> !closed;
+                case "getAutoCommit" -> autoCommit;
+                case "setAutoCommit" -> {
+                    autoCommit = (boolean) args[0];
+                    yield null;
+                }
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+    }
+
+    /**
+     * Handles both plain and prepared statements, as a PreparedStatement proxy is also a Statement.
+     */
+    private static class StatementHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final FakeTable table;
+        private boolean closed;
+        private int fetchSize;
+        private int batchRows;
+
+        private StatementHandler(Connection connection, FakeTable table) {
+            this.connection = connection;
+            this.table = table;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            var common = invokeCommon(proxy, method, args);
+            if (common != UNHANDLED) {
+                return common;
+            }
+
+            return switch (method.getName()) {
+                case "executeQuery", "getResultSet" -> table.open();
+                case "execute" -> true;
+                case "executeUpdate" -> 1;
+                case "addBatch" -> {
+                    batchRows++;
+                    yield null;
+                }
+                case "clearBatch" -> {
+                    batchRows = 0;
+                    yield null;
+                }
+                case "executeBatch" -> {
+                    var updateCounts = new int[batchRows];
+                    Arrays.fill(updateCounts, 1);
+                    batchRows = 0;
+                    yield updateCounts;
+                }
+                case "getFetchSize" -> fetchSize;
+                case "setFetchSize" -> {
+                    fetchSize = (int) args[0];
+                    yield null;
+                }
+                case "getConnection" -> connection;
+                case "close" -> {
+                    closed = true;
+                    yield null;
+                }
+                case "isClosed" -> closed;
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+    }
+}
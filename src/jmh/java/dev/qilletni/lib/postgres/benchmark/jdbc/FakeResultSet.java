@@ -0,0 +1,121 @@
+package dev.qilletni.lib.postgres.benchmark.jdbc;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * A forward-only cursor over a {@link FakeTable}.
+ * <p>
+ * getObject dispatches on the column type and boxes, like pgjdbc does, but skips the driver's type info lookup and text
+ * decoding, so it understates the real cost. Absolute numbers should be taken against a real server.
+ */
+public class FakeResultSet extends UnsupportedResultSet {
+
+    private final FakeTable table;
+    private final ResultSetMetaData metaData;
+    private int row = -1;
+    private boolean lastNull;
+    private boolean closed;
+
+    FakeResultSet(FakeTable table) {
+        this.table = table;
+        this.metaData = new FakeResultSetMetaData(table);
+    }
+
+    @Override
+    public boolean next() {
+        return ++row < table.rowCount;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public boolean wasNull() {
+        return lastNull;
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        for (int i = 0; i < table.columnLabels.length; i++) {
+            if (table.columnLabels[i].equalsIgnoreCase(columnLabel)) {
+                return i + 1;
+            }
+        }
+
+        throw new SQLException("The column name %s was not found in this ResultSet".formatted(columnLabel));
+    }
+
+    private Object column(int columnIndex) throws SQLException {
+        if (row < 0 || row >= table.rowCount) {
+            throw new SQLException("ResultSet not positioned properly");
+        }
+
+        lastNull = table.nulls[columnIndex - 1][row];
+        return table.columns[columnIndex - 1];
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        var column = column(columnIndex);
+        if (lastNull) {
+            return null;
+        }
+
+        return switch (table.columnTypes[columnIndex - 1]) {
+            case Types.INTEGER -> ((int[]) column)[row];
+            case Types.BIGINT -> ((long[]) column)[row];
+            case Types.DOUBLE -> ((double[]) column)[row];
+            case Types.BIT -> ((boolean[]) column)[row];
+            default -> ((String[]) column)[row];
+        };
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        return getObject(findColumn(columnLabel));
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        var column = column(columnIndex);
+        return lastNull ? 0 : ((int[]) column)[row];
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        var column = column(columnIndex);
+        return lastNull ? 0 : ((long[]) column)[row];
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        var column = column(columnIndex);
+        return lastNull ? 0 : ((double[]) column)[row];
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        var column = column(columnIndex);
+        return !lastNull && ((boolean[]) column)[row];
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        var value = getObject(columnIndex);
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package dev.qilletni.lib.postgres.benchmark.jdbc;
+
+import java.sql.Types;
+
+/**
+ * The metadata of a {@link FakeTable}, where every column's name and label are the same.
+ */
+public class FakeResultSetMetaData extends UnsupportedResultSetMetaData {
+
+    private final FakeTable table;
+
+    FakeResultSetMetaData(FakeTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return table.columnTypes.length;
+    }
+
+    @Override
+    public int getColumnType(int column) {
+        return table.columnTypes[column - 1];
+    }
+
+    /**
+     * Gets the name pgjdbc would give the column's type, whose BIT columns are bools.
+     */
+    @Override
+    public String getColumnTypeName(int column) {
+        return switch (table.columnTypes[column - 1]) {
+            case Types.INTEGER -> "int4";
+            case Types.BIGINT -> "int8";
+            case Types.DOUBLE -> "float8";
+            case Types.BIT -> "bool";
+            default -> "text";
+        };
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return table.columnLabels[column - 1];
+    }
+
+    @Override
+    public String getColumnLabel(int column) {
+        return table.columnLabels[column - 1];
+    }
+}
@@ -0,0 +1,92 @@
+package dev.qilletni.lib.postgres.benchmark.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+
+/**
+ * Generated, column-oriented table data served by {@link FakeResultSet}. Values are stored in primitive arrays, like a
+ * driver holding decoded rows, so typed getters are cheap and getObject has to box.
+ */
+public class FakeTable {
+
+    /**
+     * The column types generated columns cycle through.
+     */
+    private static final int[] GENERATED_TYPES = {Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.VARCHAR, Types.BIT};
+
+    /**
+     * Every n-th cell of a generated table is SQL NULL.
+     */
+    private static final int NULL_INTERVAL = 17;
+
+    final int rowCount;
+    final int[] columnTypes;
+    final String[] columnLabels;
+    final Object[] columns;
+    final boolean[][] nulls;
+
+    private FakeTable(int rowCount, int[] columnTypes) {
+        this.rowCount = rowCount;
+        this.columnTypes = columnTypes;
+        this.columnLabels = new String[columnTypes.length];
+        this.columns = new Object[columnTypes.length];
+        this.nulls = new boolean[columnTypes.length][rowCount];
+    }
+
+    /**
+     * Generates a table of deterministic values.
+     *
+     * @param rowCount    The amount of rows
+     * @param columnCount The amount of columns, whose types cycle through int, bigint, float8, varchar and bool
+     */
+    public static FakeTable generate(int rowCount, int columnCount) {
+        var columnTypes = new int[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            columnTypes[column] = GENERATED_TYPES[column % GENERATED_TYPES.length];
+        }
+
+        var table = new FakeTable(rowCount, columnTypes);
+
+        for (int column = 0; column < columnCount; column++) {
+            table.columnLabels[column] = "column_" + column;
+            table.columns[column] = switch (columnTypes[column]) {
+                case Types.INTEGER -> new int[rowCount];
+                case Types.BIGINT -> new long[rowCount];
+                case Types.DOUBLE -> new double[rowCount];
+                case Types.BIT -> new boolean[rowCount];
+                default -> new String[rowCount];
+            };
+
+            for (int row = 0; row < rowCount; row++) {
+                long seed = (long) row * columnCount + column;
+                table.nulls[column][row] = seed % NULL_INTERVAL == 0;
+
+                switch (table.columns[column]) {
+                    case int[] values -> values[row] = (int) (seed * 31);
+                    case long[] values -> values[row] = seed * 1_000_003L;
+                    case double[] values -> values[row] = seed / 7D;
+                    case boolean[] values -> values[row] = seed % 2 == 0;
+                    case String[] values -> values[row] = "value-" + seed;
+                    default -> throw new IllegalStateException();
+                }
+            }
+        }
+
+        return table;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnTypes.length;
+    }
+
+    /**
+     * Opens a new cursor over the table, positioned before the first row.
+     */
+    public ResultSet open() {
+        return new FakeResultSet(this);
+    }
+}
@@ -0,0 +1,131 @@
+package dev.qilletni.lib.postgres.benchmark.jdbc;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+/**
+ * A {@link ResultSetMetaData} where every method fails, for fakes to override only what they support. This is a concrete
+ * class rather than a dynamic proxy so benchmarks measure the code under test instead of reflective dispatch.
+ */
+public abstract class UnsupportedResultSetMetaData implements ResultSetMetaData {
+
+    protected static SQLFeatureNotSupportedException unsupported(String method) {
+        return new SQLFeatureNotSupportedException("%s is not supported by this fake".formatted(method));
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+        throw unsupported("getColumnCount");
+    }
+
+    @Override
+    public boolean isAutoIncrement(int arg0) throws SQLException {
+        throw unsupported("isAutoIncrement");
+    }
+
+    @Override
+    public boolean isCaseSensitive(int arg0) throws SQLException {
+        throw unsupported("isCaseSensitive");
+    }
+
+    @Override
+    public boolean isSearchable(int arg0) throws SQLException {
+        throw unsupported("isSearchable");
+    }
+
+    @Override
+    public boolean isCurrency(int arg0) throws SQLException {
+        throw unsupported("isCurrency");
+    }
+
+    @Override
+    public int isNullable(int arg0) throws SQLException {
+        throw unsupported("isNullable");
+    }
+
+    @Override
+    public boolean isSigned(int arg0) throws SQLException {
+        throw unsupported("isSigned");
+    }
+
+    @Override
+    public int getColumnDisplaySize(int arg0) throws SQLException {
+        throw unsupported("getColumnDisplaySize");
+    }
+
+    @Override
+    public String getColumnLabel(int arg0) throws SQLException {
+        throw unsupported("getColumnLabel");
+    }
+
+    @Override
+    public String getColumnName(int arg0) throws SQLException {
+        throw unsupported("getColumnName");
+    }
+
+    @Override
+    public String getSchemaName(int arg0) throws SQLException {
+        throw unsupported("getSchemaName");
+    }
+
+    @Override
+    public int getPrecision(int arg0) throws SQLException {
+        throw unsupported("getPrecision");
+    }
+
+    @Override
+    public int getScale(int arg0) throws SQLException {
+        throw unsupported("getScale");
+    }
+
+    @Override
+    public String getTableName(int arg0) throws SQLException {
+        throw unsupported("getTableName");
+    }
+
+    @Override
+    public String getCatalogName(int arg0) throws SQLException {
+        throw unsupported("getCatalogName");
+    }
+
+    @Override
+    public int getColumnType(int arg0) throws SQLException {
+        throw unsupported("getColumnType");
+    }
+
+    @Override
+    public String getColumnTypeName(int arg0) throws SQLException {
+        throw unsupported("getColumnTypeName");
+    }
+
+    @Override
+    public boolean isReadOnly(int arg0) throws SQLException {
+        throw unsupported("isReadOnly");
+    }
+
+    @Override
+    public boolean isWritable(int arg0) throws SQLException {
+        throw unsupported("isWritable");
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int arg0) throws SQLException {
+        throw unsupported("isDefinitelyWritable");
+    }
+
+    @Override
+    public String getColumnClassName(int arg0) throws SQLException {
+        throw unsupported("getColumnClassName");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> arg0) throws SQLException {
+        throw unsupported("unwrap");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> arg0) throws SQLException {
+        throw unsupported("isWrapperFor");
+    }
+}
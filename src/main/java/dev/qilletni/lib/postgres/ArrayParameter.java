@@ -0,0 +1,109 @@
+package dev.qilletni.lib.postgres;
+
+import dev.qilletni.api.lang.types.ListType;
+import dev.qilletni.lib.postgres.exceptions.InvalidPreparedStatementType;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A Qilletni list converted to plain Java values, to be bound as a PostgreSQL array. This lets a single statement such
+ * as {@code WHERE id = ANY(?)} or {@code SELECT * FROM unnest(?, ?)} take a whole list instead of running once per
+ * value.
+ * <p>
+ * The conversion happens up front and the array is only created once bound, as {@link java.sql.Connection#createArrayOf}
+ * needs the connection the statement runs on.
+ *
+ * @param elementType The PostgreSQL type of the elements, or null if the list is empty
+ * @param elements    The elements of the array
+ */
+public record ArrayParameter(String elementType, Object[] elements) {
+
+    /**
+     * Converts a list, inferring the array's element type from its contents. Lists of only ints become int8 arrays,
+     * ints mixed with doubles become float8 arrays, and lists of only booleans or strings become bool or text arrays.
+     *
+     * @param listType The list to convert
+     * @return The converted array
+     */
+    public static ArrayParameter fromList(ListType listType) {
+        var items = listType.getItems();
+        var elements = new Object[items.size()];
+        boolean hasLong = false;
+        boolean hasDouble = false;
+        boolean hasBoolean = false;
+        boolean hasString = false;
+
+        for (int i = 0; i < elements.length; i++) {
+            if (items.get(i) instanceof ListType) {
+                throw new InvalidPreparedStatementType("Nested lists can not be bound as a parameter");
+            }
+
+            elements[i] = DatabaseTypeUtility.fromQilletniToNativeJava(items.get(i));
+
+            switch (elements[i]) {
+                case Double ignored -> hasDouble = true;
+                case Number ignored -> hasLong = true;
+                case Boolean ignored -> hasBoolean = true;
+                default -> hasString = true;
+            }
+        }
+
+        if (elements.length == 0) {
+            return new ArrayParameter(null, elements);
+        }
+
+        if ((hasLong || hasDouble) && !hasBoolean && !hasString) {
+            for (int i = 0; i < elements.length; i++) {
+                var number = (Number) elements[i];
+
+                if (hasDouble) {
+                    elements[i] = number.doubleValue();
+                } else {
+                    elements[i] = number.longValue();
+                }
+            }
+
+            return new ArrayParameter(hasDouble ? "float8" : "int8", elements);
+        }
+
+        if (hasBoolean && !hasLong && !hasDouble && !hasString) {
+            return new ArrayParameter("bool", elements);
+        }
+
+        if (hasString && !hasLong && !hasDouble && !hasBoolean) {
+            return new ArrayParameter("text", elements);
+        }
+
+        throw new InvalidPreparedStatementType("A list bound as a parameter must only contain numbers, only booleans or only strings");
+    }
+
+    /**
+     * Binds the array to a statement's parameter.
+     *
+     * @param statement The statement to bind to
+     * @param index     The 1-indexed parameter
+     */
+    public void bind(PreparedStatement statement, int index) throws SQLException {
+        if (elementType == null) {
+            // An empty list has no type to infer, so the server infers it from how the parameter is used instead
+            statement.setObject(index, "{}", Types.OTHER);
+            return;
+        }
+
+        statement.setArray(index, statement.getConnection().createArrayOf(elementType, elements));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ArrayParameter that && Objects.equals(elementType, that.elementType) && Arrays.equals(elements, that.elements);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(elementType) + Arrays.hashCode(elements);
+    }
+}
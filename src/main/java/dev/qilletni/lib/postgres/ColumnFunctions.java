@@ -0,0 +1,88 @@
+package dev.qilletni.lib.postgres;
+
+import dev.qilletni.api.lang.types.EntityType;
+import dev.qilletni.api.lang.types.JavaType;
+import dev.qilletni.api.lang.types.ListType;
+import dev.qilletni.api.lang.types.list.ListInitializer;
+import dev.qilletni.api.lib.annotations.BeforeAnyInvocation;
+import dev.qilletni.api.lib.annotations.NativeOn;
+import dev.qilletni.lib.postgres.columnar.ColumnVector;
+import dev.qilletni.lib.postgres.columnar.NumericColumn;
+import dev.qilletni.lib.postgres.exceptions.InvalidColumnTypeException;
+import dev.qilletni.lib.postgres.exceptions.InvalidRowIndexException;
+
+import java.util.ArrayList;
+
+@NativeOn("Column")
+public class ColumnFunctions {
+
+    private final ListInitializer listInitializer;
+
+    private ColumnVector column;
+
+    public ColumnFunctions(ListInitializer listInitializer) {
+        this.listInitializer = listInitializer;
+    }
+
+    @BeforeAnyInvocation
+    public void setupColumn(EntityType entityType) {
+        column = entityType.getEntityScope().<JavaType>lookup("_column").getValue().getReference(ColumnVector.class);
+    }
+
+    public Object get(EntityType entityType, int row) {
+        return column.get(checkRow(row));
+    }
+
+    public boolean isNull(EntityType entityType, int row) {
+        return column.isNull(checkRow(row));
+    }
+
+    public int nullCount(EntityType entityType) {
+        return column.nullCount();
+    }
+
+    /**
+     * Gets every value of the column, boxing each into a Qilletni value. This gives up the column's compact storage,
+     * so it is only meant for small columns.
+     */
+    public ListType toList(EntityType entityType) {
+        var values = new ArrayList<>(column.size());
+        for (int row = 0; row < column.size(); row++) {
+            values.add(column.get(row));
+        }
+
+        return listInitializer.createListFromJava(values);
+    }
+
+    public Object sum(EntityType entityType) {
+        return numericColumn().sum();
+    }
+
+    public Object min(EntityType entityType) {
+        return numericColumn().min();
+    }
+
+    public Object max(EntityType entityType) {
+        return numericColumn().max();
+    }
+
+    public Object mean(EntityType entityType) {
+        return numericColumn().mean();
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= column.size()) {
+            throw new InvalidRowIndexException("Row %d is out of bounds for a column of %d rows".formatted(row, column.size()));
+        }
+
+        return row;
+    }
+
+    private NumericColumn numericColumn() {
+        if (column instanceof NumericColumn numericColumn) {
+            return numericColumn;
+        }
+
+        throw new InvalidColumnTypeException("Expected a numeric column, got a %s column".formatted(column.typeName()));
+    }
+}
@@ -5,6 +5,7 @@ import dev.qilletni.api.lang.types.AnyType;
 import dev.qilletni.api.lang.types.EntityType;
 import dev.qilletni.api.lang.types.FunctionType;
 import dev.qilletni.api.lang.types.JavaType;
+import dev.qilletni.api.lang.types.ListType;
 import dev.qilletni.api.lang.types.QilletniType;
 import dev.qilletni.api.lang.types.StaticEntityType;
 import dev.qilletni.api.lang.types.StringType;
@@ -15,31 +16,103 @@ import dev.qilletni.api.lang.types.list.ListInitializer;
 import dev.qilletni.api.lang.types.typeclass.QilletniTypeClass;
 import dev.qilletni.api.lib.annotations.BeforeAnyInvocation;
 import dev.qilletni.api.lib.annotations.NativeOn;
+import dev.qilletni.lib.postgres.async.AsyncQuery;
+import dev.qilletni.lib.postgres.blob.BlobTransfer;
+import dev.qilletni.lib.postgres.cache.ResultCacheKey;
+import dev.qilletni.lib.postgres.cache.ResultMetadataCache;
+import dev.qilletni.lib.postgres.cache.TableReferences;
+import dev.qilletni.lib.postgres.columnar.ColumnarReader;
+import dev.qilletni.lib.postgres.columnar.ColumnarResult;
+import dev.qilletni.lib.postgres.copy.CopyExporter;
+import dev.qilletni.lib.postgres.copy.CopyFormat;
+import dev.qilletni.lib.postgres.copy.CopyLoader;
+import dev.qilletni.lib.postgres.copy.ExportStatistics;
+import dev.qilletni.lib.postgres.decode.RowDecoder;
 import dev.qilletni.lib.postgres.exceptions.DatabaseException;
+import dev.qilletni.lib.postgres.exceptions.InvalidCopyFormatException;
+import dev.qilletni.lib.postgres.mapping.EntityMappingPlan;
 import dev.qilletni.lib.postgres.exceptions.InvalidPreparedStatementType;
 import dev.qilletni.lib.postgres.exceptions.InvalidStatementTypeException;
+import dev.qilletni.lib.postgres.metrics.QueryMetrics;
+import dev.qilletni.lib.postgres.notify.Notification;
+import dev.qilletni.lib.postgres.pagination.KeysetPaginator;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PooledConnection;
+import dev.qilletni.lib.postgres.replica.ReadOnlyStatements;
+import dev.qilletni.lib.postgres.replica.ReplicaRouter;
+import dev.qilletni.lib.postgres.scan.PartitionedScan;
+import dev.qilletni.lib.postgres.statement.StatementHandle;
+import dev.qilletni.lib.postgres.statement.StatementTimeout;
+import dev.qilletni.lib.postgres.upsert.BulkUpsert;
+import dev.qilletni.lib.postgres.upsert.UpsertStatistics;
+import dev.qilletni.lib.postgres.write.BufferedWrite;
+import dev.qilletni.lib.postgres.write.WriteBehindBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
 
 @NativeOn("Connection")
 public class ConnectionFunctions {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionFunctions.class);
+
+    /**
+     * The amount of rows read from a server-side cursor at once when streaming rows.
+     */
+    private static final int STREAMING_FETCH_SIZE = 1000;
+
+    /**
+     * The most notifications dispatched by a single call, so a flood of them can't keep the script from moving on.
+     */
+    private static final int NOTIFICATION_DISPATCH_LIMIT = 1000;
+
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final RowSetFactory ROW_SET_FACTORY = createRowSetFactory();
+
     private final EntityInitializer entityInitializer;
     private final FunctionInvoker functionInvoker;
     private final EntityDefinitionManager entityDefinitionManager;
     private final TypeConverter typeConverter;
     private final ListInitializer listInitializer;
+    private final QueryStatsFactory queryStatsFactory;
+
+    /**
+     * The ResultMetadata entities of query() results, shared by every result of the same SQL.
+     */
+    private final ResultMetadataCache<EntityType> resultMetadataCache = new ResultMetadataCache<>();
 
     private final StaticEntityType staticResult;
     private final FunctionType errorResultFunction;
+    private final FunctionType errorResultWithValueFunction;
     private final FunctionType successResultFunction;
 
+    private ConnectionHandle connectionHandle;
     private Connection connection;
 
     public ConnectionFunctions(EntityInitializer entityInitializer, FunctionInvoker functionInvoker, EntityDefinitionManager entityDefinitionManager, TypeConverter typeConverter, ListInitializer listInitializer) {
@@ -48,20 +121,31 @@ public class ConnectionFunctions {
         this.entityDefinitionManager = entityDefinitionManager;
         this.typeConverter = typeConverter;
         this.listInitializer = listInitializer;
+        this.queryStatsFactory = new QueryStatsFactory(entityInitializer, listInitializer);
 
         staticResult = entityDefinitionManager.lookup("Result").createStaticInstance();
         errorResultFunction = staticResult.getEntityScope().lookupFunction("errorResult", 2, staticResult.getTypeClass()).getValue();
+        errorResultWithValueFunction = staticResult.getEntityScope().lookupFunction("errorResult", 3, staticResult.getTypeClass()).getValue();
         successResultFunction = staticResult.getEntityScope().lookupFunction("successResult", 1, staticResult.getTypeClass()).getValue();
     }
 
+    private static RowSetFactory createRowSetFactory() {
+        try {
+            return RowSetProvider.newFactory();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
     @BeforeAnyInvocation
     public void setupConnection(EntityType entityType) {
-        connection = entityType.getEntityScope().<JavaType>lookup("_connection").getValue().getReference(Connection.class);
+        connectionHandle = entityType.getEntityScope().<JavaType>lookup("_connection").getValue().getReference(ConnectionHandle.class);
+        connection = connectionHandle == null ? null : connectionHandle.connection();
     }
 
     public boolean isConnected(EntityType entityType) {
         try {
-            return connection != null && !connection.isClosed();
+            return connection != null && !connectionHandle.isReleased() && !connection.isClosed();
         } catch (SQLException e) {
             return false;
         }
@@ -75,31 +159,43 @@ public class ConnectionFunctions {
      * Executes a query() from a {@link QilletniType}, which may either be a {@link StringType} or an
      * {@link EntityType} of PreparedStatement.
      * 
-     * @param query The query, either a string or PreparedStatement
+     * @param target        The connection to run a string query on, either this connection or one borrowed from a
+     *                      replica. PreparedStatements always run on the connection they were prepared on
+     * @param query         The query, either a string or PreparedStatement
+     * @param timeoutMillis The timeout of the query, which keeps running until the returned {@link QueryResult} is
+     *                      closed or its timeout is stopped
      * @return The result of the query
      */
-    private QueryResult queryStatement(QilletniType query) throws SQLException {
-        return queryStatement(query, -1);
+    private QueryResult queryStatement(PooledConnection target, QilletniType query, int fetchSize, long timeoutMillis) throws SQLException {
+        return queryStatement(target, query, fetchSize, 0, timeoutMillis);
     }
 
     /**
-     * Executes a query() from a {@link QilletniType}, which may either be a {@link StringType} or an
-     * {@link EntityType} of PreparedStatement.
-     * 
-     * @param query The query, either a string or PreparedStatement
-     * @return The result of the query
+     * Executes a query() like {@link #queryStatement(PooledConnection, QilletniType, int, long)}, stopping after a
+     * number of rows.
+     *
+     * @param maxRows The maximum amount of rows the server sends, or 0 for no limit
      */
-    private QueryResult queryStatement(QilletniType query, int fetchSize) throws SQLException {
+    private QueryResult queryStatement(PooledConnection target, QilletniType query, int fetchSize, int maxRows, long timeoutMillis) throws SQLException {
         if (query instanceof StringType queryString) {
-            var statement = connection.createStatement();
+            var statement = target.connection().createStatement();
             if (fetchSize > 0) {
                 statement.setFetchSize(fetchSize);
             }
 
-            var resultSet = statement.executeQuery(queryString.getValue());
-            return new QueryResult(resultSet, statement);
+            statement.setMaxRows(maxRows);
+
+            var timeout = startTimeout(target, statement, timeoutMillis);
+            try {
+                var resultSet = statement.executeQuery(queryString.getValue());
+                return new QueryResult(resultSet, statement, timeout);
+            } catch (SQLException e) {
+                timeout.close();
+                statement.close();
+                throw e;
+            }
         } else if (query instanceof EntityType preparedStatementEntity) {
-            var preparedStatement = preparedStatementEntity.getEntityScope().<JavaType>lookup("_preparedStatement").getValue().getReference(PreparedStatement.class);
+            var preparedStatement = statementHandleOf(preparedStatementEntity).getStatement();
             
             // Old fetch size might not be relevant now, but may save headache later
             int oldFetchSize = -1;
@@ -107,14 +203,24 @@ public class ConnectionFunctions {
                 oldFetchSize = preparedStatement.getFetchSize();
                 preparedStatement.setFetchSize(fetchSize);
             }
+
+            int oldMaxRows = preparedStatement.getMaxRows();
+            preparedStatement.setMaxRows(maxRows);
             
-            var resultSet = preparedStatement.executeQuery();
-            
-            if (fetchSize > 0) {
-                preparedStatement.setFetchSize(oldFetchSize);
+            var timeout = startTimeout(connectionHandle.pooledConnection(), preparedStatement, timeoutMillis);
+            try {
+                var resultSet = preparedStatement.executeQuery();
+                return new QueryResult(resultSet, null, timeout);
+            } catch (SQLException e) {
+                timeout.close();
+                throw e;
+            } finally {
+                if (fetchSize > 0) {
+                    preparedStatement.setFetchSize(oldFetchSize);
+                }
+
+                preparedStatement.setMaxRows(oldMaxRows);
             }
-            
-            return new QueryResult(resultSet);
         }
         
         throw new InvalidStatementTypeException("Expected a string or a PreparedStatement, got %s".formatted(query.getTypeClass().getTypeName()));
@@ -127,14 +233,18 @@ public class ConnectionFunctions {
      * @param query The query, either a string or PreparedStatement
      * @return The number of rows affected
      */
-    private int updateStatement(QilletniType query) throws SQLException {
+    private int updateStatement(QilletniType query, long timeoutMillis) throws SQLException {
         if (query instanceof StringType queryString) {
-            try (var statement = connection.createStatement()) {
+            try (var statement = connection.createStatement();
+                 var timeout = startTimeout(connectionHandle.pooledConnection(), statement, timeoutMillis)) {
                 return statement.executeUpdate(queryString.getValue());
             }
         } else if (query instanceof EntityType preparedStatementEntity) {
-            var preparedStatement = preparedStatementEntity.getEntityScope().<JavaType>lookup("_preparedStatement").getValue().getReference(PreparedStatement.class);
-            return preparedStatement.executeUpdate();
+            var preparedStatement = statementHandleOf(preparedStatementEntity).getStatement();
+
+            try (var timeout = startTimeout(connectionHandle.pooledConnection(), preparedStatement, timeoutMillis)) {
+                return preparedStatement.executeUpdate();
+            }
         }
         
         throw new InvalidStatementTypeException("Expected a string or a PreparedStatement, got %s".formatted(query.getTypeClass().getTypeName()));
@@ -147,18 +257,63 @@ public class ConnectionFunctions {
      * @param query The query, either a string or PreparedStatement
      * @return If the execution returned a ResultSet
      */
-    private boolean executeStatement(QilletniType query) throws SQLException {
+    private boolean executeStatement(QilletniType query, long timeoutMillis) throws SQLException {
         if (query instanceof StringType queryString) {
-            try (var statement = connection.createStatement()) {
+            try (var statement = connection.createStatement();
+                 var timeout = startTimeout(connectionHandle.pooledConnection(), statement, timeoutMillis)) {
                 return statement.execute(queryString.getValue());
             }
         } else if (query instanceof EntityType preparedStatementEntity) {
-            var preparedStatement = preparedStatementEntity.getEntityScope().<JavaType>lookup("_preparedStatement").getValue().getReference(PreparedStatement.class);
-            return preparedStatement.execute();
+            var preparedStatement = statementHandleOf(preparedStatementEntity).getStatement();
+
+            try (var timeout = startTimeout(connectionHandle.pooledConnection(), preparedStatement, timeoutMillis)) {
+                return preparedStatement.execute();
+            }
         }
         
         throw new InvalidStatementTypeException("Expected a string or a PreparedStatement, got %s".formatted(query.getTypeClass().getTypeName()));
     }
+
+    /**
+     * Starts the timeout of a statement, both cancelling it from here and making the server enforce it in case the
+     * cancel request can't get through.
+     *
+     * @param target        The connection the statement runs on
+     * @param statement     The statement about to run
+     * @param timeoutMillis The timeout in milliseconds, or 0 for no timeout
+     * @return The started timeout, to be closed once the statement is done
+     */
+    private static StatementTimeout startTimeout(PooledConnection target, Statement statement, long timeoutMillis) throws SQLException {
+        target.applyStatementTimeout(timeoutMillis);
+        return StatementTimeout.start(statement, timeoutMillis);
+    }
+
+    /**
+     * Gets the timeout of statements that don't specify their own.
+     */
+    private int defaultTimeout() {
+        return connectionHandle == null ? 0 : connectionHandle.getQueryTimeoutMillis();
+    }
+
+    public void setReplicaReads(EntityType entityType, boolean enabled) {
+        connectionHandle.setReplicaReads(enabled);
+    }
+
+    public void setResultCacheTtl(EntityType entityType, int ttlMillis) {
+        connectionHandle.setResultCacheTtlMillis(ttlMillis);
+    }
+
+    public void setQueryTimeout(EntityType entityType, int timeoutMillis) {
+        connectionHandle.setQueryTimeoutMillis(timeoutMillis);
+    }
+
+    public int getQueryTimeout(EntityType entityType) {
+        return connectionHandle.getQueryTimeoutMillis();
+    }
+
+    public EntityType stats(EntityType entityType) {
+        return queryStatsFactory.createQueryStats(connectionHandle.queryMetrics());
+    }
     
     public EntityType prepareStatement(EntityType entityType, String statementString, List<QilletniType> paramList) {
         try {
@@ -169,188 +324,1611 @@ public class ConnectionFunctions {
                     throw new InvalidPreparedStatementType("Invalid type for PreparedStatement: %s".formatted(qilletniType.getTypeClass().getTypeName()));
                 }
 
-                return DatabaseTypeUtility.fromQilletniToNativeJava(anyType);
+                return DatabaseTypeUtility.fromQilletniToParameter(anyType);
             }).toList();
 
-            var statement = connection.prepareStatement(statementString);
-            for (int i = 0; i < paramObjects.size(); i++) {
-                statement.setObject(i + 1, paramObjects.get(i));
+            var statementHandle = connectionHandle.statementCache().prepare(statementString);
+            statementHandle.bindLease(connectionHandle::isReleased);
+            statementHandle.setBatchSize(connectionHandle.getBatchSize());
+            var statement = statementHandle.getStatement();
+            
+            try {
+                for (int i = 0; i < paramObjects.size(); i++) {
+                    DatabaseTypeUtility.bindParameter(statement, i + 1, paramObjects.get(i));
+                    statementHandle.rememberParameter(i + 1, paramObjects.get(i));
+                }
+            } catch (SQLException e) {
+                statementHandle.close();
+                throw e;
+            }
+
+            return entityInitializer.initializeEntity("PreparedStatement", statement, statementHandle);
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType statementCacheStats(EntityType entityType) {
+        var statistics = connectionHandle.statementCache().getStatistics();
+        
+        return entityInitializer.initializeEntity("StatementCacheStats", statistics.size(), statistics.capacity(), statistics.hits(), statistics.misses(), statistics.evictions());
+    }
+
+    public void setStatementCacheSize(EntityType entityType, int capacity) {
+        connectionHandle.statementCache().setCapacity(capacity);
+    }
+
+    public void setBatchSize(EntityType entityType, int batchSize) {
+        connectionHandle.setBatchSize(batchSize);
+    }
+
+    public EntityType executeBatch(EntityType entityType, EntityType preparedStatementEntity) {
+        try {
+            verifyAndFlushWrites();
+
+            var statementHandle = statementHandleOf(preparedStatementEntity);
+            int[] updateCounts;
+            try {
+                updateCounts = instrument(statementHandle.getSql(), statementHandle::executeBatch, counts -> Arrays.stream(counts).asLongStream().sum());
+            } finally {
+                connectionHandle.invalidateResults(statementHandle.getSql());
             }
 
-            return entityInitializer.initializeEntity("PreparedStatement", statement);
+            return createResult(listInitializer.createListFromJava(Arrays.stream(updateCounts).boxed().toList(), QilletniTypeClass.INT));
+        } catch (BatchUpdateException e) {
+            var partialCounts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+            return createResult(ErrorType.SQL_EXCEPTION, listInitializer.createListFromJava(Arrays.stream(partialCounts).boxed().toList(), QilletniTypeClass.INT), e.getMessage());
         } catch (SQLException e) {
-            return createResult(ErrorType.SQL_EXCEPTION, e.getMessage());
+            return createResult(e);
         } catch (DatabaseException e) {
             return createResult(ErrorType.DISCONNECTED, e.getMessage());
         }
     }
 
     public EntityType query(EntityType entityType, QilletniType query) {
+        return queryWithTimeout(entityType, query, defaultTimeout());
+    }
+
+    public EntityType queryWithTimeout(EntityType entityType, QilletniType query, int timeoutMillis) {
         try {
-            verifyConnection();
+            verifyAndFlushWrites();
+
+            if (routesToReplica(query)) {
+                // The replica's connection is released right away, so the rows are read up front
+                var cachedRowSet = instrument(connectionHandle.queryMetrics(), sqlOf(query), () -> readFromReplica(target -> {
+                    try (var queryResult = queryStatement(target, query, -1, timeoutMillis)) {
+                        return cacheRows(queryResult.resultSet());
+                    }
+                }), CachedRowSet::size);
+
+                return createResult(createResultSet(sqlOf(query), cachedRowSet, null));
+            }
     
-            var queryResult = queryStatement(query);
-            var resultSet = queryResult.resultSet();
-            var metaData = resultSet.getMetaData();
-            var columnNames = new ArrayList<String>();
-            var columnLabels = new ArrayList<String>();
-            for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                columnNames.add(metaData.getColumnName(i));
-                columnLabels.add(metaData.getColumnLabel(i));
-            }
-
-            var resultMetadata = entityInitializer.initializeEntity("ResultMetadata", listInitializer.createListFromJava(columnNames, QilletniTypeClass.STRING), listInitializer.createListFromJava(columnLabels, QilletniTypeClass.STRING));
-            return createResult(entityInitializer.initializeEntity("ResultSet", resultMetadata, resultSet, Optional.ofNullable(queryResult.statement())));
+            QueryResult queryResult;
+            try {
+                queryResult = instrument(sqlOf(query), () -> queryStatement(connectionHandle.pooledConnection(), query, -1, timeoutMillis), ignored -> 0);
+            } finally {
+                connectionHandle.invalidateResults(sqlOf(query));
+            }
+
+            // The timeout only covers running the query, reading the ResultSet is up to the script
+            queryResult.timeout().close();
+            return createResult(createResultSet(sqlOf(query), queryResult.resultSet(), queryResult.statement()));
         } catch (SQLException e) {
-            return createResult(ErrorType.SQL_EXCEPTION, e.getMessage());
+            return createResult(e);
         } catch (DatabaseException e) {
             return createResult(ErrorType.DISCONNECTED, e.getMessage());
         }
     }
 
+    /**
+     * Creates a ResultSet entity. Its ResultMetadata is shared with earlier results of the same SQL, as long as they
+     * have the same columns, see {@link ResultMetadataCache}.
+     *
+     * @param sql       The SQL of the query
+     * @param resultSet The result set to wrap
+     * @param statement The statement to close along with the result set, if any
+     * @return The created ResultSet entity
+     */
+    private EntityType createResultSet(String sql, ResultSet resultSet, Statement statement) throws SQLException {
+        var resultMetadata = resultMetadataCache.get(sql, resultSet.getMetaData(), (columnNames, columnLabels) ->
+                entityInitializer.initializeEntity("ResultMetadata", listInitializer.createListFromJava(columnNames, QilletniTypeClass.STRING), listInitializer.createListFromJava(columnLabels, QilletniTypeClass.STRING)));
+
+        return entityInitializer.initializeEntity("ResultSet", resultMetadata, resultSet, Optional.ofNullable(statement));
+    }
+
     public EntityType fetchOne(EntityType entityType, QilletniType query) {
+        return fetchOneWithTimeout(entityType, query, defaultTimeout());
+    }
+
+    public EntityType fetchOneWithTimeout(EntityType entityType, QilletniType query, int timeoutMillis) {
         try {
-            verifyConnection();
+            verifyAndFlushWrites();
 
-            try (var queryResult = queryStatement(query, 1)) {
-                var resultSet = queryResult.resultSet();
-                
-                // Process the first row
-                if (resultSet.next()) {
-                    var row = new ArrayList<>();
-                    int columnCount = resultSet.getMetaData().getColumnCount();
+            List<Object> row;
+            var cacheKey = resultCacheKey(query, true);
 
-                    for (int i = 1; i <= columnCount; i++) {
-                        row.add(resultSet.getObject(i));
-                    }
+            if (cacheKey != null) {
+                var rows = readCached(cacheKey, routesToReplica(query), () -> {
+                    var firstRow = fetchFirstRow(query, timeoutMillis);
+                    return firstRow == null ? List.of() : List.of(firstRow);
+                });
 
-                    return createResult(listInitializer.createListFromJava(row));
-                }
+                row = rows.isEmpty() ? null : rows.getFirst();
+            } else {
+                row = fetchFirstRow(query, timeoutMillis);
+            }
+
+            if (row == null) {
+                return createResult(ErrorType.NO_ROWS_RETURNED);
             }
 
-            return createResult(ErrorType.NO_ROWS_RETURNED);
+            return createResult(listInitializer.createListFromJava(row));
         } catch (SQLException e) {
-            return createResult(ErrorType.SQL_EXCEPTION, e.getMessage());
+            return createResult(e);
         } catch (DatabaseException e) {
             return createResult(ErrorType.DISCONNECTED, e.getMessage());
         }
     }
 
+    /**
+     * Reads the first row of a query.
+     *
+     * @return The decoded row, or null if the query returned no rows
+     */
+    private List<Object> fetchFirstRow(QilletniType query, long timeoutMillis) throws SQLException {
+        try {
+            return instrument(connectionHandle.queryMetrics(), sqlOf(query), () -> read(query, target -> {
+                try (var queryResult = queryStatement(target, query, 1, timeoutMillis)) {
+                    var resultSet = queryResult.resultSet();
+
+                    // Process the first row
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+
+                    var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+                    return rowDecoder.decodeRow(resultSet);
+                }
+            }), decodedRow -> decodedRow == null ? 0 : 1);
+        } finally {
+            connectionHandle.invalidateResults(sqlOf(query));
+        }
+    }
+
     public EntityType fetchAll(EntityType entityType, QilletniType query) {
+        return fetchAll(entityType, query, 0, 0);
+    }
+
+    public EntityType fetchAll(EntityType entityType, QilletniType query, int fetchSize) {
+        return fetchAll(entityType, query, fetchSize, 0);
+    }
+
+    public EntityType fetchAll(EntityType entityType, QilletniType query, int fetchSize, int maxRows) {
+        return fetchAll(query, fetchSize, maxRows, defaultTimeout());
+    }
+
+    public EntityType fetchAllWithTimeout(EntityType entityType, QilletniType query, int timeoutMillis) {
+        return fetchAll(query, 0, 0, timeoutMillis);
+    }
+
+    /**
+     * Fetches all rows of a query. If a fetch size is given, the rows are read through a server-side cursor so the
+     * driver only buffers one fetch at a time.
+     *
+     * @param fetchSize     The amount of rows read from the cursor at once, or 0 to read the whole result at once
+     * @param maxRows       The maximum amount of rows allowed before failing with {@link ErrorType#ROW_LIMIT_EXCEEDED},
+     *                      or 0 for no limit
+     * @param timeoutMillis The timeout for reading every row, or 0 for no timeout
+     */
+    private EntityType fetchAll(QilletniType query, int fetchSize, int maxRows, long timeoutMillis) {
         try {
-            var allRows = new ArrayList<QilletniType>();
+            verifyAndFlushWrites();
 
-            try (var queryResult = queryStatement(query)) {
-                var resultSet = queryResult.resultSet();
+            List<QilletniType> allRows;
+            var cacheKey = resultCacheKey(query, false);
 
-                while (resultSet.next()) {
-                    var row = new ArrayList<>();
-                    int columnCount = resultSet.getMetaData().getColumnCount();
+            if (cacheKey != null) {
+                var rows = readCached(cacheKey, routesToReplica(query), () -> fetchRows(query, fetchSize, maxRows, timeoutMillis, row -> row));
 
-                    for (int i = 1; i <= columnCount; i++) {
-                        row.add(resultSet.getObject(i));
-                    }
+                // A cached result may have been read with a higher limit, or none at all
+                allRows = rows == null || (maxRows > 0 && rows.size() > maxRows) ? null : rows.stream().<QilletniType>map(listInitializer::createListFromJava).toList();
+            } else {
+                allRows = fetchRows(query, fetchSize, maxRows, timeoutMillis, listInitializer::createListFromJava);
+            }
 
-                    allRows.add(listInitializer.createListFromJava(row));
-                }
+            if (allRows == null) {
+                return createResult(ErrorType.ROW_LIMIT_EXCEEDED, String.valueOf(maxRows));
             }
 
             return createResult(listInitializer.createList(allRows));
         } catch (SQLException e) {
-            return createResult(ErrorType.SQL_EXCEPTION, e.getMessage());
+            return createResult(e);
         } catch (DatabaseException e) {
             return createResult(ErrorType.DISCONNECTED, e.getMessage());
         }
     }
 
-    public EntityType update(EntityType entityType, QilletniType query) {
+    /**
+     * Fetches the first row of a query as an entity, whose constructor parameters are matched to the result's columns
+     * by {@link EntityMappingPlan}.
+     *
+     * @param query      The query, either a string or PreparedStatement
+     * @param entityName The name of the entity to create
+     * @return A result containing the entity, or {@link ErrorType#NO_ROWS_RETURNED}
+     */
+    public EntityType fetchOneAs(EntityType entityType, QilletniType query, String entityName) {
         try {
-            verifyConnection();
+            verifyAndFlushWrites();
+
+            var rows = mapRows(query, entityName, true, defaultTimeout());
+            if (rows.isEmpty()) {
+                return createResult(ErrorType.NO_ROWS_RETURNED);
+            }
 
-            return createResult(typeConverter.convertToQilletniType(updateStatement(query)));
+            return createResult(entityInitializer.initializeEntity(entityName, rows.getFirst()));
         } catch (SQLException e) {
-            return createResult(ErrorType.SQL_EXCEPTION, e.getMessage());
+            return createResult(e);
         } catch (DatabaseException e) {
             return createResult(ErrorType.DISCONNECTED, e.getMessage());
         }
     }
 
-    public EntityType execute(EntityType entityType, QilletniType query) {
+    /**
+     * Fetches all rows of a query as entities, whose constructor parameters are matched to the result's columns by
+     * {@link EntityMappingPlan}.
+     *
+     * @param query      The query, either a string or PreparedStatement
+     * @param entityName The name of the entity to create for each row
+     * @return A result containing the list of entities
+     */
+    public EntityType fetchAllAs(EntityType entityType, QilletniType query, String entityName) {
         try {
-            verifyConnection();
+            verifyAndFlushWrites();
 
-            // TODO: Handle the actual output of execute! I'm lazy and it likely wouldn't need to be used for a while so oops
-            return createResult(typeConverter.convertToQilletniType(executeStatement(query)));
+            var entities = mapRows(query, entityName, false, defaultTimeout()).stream()
+                    .<QilletniType>map(values -> entityInitializer.initializeEntity(entityName, values))
+                    .toList();
+
+            return createResult(listInitializer.createList(entities));
         } catch (SQLException e) {
-            return createResult(ErrorType.SQL_EXCEPTION, e.getMessage());
+            return createResult(e);
         } catch (DatabaseException e) {
             return createResult(ErrorType.DISCONNECTED, e.getMessage());
         }
     }
 
-    public boolean beginTransaction(EntityType entityType) {
+    /**
+     * Reads the constructor arguments of an entity from each row of a query. Entities are only created from them
+     * afterwards, as the read may run on a replica's connection.
+     *
+     * @param firstRowOnly If only the first row is read
+     * @return The constructor arguments of each row
+     */
+    private List<Object[]> mapRows(QilletniType query, String entityName, boolean firstRowOnly, long timeoutMillis) throws SQLException {
+        var sql = sqlOf(query);
+        var entityDefinition = entityDefinitionManager.lookup(entityName);
+
         try {
-            verifyConnection();
-            
-            connection.setAutoCommit(false);
-            
-            return true;
-        } catch (SQLException | DatabaseException e) {
-            return false;
+            return instrument(connectionHandle.queryMetrics(), sql, () -> read(query, target -> {
+                var rows = new ArrayList<Object[]>();
+
+                try (var queryResult = queryStatement(target, query, firstRowOnly ? 1 : 0, timeoutMillis)) {
+                    var resultSet = queryResult.resultSet();
+                    var plan = EntityMappingPlan.forResult(sql, entityName, () -> List.copyOf(entityDefinition.getUninitializedParams().keySet()), resultSet.getMetaData());
+
+                    while (resultSet.next()) {
+                        rows.add(plan.map(resultSet));
+
+                        if (firstRowOnly) {
+                            break;
+                        }
+                    }
+                }
+
+                return rows;
+            }), List::size);
+        } finally {
+            connectionHandle.invalidateResults(sql);
         }
     }
 
-    public boolean commit(EntityType entityType) {
+    public EntityType fetchColumns(EntityType entityType, QilletniType query) {
+        return fetchColumns(entityType, query, 0);
+    }
+
+    /**
+     * Fetches all rows of a query into a Columns entity, storing each column's values together instead of as a list
+     * per row. Rows are read through a server-side cursor, so the driver only buffers one fetch at a time.
+     *
+     * @param maxRows The maximum amount of rows allowed before failing with {@link ErrorType#ROW_LIMIT_EXCEEDED}, or 0
+     *                for no limit
+     */
+    public EntityType fetchColumns(EntityType entityType, QilletniType query, int maxRows) {
         try {
-            verifyConnection();
-            
-            connection.commit();
-            connection.setAutoCommit(true);
+            verifyAndFlushWrites();
 
-            return true;
-        } catch (SQLException | DatabaseException e) {
-            return false;
+            long timeoutMillis = defaultTimeout();
+            ColumnarResult columnarResult;
+
+            try {
+                columnarResult = instrument(connectionHandle.queryMetrics(), sqlOf(query), () -> read(query, target -> withCursor(target, true, () -> {
+                    try (var queryResult = queryStatement(target, query, STREAMING_FETCH_SIZE, limitRows(maxRows), timeoutMillis)) {
+                        return ColumnarReader.read(queryResult.resultSet(), maxRows);
+                    }
+                })), result -> result == null ? maxRows : result.rowCount());
+            } finally {
+                connectionHandle.invalidateResults(sqlOf(query));
+            }
+
+            if (columnarResult == null) {
+                return createResult(ErrorType.ROW_LIMIT_EXCEEDED, String.valueOf(maxRows));
+            }
+
+            return createResult(createColumns(columnarResult));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
         }
     }
 
-    public boolean rollback(EntityType entityType) {
-        try {
-            verifyConnection();
-            
-            connection.rollback();
-            connection.setAutoCommit(true);
+    /**
+     * Creates a Columns entity, with a Column entity wrapping each column's storage.
+     */
+    private EntityType createColumns(ColumnarResult columnarResult) {
+        var resultMetadata = entityInitializer.initializeEntity("ResultMetadata", listInitializer.createListFromJava(columnarResult.columnNames(), QilletniTypeClass.STRING), listInitializer.createListFromJava(columnarResult.columnLabels(), QilletniTypeClass.STRING));
+        var columns = new ArrayList<QilletniType>(columnarResult.columns().size());
 
-            return true;
-        } catch (SQLException | DatabaseException e) {
-            return false;
+        for (int i = 0; i < columnarResult.columns().size(); i++) {
+            var column = columnarResult.columns().get(i);
+            columns.add(entityInitializer.initializeEntity("Column", columnarResult.columnLabels().get(i), column.typeName(), column.size(), column));
         }
+
+        return entityInitializer.initializeEntity("Columns", resultMetadata, listInitializer.createList(columns), columnarResult.rowCount());
     }
 
-    public boolean disconnect(EntityType entityType) {
+    /**
+     * Reads every row of a query, see {@link #fetchAll(QilletniType, int, int, long)}.
+     *
+     * @param rowMapper Maps each decoded row as it is read
+     * @return The mapped rows, or null if there were more than maxRows
+     */
+    private <R> List<R> fetchRows(QilletniType query, int fetchSize, int maxRows, long timeoutMillis, Function<List<Object>, R> rowMapper) throws SQLException {
         try {
-            verifyConnection();
-            
-            connection.close();
+            return instrument(connectionHandle.queryMetrics(), sqlOf(query), () -> read(query, target -> withCursor(target, fetchSize > 0, () -> {
+                var rows = new ArrayList<R>();
 
-            return true;
-        } catch (SQLException | DatabaseException e) {
-            return false;
+                try (var queryResult = queryStatement(target, query, fetchSize, limitRows(maxRows), timeoutMillis)) {
+                    var resultSet = queryResult.resultSet();
+                    var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+
+                    while (resultSet.next()) {
+                        if (maxRows > 0 && rows.size() >= maxRows) {
+                            return null;
+                        }
+
+                        rows.add(rowMapper.apply(rowDecoder.decodeRow(resultSet)));
+                    }
+                }
+
+                return rows;
+            })), readRows -> readRows == null ? maxRows : readRows.size());
+        } finally {
+            connectionHandle.invalidateResults(sqlOf(query));
         }
     }
 
-    private void verifyConnection() throws SQLException {
-        if (connection == null) {
-            throw new DatabaseException("Connection is not initialized");
+    /**
+     * Gets the limit to give a statement whose result may have at most maxRows rows. One more row than allowed is
+     * read, so the server stops right after the limit is exceeded instead of sending rows that are only thrown away.
+     *
+     * @param maxRows The maximum amount of rows allowed, or 0 for no limit
+     * @return The statement's max rows, or 0 for no limit
+     */
+    private static int limitRows(int maxRows) {
+        return maxRows <= 0 || maxRows == Integer.MAX_VALUE ? 0 : maxRows + 1;
+    }
+
+    /**
+     * Gets the key to cache a read's result by, if the database has a result cache and the read may use it. Reads in
+     * a transaction never do, as they must see the transaction's own writes and nothing committed since it began.
+     *
+     * @param query     The query of the read, either a string or PreparedStatement
+     * @param singleRow If only the first row is read
+     * @return The key, or null if the result must not be cached
+     */
+    private ResultCacheKey resultCacheKey(QilletniType query, boolean singleRow) throws SQLException {
+        if (connectionHandle.getResultCacheTtlMillis() <= 0 || !connection.getAutoCommit()) {
+            return null;
         }
 
-        if (connection.isClosed()) {
-            throw new DatabaseException("Connection is closed");
+        var sql = sqlOf(query);
+        if (!ReadOnlyStatements.isReadOnly(sql)) {
+            return null;
         }
+
+        List<Object> parameters = List.of();
+        if (query instanceof EntityType preparedStatementEntity) {
+            parameters = statementHandleOf(preparedStatementEntity).getParameters();
+        }
+
+        return new ResultCacheKey(sql, parameters, singleRow);
     }
 
-    private EntityType createResult(ErrorType errorType, String... format) {
-        // Invoke the static method Result.errorResult(errorCode, errorMessage)
-        return functionInvoker.invokeFunctionWithResult(errorResultFunction, List.of(typeConverter.convertToQilletniType(errorType.getCode()), typeConverter.convertToQilletniType(errorType.getMessage().formatted((Object[]) format))));
+    /**
+     * Gets the rows of a read from the database's result cache, running and caching the read if they aren't cached.
+     *
+     * @param cacheKey    The key of the read
+     * @param fromReplica If the read is routed to a replica, which may not have replayed recent writes yet
+     * @param read        Runs the read, producing null if its result should not be cached
+     * @return The rows of the read
+     */
+    private List<List<Object>> readCached(ResultCacheKey cacheKey, boolean fromReplica, SQLSupplier<List<List<Object>>> read) throws SQLException {
+        var resultCache = connectionHandle.resultCache();
+        var cachedRows = resultCache.get(cacheKey);
+        if (cachedRows != null) {
+            return cachedRows;
+        }
+
+        long generation = resultCache.generation();
+        long start = System.nanoTime();
+        var rows = read.get();
+
+        if (rows != null) {
+            resultCache.put(cacheKey, rows, TableReferences.readTables(cacheKey.sql()), connectionHandle.getResultCacheTtlMillis(), System.nanoTime() - start, generation, fromReplica);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Streams every row of a query through a server-side cursor into a Qilletni function, so only a single fetch of rows
+     * is held in memory at a time. Outside a transaction, the cursor needs one of its own, see
+     * {@link #withCursor(PooledConnection, boolean, SQLSupplier)}, so statements the function runs on this connection
+     * are part of it and only commit once every row was read.
+     *
+     * @param function The function to invoke with each row
+     * @return A result containing the amount of rows processed
+     */
+    public EntityType forEachRow(EntityType entityType, QilletniType query, FunctionType function) {
+        try {
+            verifyAndFlushWrites();
+
+            var primary = connectionHandle.pooledConnection();
+            var callbackNanos = new long[1];
+
+            // Always on the primary, as a replica's connection shouldn't be held for as long as the function takes
+            long rowCount = withCursor(primary, true, () -> instrument(sqlOf(query), () -> {
+                long count = 0;
+
+                // Not bound by the connection's timeout, as the time taken depends on the function as much as the query
+                try (var queryResult = queryStatement(primary, query, STREAMING_FETCH_SIZE, 0)) {
+                    var resultSet = queryResult.resultSet();
+                    var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+
+                    while (resultSet.next()) {
+                        var row = List.<QilletniType>of(listInitializer.createListFromJava(rowDecoder.decodeRow(resultSet)));
+                        long callbackStart = System.nanoTime();
+                        functionInvoker.invokeFunction(function, row);
+                        callbackNanos[0] += System.nanoTime() - callbackStart;
+                        count++;
+                    }
+                }
+
+                return count;
+            }, Long::longValue, () -> callbackNanos[0]));
+            connectionHandle.invalidateResults(sqlOf(query));
+
+            return createResult(typeConverter.convertToQilletniType(rowCount));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType paginate(EntityType entityType, String query, List<QilletniType> keyColumns, int pageSize) {
+        return paginate(entityType, query, keyColumns, pageSize, false);
+    }
+
+    /**
+     * Creates a paginator reading the rows of a query a page at a time by keyset, see {@link KeysetPaginator}. Pages
+     * are read on this connection, so they see its transaction.
+     *
+     * @param query      The query to page through
+     * @param keyColumns The columns of the query's result that uniquely identify a row, which pages are ordered by
+     * @param pageSize   The amount of rows in each page
+     * @param descending If rows are ordered by descending keys
+     * @return The Paginator entity
+     */
+    public EntityType paginate(EntityType entityType, String query, List<QilletniType> keyColumns, int pageSize, boolean descending) {
+        try {
+            verifyConnection();
+
+            var handle = connectionHandle;
+            var paginator = new KeysetPaginator(query, toColumnNames(keyColumns), pageSize, descending, keysetPaginator -> readPage(handle, keysetPaginator));
+
+            return entityInitializer.initializeEntity("Paginator", paginator, pageSize);
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the next page of a paginator. This is called through the Paginator entity, so it only uses the handle the
+     * paginator was created on rather than this instance's current connection.
+     */
+    private EntityType readPage(ConnectionHandle handle, KeysetPaginator paginator) {
+        try {
+            if (handle.isReleased() || handle.connection().isClosed()) {
+                throw new DatabaseException("Connection is closed");
+            }
+
+            flushWrites(handle);
+
+            if (!paginator.hasNextPage()) {
+                return createResult(listInitializer.createList(List.of()));
+            }
+
+            var pooledConnection = handle.pooledConnection();
+            var rows = instrument(handle.queryMetrics(), paginator.getSql(), () -> timeFirstQuery(pooledConnection, () -> paginator.readPage(pooledConnection, handle.getQueryTimeoutMillis())), List::size);
+
+            return createResult(listInitializer.createList(rows.stream().<QilletniType>map(listInitializer::createListFromJava).toList()));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType fetchAllParallel(EntityType entityType, String source, String keyColumn, int partitions) {
+        return fetchAllParallel(entityType, source, keyColumn, partitions, false, 0);
+    }
+
+    public EntityType fetchAllParallel(EntityType entityType, String source, String keyColumn, int partitions, boolean ordered) {
+        return fetchAllParallel(entityType, source, keyColumn, partitions, ordered, 0);
+    }
+
+    /**
+     * Fetches all rows of a table or query by splitting its keys into ranges read at once on connections borrowed from
+     * the pool, see {@link PartitionedScan}. Each partition's query is bound by the connection's timeout.
+     *
+     * @param source     The table to read, or a query whose rows are read
+     * @param keyColumn  The integer column to split the rows by, or ctid to split a table by its pages
+     * @param partitions The amount of ranges to split the keys into
+     * @param ordered    If the rows are ordered by their key, otherwise they are in the order partitions read them
+     * @param maxRows    The maximum amount of rows allowed before failing with {@link ErrorType#ROW_LIMIT_EXCEEDED},
+     *                   or 0 for no limit
+     */
+    public EntityType fetchAllParallel(EntityType entityType, String source, String keyColumn, int partitions, boolean ordered, int maxRows) {
+        try {
+            verifyAndFlushWrites();
+
+            var scan = new PartitionedScan(connectionHandle.pool(), source, keyColumn, partitions, ordered, defaultTimeout());
+            var allRows = new ArrayList<QilletniType>();
+
+            boolean complete = instrument(connectionHandle.queryMetrics(), scan.getSql(), () -> scan.run(rows -> {
+                if (maxRows > 0 && allRows.size() + rows.size() > maxRows) {
+                    return false;
+                }
+
+                for (var row : rows) {
+                    allRows.add(listInitializer.createListFromJava(row));
+                }
+
+                return true;
+            }), ignored -> allRows.size());
+
+            if (!complete) {
+                return createResult(ErrorType.ROW_LIMIT_EXCEEDED, String.valueOf(maxRows));
+            }
+
+            return createResult(listInitializer.createList(allRows));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType forEachRowParallel(EntityType entityType, String source, String keyColumn, int partitions, FunctionType function) {
+        return forEachRowParallel(entityType, source, keyColumn, partitions, false, function);
+    }
+
+    /**
+     * Streams every row of a table or query into a Qilletni function like {@link #forEachRow(EntityType, QilletniType,
+     * FunctionType)}, reading its key ranges at once like {@link #fetchAllParallel(EntityType, String, String, int,
+     * boolean, int)}. The function is always invoked on the calling thread, and partitions stop reading while their
+     * rows wait to be passed to it.
+     *
+     * @param function The function to invoke with each row
+     * @return A result containing the amount of rows processed
+     */
+    public EntityType forEachRowParallel(EntityType entityType, String source, String keyColumn, int partitions, boolean ordered, FunctionType function) {
+        try {
+            verifyAndFlushWrites();
+
+            // Not bound by the connection's timeout, as the time taken depends on the function as much as the query
+            var scan = new PartitionedScan(connectionHandle.pool(), source, keyColumn, partitions, ordered, 0);
+            var rowCount = new long[1];
+            var callbackNanos = new long[1];
+
+            instrument(connectionHandle.queryMetrics(), scan.getSql(), () -> scan.run(rows -> {
+                long callbackStart = System.nanoTime();
+
+                try {
+                    for (var row : rows) {
+                        functionInvoker.invokeFunction(function, List.of(listInitializer.createListFromJava(row)));
+                        rowCount[0]++;
+                    }
+                } finally {
+                    callbackNanos[0] += System.nanoTime() - callbackStart;
+                }
+
+                return true;
+            }), ignored -> rowCount[0], () -> callbackNanos[0]);
+
+            return createResult(typeConverter.convertToQilletniType(rowCount[0]));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs an action that reads through a server-side cursor. PostgreSQL only keeps cursors open inside a transaction,
+     * so if the connection is in autocommit mode, a transaction is opened for the action and committed afterwards.
+     * If the connection is already in a transaction, that transaction is used as-is.
+     *
+     * @param target    The connection the action reads from
+     * @param useCursor If a cursor is actually used, if false the action is run directly
+     * @param action    The action to run
+     * @return The result of the action
+     */
+    private static <T> T withCursor(PooledConnection target, boolean useCursor, SQLSupplier<T> action) throws SQLException {
+        var connection = target.connection();
+        if (!useCursor || !connection.getAutoCommit()) {
+            return action.get();
+        }
+
+        connection.setAutoCommit(false);
+        boolean success = false;
+
+        try {
+            var result = action.get();
+            success = true;
+            return result;
+        } finally {
+            try {
+                if (success) {
+                    connection.commit();
+                } else {
+                    connection.rollback();
+                    target.forgetStatementTimeout();
+                }
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Checks if a query may run on a replica instead of this connection. Only string queries outside a transaction
+     * are, as a PreparedStatement belongs to this connection and a transaction must see its own writes.
+     */
+    private boolean routesToReplica(QilletniType query) throws SQLException {
+        return query instanceof StringType queryString && connection.getAutoCommit() && connectionHandle.canReadFromReplica(queryString.getValue());
+    }
+
+    /**
+     * Runs a read on a replica if the query {@link #routesToReplica(QilletniType) may be routed to one}, otherwise on
+     * this connection.
+     *
+     * @param query The query the read runs
+     * @param work  The read, run on the chosen connection
+     * @return The result of the read
+     */
+    private <T> T read(QilletniType query, ReplicaRouter.Work<T> work) throws SQLException {
+        if (routesToReplica(query)) {
+            return readFromReplica(work);
+        }
+
+        var primary = connectionHandle.pooledConnection();
+        return timeFirstQuery(primary, () -> work.run(primary));
+    }
+
+    /**
+     * Runs a read on a replica, falling back to this connection if no replica is available.
+     */
+    private <T> T readFromReplica(ReplicaRouter.Work<T> work) throws SQLException {
+        var primary = connectionHandle.pooledConnection();
+        return connectionHandle.replicaRouter().read(target -> timeFirstQuery(target, () -> work.run(target)), () -> timeFirstQuery(primary, () -> work.run(primary)));
+    }
+
+    public EntityType update(EntityType entityType, QilletniType query) {
+        var writeBehindBuffer = connectionHandle == null ? null : connectionHandle.getWriteBehindBuffer();
+        if (writeBehindBuffer != null) {
+            return bufferUpdate(entityType, writeBehindBuffer, query);
+        }
+
+        return updateWithTimeout(entityType, query, defaultTimeout());
+    }
+
+    /**
+     * Queues an update in the connection's write-behind buffer, flushing the buffer if it is full. In a transaction,
+     * the update runs right away instead, as it must be part of the transaction.
+     *
+     * @return A result of 0 rows, as the amount isn't known until the update is flushed, or an error if this update
+     *         filled the buffer and the flush it triggered failed, which dropped this update too
+     */
+    private EntityType bufferUpdate(EntityType entityType, WriteBehindBuffer writeBehindBuffer, QilletniType query) {
+        try {
+            verifyConnection();
+
+            if (!connection.getAutoCommit()) {
+                return updateWithTimeout(entityType, query, defaultTimeout());
+            }
+
+            BufferedWrite write;
+            if (query instanceof StringType queryString) {
+                write = new BufferedWrite(queryString.getValue(), List.of());
+            } else if (query instanceof EntityType preparedStatementEntity) {
+                var statementHandle = statementHandleOf(preparedStatementEntity);
+                write = new BufferedWrite(statementHandle.getSql(), statementHandle.getParameters());
+            } else {
+                throw new InvalidStatementTypeException("Expected a string or a PreparedStatement, got %s".formatted(query.getTypeClass().getTypeName()));
+            }
+
+            if (writeBehindBuffer.add(write)) {
+                writeBehindBuffer.flush(connection);
+            }
+
+            return createResult(typeConverter.convertToQilletniType(0));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    /**
+     * Turns on write-behind for update(), or changes its limits, flushing any writes already queued.
+     *
+     * @param maxStatements  The amount of queued updates that flushes the buffer, or 0 to turn write-behind off
+     * @param maxDelayMillis The longest an update is queued before the buffer is flushed in the background
+     * @return A result containing the amount of rows affected by the flushed writes
+     */
+    public EntityType setWriteBehind(EntityType entityType, int maxStatements, int maxDelayMillis) {
+        var result = flush(entityType);
+
+        if (connectionHandle != null && !connectionHandle.isReleased()) {
+            connectionHandle.setWriteBehindBuffer(maxStatements > 0
+                    ? new WriteBehindBuffer(connectionHandle.pool(), connectionHandle.queryMetrics(), connectionHandle.resultCache(), maxStatements, maxDelayMillis)
+                    : null);
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs every update queued in the write-behind buffer in a single transaction.
+     *
+     * @return A result containing the amount of rows affected, or an error if this or an earlier background flush
+     *         failed
+     */
+    public EntityType flush(EntityType entityType) {
+        try {
+            verifyConnection();
+
+            var writeBehindBuffer = connectionHandle.getWriteBehindBuffer();
+            if (writeBehindBuffer == null) {
+                return createResult(typeConverter.convertToQilletniType(0));
+            }
+
+            long rowCount = writeBehindBuffer.flush(connection);
+
+            var failure = writeBehindBuffer.takeFailure();
+            if (failure != null) {
+                return createResult(failure);
+            }
+
+            return createResult(typeConverter.convertToQilletniType(rowCount));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the error of the last flush of the write-behind buffer that failed without being reported, such as one in
+     * the background or on disconnect, clearing it. This works after disconnecting too.
+     *
+     * @return The error, or a result of 0 rows if no unreported flush failed
+     */
+    public EntityType lastWriteError(EntityType entityType) {
+        var writeBehindBuffer = connectionHandle == null ? null : connectionHandle.getWriteBehindBuffer();
+        var failure = writeBehindBuffer == null ? null : writeBehindBuffer.takeFailure();
+
+        if (failure != null) {
+            return createResult(failure);
+        }
+
+        return createResult(typeConverter.convertToQilletniType(0));
+    }
+
+    /**
+     * Gets the amount of updates queued in the write-behind buffer.
+     */
+    public int pendingWrites(EntityType entityType) {
+        var writeBehindBuffer = connectionHandle == null ? null : connectionHandle.getWriteBehindBuffer();
+        return writeBehindBuffer == null ? 0 : writeBehindBuffer.pending();
+    }
+
+    /**
+     * Flushes the write-behind buffer, if there is one.
+     */
+    private void flushWrites() throws SQLException {
+        flushWrites(connectionHandle);
+    }
+
+    private static void flushWrites(ConnectionHandle handle) throws SQLException {
+        var writeBehindBuffer = handle.getWriteBehindBuffer();
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.flush(handle.connection());
+        }
+    }
+
+    /**
+     * Verifies the connection, then flushes the write-behind buffer, so a statement about to run comes after every
+     * update queued before it, and a read sees them.
+     */
+    private void verifyAndFlushWrites() throws SQLException {
+        verifyConnection();
+        flushWrites();
+    }
+
+    public EntityType updateWithTimeout(EntityType entityType, QilletniType query, int timeoutMillis) {
+        try {
+            verifyAndFlushWrites();
+
+            int updateCount;
+            try {
+                updateCount = instrument(sqlOf(query), () -> updateStatement(query, timeoutMillis), Integer::longValue);
+            } finally {
+                connectionHandle.invalidateResults(sqlOf(query));
+            }
+
+            return createResult(typeConverter.convertToQilletniType(updateCount));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType execute(EntityType entityType, QilletniType query) {
+        return executeWithTimeout(entityType, query, defaultTimeout());
+    }
+
+    public EntityType executeWithTimeout(EntityType entityType, QilletniType query, int timeoutMillis) {
+        try {
+            verifyAndFlushWrites();
+
+            // TODO: Handle the actual output of execute! I'm lazy and it likely wouldn't need to be used for a while so oops
+            boolean hasResultSet;
+            try {
+                hasResultSet = instrument(sqlOf(query), () -> executeStatement(query, timeoutMillis), ignored -> 0);
+            } finally {
+                connectionHandle.invalidateResults(sqlOf(query));
+            }
+
+            return createResult(typeConverter.convertToQilletniType(hasResultSet));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType copyIn(EntityType entityType, String table, List<QilletniType> columns, List<QilletniType> rows) {
+        try {
+            verifyAndFlushWrites();
+
+            var columnNames = toColumnNames(columns);
+            var rowIterator = rows.stream().map(ConnectionFunctions::toJavaRow).iterator();
+
+            long rowCount;
+            try {
+                rowCount = instrument(copySql(table), () -> CopyLoader.copyRows(connection, table, columnNames, rowIterator), Long::longValue);
+            } finally {
+                connectionHandle.invalidateResults(copySql(table));
+            }
+
+            return createResult(typeConverter.convertToQilletniType(rowCount));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType copyInFile(EntityType entityType, String table, String path, String format) {
+        try {
+            verifyAndFlushWrites();
+
+            var copyFormat = CopyFormat.fromName(format);
+            long rowCount;
+            try {
+                rowCount = instrument(copySql(table), () -> {
+                    try {
+                        return CopyLoader.copyFile(connection, table, Path.of(path), copyFormat);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, Long::longValue);
+            } finally {
+                connectionHandle.invalidateResults(copySql(table));
+            }
+
+            return createResult(typeConverter.convertToQilletniType(rowCount));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (UncheckedIOException e) {
+            return createResult(ErrorType.IO_EXCEPTION, e.getCause().getMessage());
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    public EntityType exportToFile(EntityType entityType, String query, String path, String format) {
+        return exportToFile(entityType, query, path, format, path.endsWith(".gz"));
+    }
+
+    /**
+     * Exports the rows of a query into a local file through COPY TO STDOUT, see {@link CopyExporter}.
+     *
+     * @param query  The query whose rows are exported
+     * @param path   The file to write, which is replaced if it exists
+     * @param format The format of the file, which is csv, text or binary
+     * @param gzip   If the file is compressed with gzip
+     * @return A result containing an ExportStats entity
+     */
+    public EntityType exportToFile(EntityType entityType, String query, String path, String format, boolean gzip) {
+        try {
+            verifyAndFlushWrites();
+
+            var copyFormat = CopyFormat.fromName(format);
+            var exportStatistics = instrument(query, () -> {
+                try {
+                    return CopyExporter.copyToFile(connection, query, Path.of(path), copyFormat, gzip);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, ExportStatistics::rows);
+
+            return createResult(entityInitializer.initializeEntity("ExportStats", exportStatistics.rows(), exportStatistics.bytes(), exportStatistics.dataBytes(), exportStatistics.millis()));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (UncheckedIOException e) {
+            return createResult(ErrorType.IO_EXCEPTION, e.getCause().getMessage());
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a large object into a local file through a fixed-size buffer, see {@link BlobTransfer}.
+     *
+     * @param oid  The OID of the large object
+     * @param path The file to write, which is replaced if it exists
+     * @return A result containing the amount of bytes written
+     */
+    public EntityType readLargeObject(EntityType entityType, long oid, String path) {
+        try {
+            verifyAndFlushWrites();
+
+            return createResult(typeConverter.convertToQilletniType(BlobTransfer.readLargeObject(connection, oid, Path.of(path))));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (IOException e) {
+            return createResult(ErrorType.IO_EXCEPTION, e.getMessage());
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a large object from a local file through a fixed-size buffer, see {@link BlobTransfer}.
+     *
+     * @param path The file to read
+     * @return A result containing the OID of the created large object
+     */
+    public EntityType writeLargeObject(EntityType entityType, String path) {
+        try {
+            verifyAndFlushWrites();
+
+            return createResult(typeConverter.convertToQilletniType(BlobTransfer.writeLargeObject(connection, Path.of(path))));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (IOException e) {
+            return createResult(ErrorType.IO_EXCEPTION, e.getMessage());
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts rows into a table, updating the rows they conflict with instead, see {@link BulkUpsert}. Rows are sent in
+     * chunks of the connection's batch size.
+     *
+     * @param table           The table to upsert into
+     * @param columns         The names of the columns each row's values map to
+     * @param rows            A 2D list of the rows to upsert
+     * @param conflictColumns The columns rows conflict on
+     * @param updateColumns   The columns updated when a row conflicts, or an empty list to skip conflicting rows
+     * @return A result containing an UpsertStats entity
+     */
+    public EntityType upsertAll(EntityType entityType, String table, List<QilletniType> columns, List<QilletniType> rows, List<QilletniType> conflictColumns, List<QilletniType> updateColumns) {
+        try {
+            verifyAndFlushWrites();
+
+            var tableColumnTypes = connectionHandle.tableColumnTypes();
+            var upsert = BulkUpsert.create(connection, tableColumnTypes, table, toColumnNames(columns), toColumnNames(conflictColumns), toColumnNames(updateColumns));
+            var javaRows = rows.stream().map(ConnectionFunctions::toJavaRow).toList();
+
+            UpsertStatistics upsertStatistics;
+            try {
+                upsertStatistics = instrument(upsert.getSql(), () -> upsert.run(connection, javaRows, connectionHandle.getBatchSize()), statistics -> statistics.inserted() + statistics.updated());
+            } catch (SQLException e) {
+                // Errors like a missing column or a bad cast may come from the table having changed since its types were cached
+                if (e.getSQLState() != null && e.getSQLState().startsWith("42")) {
+                    tableColumnTypes.invalidate(table);
+                }
+
+                throw e;
+            } finally {
+                connectionHandle.invalidateResults(upsert.getSql());
+            }
+
+            return createResult(entityInitializer.initializeEntity("UpsertStats", upsertStatistics.inserted(), upsertStatistics.updated(), upsertStatistics.skipped(), upsertStatistics.chunks()));
+        } catch (SQLException e) {
+            return createResult(e);
+        } catch (DatabaseException e) {
+            return createResult(ErrorType.DISCONNECTED, e.getMessage());
+        }
+    }
+
+    private static List<String> toColumnNames(List<QilletniType> columns) {
+        return columns.stream().map(column -> String.valueOf(DatabaseTypeUtility.fromQilletniToNativeJava(column))).toList();
+    }
+
+    /**
+     * Converts a Qilletni list representing a row into a list of plain Java values.
+     *
+     * @param row The row, which must be a list
+     * @return The values of the row
+     */
+    private static List<Object> toJavaRow(QilletniType row) {
+        if (!(row instanceof ListType listType)) {
+            throw new InvalidCopyFormatException("Expected each row to be a list, got %s".formatted(row.getTypeClass().getTypeName()));
+        }
+
+        return listType.getItems().stream().map(DatabaseTypeUtility::fromQilletniToNativeJava).toList();
+    }
+
+    public EntityType queryAsync(EntityType entityType, String query) {
+        return queryAsync(entityType, query, Collections.emptyList());
+    }
+
+    /**
+     * Runs a query on another pooled connection on a virtual thread. The whole result is read into a disconnected
+     * {@link CachedRowSet}, so the borrowed connection can be released before the script reads it.
+     */
+    public EntityType queryAsync(EntityType entityType, String query, List<QilletniType> paramList) {
+        return submitAsync(query, paramList, true, statement -> {
+            try (var resultSet = statement.executeQuery()) {
+                return cacheRows(resultSet);
+            }
+        }, CachedRowSet::size, cachedRowSet -> createResult(createResultSet(query, cachedRowSet, null)));
+    }
+
+    /**
+     * Reads a whole result set into a disconnected {@link CachedRowSet}, which stays readable after its connection is
+     * released.
+     */
+    private static CachedRowSet cacheRows(ResultSet resultSet) throws SQLException {
+        var cachedRowSet = ROW_SET_FACTORY.createCachedRowSet();
+        cachedRowSet.populate(resultSet);
+        return cachedRowSet;
+    }
+
+    public EntityType fetchAllAsync(EntityType entityType, String query) {
+        return fetchAllAsync(entityType, query, Collections.emptyList());
+    }
+
+    public EntityType fetchAllAsync(EntityType entityType, String query, List<QilletniType> paramList) {
+        return submitAsync(query, paramList, true, statement -> {
+            try (var resultSet = statement.executeQuery()) {
+                var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+                var rows = new ArrayList<List<Object>>();
+
+                while (resultSet.next()) {
+                    rows.add(rowDecoder.decodeRow(resultSet));
+                }
+
+                return rows;
+            }
+        }, List::size, rows -> createResult(listInitializer.createList(rows.stream().<QilletniType>map(listInitializer::createListFromJava).toList())));
+    }
+
+    public EntityType updateAsync(EntityType entityType, String query) {
+        return updateAsync(entityType, query, Collections.emptyList());
+    }
+
+    public EntityType updateAsync(EntityType entityType, String query, List<QilletniType> paramList) {
+        return submitAsync(query, paramList, false, PreparedStatement::executeUpdate, Integer::longValue, updateCount -> createResult(typeConverter.convertToQilletniType(updateCount)));
+    }
+
+    public ListType awaitAll(EntityType entityType, List<QilletniType> futures) {
+        var results = new ArrayList<QilletniType>(futures.size());
+
+        for (var future : futures) {
+            if (!(future instanceof EntityType futureEntity)) {
+                throw new InvalidStatementTypeException("Expected a QueryFuture, got %s".formatted(future.getTypeClass().getTypeName()));
+            }
+
+            results.add(futureEntity.getEntityScope().<JavaType>lookup("_future").getValue().getReference(AsyncQuery.class).await());
+        }
+
+        return listInitializer.createList(results);
+    }
+
+    /**
+     * Runs a statement on a connection borrowed from this connection's pool, or from a replica if it only reads, on a
+     * virtual thread. Parameters are converted up front, as Qilletni values must not be touched off the interpreter's
+     * thread.
+     *
+     * @param query     The SQL of the statement
+     * @param paramList The parameters of the statement
+     * @param read      If the work only reads, so it may be routed to a replica
+     * @param work      The database work, producing plain Java values
+     * @param rowCount  Gets the amount of rows returned or affected from the produced value
+     * @param converter Turns the produced value into a Result entity once awaited
+     * @return The QueryFuture entity
+     */
+    private <T> EntityType submitAsync(String query, List<QilletniType> paramList, boolean read, SQLFunction<PreparedStatement, T> work, ToLongFunction<T> rowCount, AsyncQuery.ResultConverter<T> converter) {
+        try {
+            // Only the buffer needs this connection, as the query itself runs on a connection of its own, but a
+            // disconnected script mustn't keep borrowing from the pool
+            verifyAndFlushWrites();
+        } catch (SQLException e) {
+            return entityInitializer.initializeEntity("QueryFuture", new AsyncQuery<T>(CompletableFuture.failedFuture(e), converter, this::createResult));
+        } catch (DatabaseException e) {
+            return entityInitializer.initializeEntity("QueryFuture", new AsyncQuery<T>(CompletableFuture.failedFuture(new SQLException(e.getMessage(), e)), converter, failure -> createResult(ErrorType.DISCONNECTED, e.getMessage())));
+        }
+
+        var paramObjects = paramList.stream().map(DatabaseTypeUtility::fromQilletniToParameter).toList();
+        var pool = connectionHandle.pool();
+        var handle = connectionHandle;
+        var timeoutMillis = handle.getQueryTimeoutMillis();
+        var replicaRouter = read && handle.canReadFromReplica(query) ? handle.replicaRouter() : null;
+        var resultCache = handle.resultCache();
+
+        ReplicaRouter.Work<T> statementWork = pooledConnection -> timeFirstQuery(pooledConnection, () -> {
+            pooledConnection.applyStatementTimeout(timeoutMillis);
+            var statementHandle = pooledConnection.statementCache().prepare(query);
+
+            try (var timeout = StatementTimeout.start(statementHandle.getStatement(), timeoutMillis)) {
+                var statement = statementHandle.getStatement();
+                for (int i = 0; i < paramObjects.size(); i++) {
+                    DatabaseTypeUtility.bindParameter(statement, i + 1, paramObjects.get(i));
+                }
+
+                return work.apply(statement);
+            } finally {
+                statementHandle.close();
+            }
+        });
+
+        var future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return instrument(handle.queryMetrics(), query, () -> {
+                    if (replicaRouter != null) {
+                        return replicaRouter.read(statementWork, () -> runPooled(pool, statementWork));
+                    }
+
+                    return runPooled(pool, statementWork);
+                }, rowCount);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                // Runs on its own connection in autocommit mode, so any write is already committed
+                resultCache.invalidateWrites(query);
+            }
+        }, ASYNC_EXECUTOR);
+
+        return entityInitializer.initializeEntity("QueryFuture", new AsyncQuery<>(future, converter, this::createResult));
+    }
+
+    /**
+     * Runs work on a connection borrowed from a pool, releasing it afterwards.
+     */
+    private static <T> T runPooled(ConnectionPool pool, ReplicaRouter.Work<T> work) throws SQLException {
+        var pooledConnection = pool.borrow();
+
+        try {
+            return work.run(pooledConnection);
+        } finally {
+            pool.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Starts listening to a channel, replacing the function of the channel if it is already listened to. Notifications
+     * are received in the background on a separate connection, and only passed to the function once dispatched with
+     * {@link #dispatchNotifications(EntityType)} or {@link #awaitNotifications(EntityType, int)}.
+     *
+     * @param channel  The name of the channel, which is case-sensitive
+     * @param function The function invoked with a list of the channel's Notification entities
+     * @return If the server is now listening to the channel
+     */
+    public boolean listen(EntityType entityType, String channel, FunctionType function) {
+        try {
+            verifyConnection();
+
+            connectionHandle.notificationListener().listen(channel);
+            connectionHandle.notificationCallbacks().put(channel, function);
+
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stops listening to a channel. Notifications of the channel that were received but not dispatched yet are dropped.
+     *
+     * @param channel The name of the channel
+     * @return If the channel was listened to and the server stopped listening to it
+     */
+    public boolean unlisten(EntityType entityType, String channel) {
+        try {
+            verifyConnection();
+
+            var listener = connectionHandle.getNotificationListenerIfStarted();
+            if (listener == null || connectionHandle.notificationCallbacks().remove(channel) == null) {
+                return false;
+            }
+
+            listener.unlisten(channel);
+
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends a notification to everyone listening to a channel. In a transaction, it is only delivered once the
+     * transaction commits.
+     *
+     * @param channel The name of the channel
+     * @param payload The payload of the notification
+     * @return If the notification was sent
+     */
+    public boolean notify(EntityType entityType, String channel, String payload) {
+        try {
+            verifyAndFlushWrites();
+
+            var sql = "SELECT pg_notify(?, ?)";
+            instrument(sql, () -> {
+                try (var statement = connection.prepareStatement(sql)) {
+                    statement.setString(1, channel);
+                    statement.setString(2, payload);
+                    statement.execute();
+                }
+
+                return 1L;
+            }, Long::longValue);
+
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Passes the received notifications to their channels' functions without waiting for more. Each function is invoked
+     * once with all of its channel's notifications, in the order they were received.
+     *
+     * @return The amount of notifications dispatched
+     */
+    public int dispatchNotifications(EntityType entityType) {
+        var listener = connectionHandle == null ? null : connectionHandle.getNotificationListenerIfStarted();
+        if (listener == null) {
+            return 0;
+        }
+
+        return dispatch(listener.poll(NOTIFICATION_DISPATCH_LIMIT));
+    }
+
+    /**
+     * Waits for notifications to be received if none have been yet, then dispatches them like {@link
+     * #dispatchNotifications(EntityType)}.
+     *
+     * @param timeoutMillis The longest to wait for a notification
+     * @return The amount of notifications dispatched, which is 0 if none arrived in time
+     */
+    public int awaitNotifications(EntityType entityType, int timeoutMillis) {
+        var listener = connectionHandle == null ? null : connectionHandle.getNotificationListenerIfStarted();
+        if (listener == null) {
+            return 0;
+        }
+
+        return dispatch(listener.await(timeoutMillis, NOTIFICATION_DISPATCH_LIMIT));
+    }
+
+    /**
+     * Gets the amount of notifications received and not dispatched yet.
+     */
+    public int pendingNotifications(EntityType entityType) {
+        var listener = connectionHandle == null ? null : connectionHandle.getNotificationListenerIfStarted();
+        return listener == null ? 0 : listener.pending();
+    }
+
+    /**
+     * Invokes the function of each channel with its notifications. Notifications of channels that were unlistened to
+     * since they were received are dropped.
+     *
+     * @return The amount of notifications dispatched
+     */
+    private int dispatch(List<Notification> notifications) {
+        var byChannel = new LinkedHashMap<String, List<QilletniType>>();
+
+        for (var notification : notifications) {
+            if (connectionHandle.notificationCallbacks().containsKey(notification.channel())) {
+                byChannel.computeIfAbsent(notification.channel(), channel -> new ArrayList<>())
+                        .add(entityInitializer.initializeEntity("Notification", notification.channel(), notification.payload(), notification.processId()));
+            }
+        }
+
+        int dispatched = 0;
+        for (var entry : byChannel.entrySet()) {
+            var function = connectionHandle.notificationCallbacks().get(entry.getKey());
+            functionInvoker.invokeFunction(function, List.of(listInitializer.createList(entry.getValue())));
+            dispatched += entry.getValue().size();
+        }
+
+        return dispatched;
+    }
+
+    public boolean beginTransaction(EntityType entityType) {
+        try {
+            verifyConnection();
+
+            // Queued writes were made before the transaction, so they must not be part of it
+            flushWrites();
+
+            connection.setAutoCommit(false);
+            connectionHandle.beginTransaction();
+            
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    public boolean commit(EntityType entityType) {
+        try {
+            verifyConnection();
+            
+            connection.commit();
+            connection.setAutoCommit(true);
+            connectionHandle.endTransaction(true);
+
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    public boolean rollback(EntityType entityType) {
+        try {
+            verifyConnection();
+            
+            connection.rollback();
+            connection.setAutoCommit(true);
+            connectionHandle.forgetStatementTimeout();
+            connectionHandle.endTransaction(false);
+
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    public boolean disconnect(EntityType entityType) {
+        try {
+            verifyConnection();
+
+            try {
+                flushWrites();
+
+                var writeBehindBuffer = connectionHandle.getWriteBehindBuffer();
+                if (writeBehindBuffer != null && writeBehindBuffer.pending() > 0) {
+                    // Flushing waits for the connection's transaction to end, which releasing it rolls back
+                    throw new SQLException("%d buffered writes were dropped, as the connection was disconnected inside a transaction".formatted(writeBehindBuffer.pending()));
+                }
+            } catch (SQLException e) {
+                // Nothing is left to return the error from, so it's kept for lastWriteError()
+                LOGGER.warn("Flushing buffered writes on disconnect failed: {}", e.getMessage());
+                connectionHandle.getWriteBehindBuffer().keepFailure(e);
+                throw e;
+            } finally {
+                connectionHandle.release();
+            }
+
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    private void verifyConnection() throws SQLException {
+        if (connection == null) {
+            throw new DatabaseException("Connection is not initialized");
+        }
+
+        if (connectionHandle.isReleased() || connection.isClosed()) {
+            throw new DatabaseException("Connection is closed");
+        }
+    }
+
+    /**
+     * Gets the handle of a PreparedStatement entity, making sure the statement wasn't closed and the connection it was
+     * prepared on wasn't disconnected since, as either may have been handed to someone else.
+     *
+     * @throws DatabaseException If the statement was closed or its connection was disconnected
+     */
+    private static StatementHandle statementHandleOf(EntityType preparedStatementEntity) {
+        var statementHandle = preparedStatementEntity.getEntityScope().<JavaType>lookup("_statementHandle").getValue().getReference(StatementHandle.class);
+        statementHandle.verifyOpen();
+        return statementHandle;
+    }
+
+    /**
+     * Gets the SQL of a query for metrics, which may either be a {@link StringType} or an {@link EntityType} of
+     * PreparedStatement.
+     */
+    private static String sqlOf(QilletniType query) {
+        if (query instanceof StringType queryString) {
+            return queryString.getValue();
+        } else if (query instanceof EntityType preparedStatementEntity) {
+            return preparedStatementEntity.getEntityScope().<JavaType>lookup("_statementHandle").getValue().getReference(StatementHandle.class).getSql();
+        }
+
+        return query.getTypeClass().getTypeName();
+    }
+
+    private static String copySql(String table) {
+        return "COPY %s FROM STDIN".formatted(table);
+    }
+
+    /**
+     * Runs a statement on this connection, recording it like {@link #instrument(QueryMetrics, String, SQLSupplier, ToLongFunction)}.
+     * Statements that may run on another connection, such as reads routed to a replica, must use that instead, and
+     * time the connection they run on through {@link #timeFirstQuery(PooledConnection, SQLSupplier)}.
+     */
+    private <T> T instrument(String sql, SQLSupplier<T> action, ToLongFunction<T> rowCount) throws SQLException {
+        return instrument(sql, action, rowCount, () -> 0);
+    }
+
+    /**
+     * Runs a statement on this connection like {@link #instrument(String, SQLSupplier, ToLongFunction)}, not counting
+     * time the action spent on something other than the statement, such as invoking a Qilletni function per row.
+     *
+     * @param excludedNanos Gets how much of the action's time isn't the statement's, once the action has run
+     */
+    private <T> T instrument(String sql, SQLSupplier<T> action, ToLongFunction<T> rowCount, LongSupplier excludedNanos) throws SQLException {
+        var primary = connectionHandle.pooledConnection();
+        return timeFirstQuery(primary, () -> instrument(connectionHandle.queryMetrics(), sql, action, rowCount, excludedNanos), excludedNanos);
+    }
+
+    /**
+     * Runs a statement on a connection, recording how long it took if it is the first statement run on that
+     * connection, for the time-to-first-query of its pool.
+     *
+     * @param target The connection the statement runs on
+     * @param action Runs the statement
+     * @return The result of the action
+     */
+    private static <T> T timeFirstQuery(PooledConnection target, SQLSupplier<T> action) throws SQLException {
+        return timeFirstQuery(target, action, () -> 0);
+    }
+
+    private static <T> T timeFirstQuery(PooledConnection target, SQLSupplier<T> action, LongSupplier excludedNanos) throws SQLException {
+        if (!target.isFirstQuery()) {
+            return action.get();
+        }
+
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            target.recordQuery(System.nanoTime() - start - excludedNanos.getAsLong());
+        }
+    }
+
+    /**
+     * Runs a statement, recording how long it took, how many rows it returned or affected, and if it failed.
+     *
+     * @param queryMetrics The metrics to record into
+     * @param sql          The SQL of the statement
+     * @param action       Runs the statement
+     * @param rowCount     Gets the amount of rows from the result of the action
+     * @return The result of the action
+     */
+    private static <T> T instrument(QueryMetrics queryMetrics, String sql, SQLSupplier<T> action, ToLongFunction<T> rowCount) throws SQLException {
+        return instrument(queryMetrics, sql, action, rowCount, () -> 0);
+    }
+
+    /**
+     * Runs a statement like {@link #instrument(QueryMetrics, String, SQLSupplier, ToLongFunction)}, not counting time
+     * the action spent on something other than the statement, so a slow Qilletni function invoked per row isn't
+     * recorded or logged as a slow query.
+     *
+     * @param excludedNanos Gets how much of the action's time isn't the statement's, once the action has run
+     */
+    private static <T> T instrument(QueryMetrics queryMetrics, String sql, SQLSupplier<T> action, ToLongFunction<T> rowCount, LongSupplier excludedNanos) throws SQLException {
+        long start = System.nanoTime();
+
+        try {
+            var result = action.get();
+            queryMetrics.record(sql, System.nanoTime() - start - excludedNanos.getAsLong(), rowCount.applyAsLong(result), null);
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            queryMetrics.record(sql, System.nanoTime() - start - excludedNanos.getAsLong(), 0, e);
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SQLSupplier<T> {
+        T get() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SQLFunction<T, R> {
+        R apply(T value) throws SQLException;
+    }
+
+    private EntityType createResult(ErrorType errorType, String... format) {
+        // Invoke the static method Result.errorResult(errorCode, errorMessage)
+        return functionInvoker.invokeFunctionWithResult(errorResultFunction, List.of(typeConverter.convertToQilletniType(errorType.getCode()), typeConverter.convertToQilletniType(errorType.getMessage().formatted((Object[]) format))));
+    }
+
+    private EntityType createResult(ErrorType errorType, QilletniType value, String... format) {
+        // Invoke the static method Result.errorResult(errorCode, errorMessage, value)
+        return functionInvoker.invokeFunctionWithResult(errorResultWithValueFunction, List.of(typeConverter.convertToQilletniType(errorType.getCode()), typeConverter.convertToQilletniType(errorType.getMessage().formatted((Object[]) format)), value));
+    }
+
+    /**
+     * Creates the error result of a failed statement, which is {@link ErrorType#TIMEOUT} if it was cancelled due to a
+     * timeout.
+     */
+    private EntityType createResult(SQLException exception) {
+        if (StatementTimeout.isTimeout(exception)) {
+            return createResult(ErrorType.TIMEOUT, exception.getMessage());
+        }
+
+        return createResult(ErrorType.SQL_EXCEPTION, exception.getMessage());
     }
 
     private EntityType createResult(QilletniType value) {
@@ -361,7 +1939,10 @@ public class ConnectionFunctions {
     enum ErrorType {
         SUCCESS(0, "Success"),
         NO_ROWS_RETURNED(1, "No rows returned"),
+        ROW_LIMIT_EXCEEDED(2, "Result exceeded the limit of %s rows"),
         SQL_EXCEPTION(10, "SQL Exception: %s"),
+        IO_EXCEPTION(11, "IO Exception: %s"),
+        TIMEOUT(98, "Timeout: %s"),
         DISCONNECTED(99, "Database disconnected: %s");
 
         private final int code;
@@ -0,0 +1,285 @@
+package dev.qilletni.lib.postgres;
+
+import dev.qilletni.api.lang.types.FunctionType;
+import dev.qilletni.lib.postgres.cache.ResultCache;
+import dev.qilletni.lib.postgres.cache.TableReferences;
+import dev.qilletni.lib.postgres.metrics.QueryMetrics;
+import dev.qilletni.lib.postgres.notify.NotificationListener;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PooledConnection;
+import dev.qilletni.lib.postgres.replica.ReadOnlyStatements;
+import dev.qilletni.lib.postgres.replica.ReplicaRouter;
+import dev.qilletni.lib.postgres.statement.StatementCache;
+import dev.qilletni.lib.postgres.statement.StatementHandle;
+import dev.qilletni.lib.postgres.upsert.TableColumnTypes;
+import dev.qilletni.lib.postgres.write.WriteBehindBuffer;
+
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The state behind a Qilletni Connection entity: a connection borrowed from a {@link ConnectionPool}, which is given
+ * back to the pool when the entity disconnects.
+ */
+public class ConnectionHandle {
+
+    private final ConnectionPool pool;
+    private final PooledConnection pooledConnection;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private final QueryMetrics queryMetrics;
+    private final ReplicaRouter replicaRouter;
+    private final ResultCache resultCache;
+    private final TableColumnTypes tableColumnTypes;
+    private boolean replicaReads = true;
+    private int resultCacheTtlMillis = -1;
+
+    /**
+     * The tables written to in the open transaction, whose cached results are invalidated once it commits.
+     */
+    private final Set<String> pendingInvalidations = new HashSet<>();
+    private boolean pendingInvalidateAll;
+    private boolean transactionOpen;
+    private int batchSize = StatementHandle.DEFAULT_BATCH_SIZE;
+    private int queryTimeoutMillis;
+
+    /**
+     * The function invoked with the notifications of each listened channel.
+     */
+    private final Map<String, FunctionType> notificationCallbacks = new LinkedHashMap<>();
+    private NotificationListener notificationListener;
+    private WriteBehindBuffer writeBehindBuffer;
+
+    public ConnectionHandle(ConnectionPool pool, PooledConnection pooledConnection, ReplicaRouter replicaRouter, ResultCache resultCache, TableColumnTypes tableColumnTypes) {
+        this.pool = pool;
+        this.pooledConnection = pooledConnection;
+        this.replicaRouter = replicaRouter;
+        this.resultCache = resultCache;
+        this.tableColumnTypes = tableColumnTypes;
+        this.queryMetrics = new QueryMetrics(pool.getQueryMetrics());
+    }
+
+    public Connection connection() {
+        return pooledConnection.connection();
+    }
+
+    public PooledConnection pooledConnection() {
+        return pooledConnection;
+    }
+
+    public StatementCache statementCache() {
+        return pooledConnection.statementCache();
+    }
+
+    public ConnectionPool pool() {
+        return pool;
+    }
+
+    /**
+     * Gets the router of the replicas of this connection's database, which may have no replicas.
+     */
+    public ReplicaRouter replicaRouter() {
+        return replicaRouter;
+    }
+
+    public void setReplicaReads(boolean replicaReads) {
+        this.replicaReads = replicaReads;
+    }
+
+    /**
+     * Checks if a statement may be routed to a replica, which it may if the database has replicas, replica reads
+     * haven't been turned off for this connection, and the statement is read-only. This doesn't check the
+     * connection's transaction, as async statements run outside of it.
+     *
+     * @param sql The SQL of the statement
+     * @return If the statement may run on a replica
+     */
+    public boolean canReadFromReplica(String sql) {
+        return replicaReads && replicaRouter.hasReplicas() && ReadOnlyStatements.isReadOnly(sql);
+    }
+
+    /**
+     * Gets the metrics of the statements run through this handle, which also count towards the pool's metrics.
+     */
+    public QueryMetrics queryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Gets the result cache of this connection's database, which is disabled unless configured.
+     */
+    public ResultCache resultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Gets the cached column types of this connection's database's tables.
+     */
+    public TableColumnTypes tableColumnTypes() {
+        return tableColumnTypes;
+    }
+
+    /**
+     * Gets how long results read on this connection are cached, or 0 if they aren't. Unless set for this connection,
+     * this is the TTL of the database's result cache.
+     */
+    public long getResultCacheTtlMillis() {
+        if (!resultCache.isEnabled()) {
+            return 0;
+        }
+
+        return resultCacheTtlMillis >= 0 ? resultCacheTtlMillis : resultCache.getDefaultTtlMillis();
+    }
+
+    /**
+     * Sets how long results read on this connection are cached.
+     *
+     * @param resultCacheTtlMillis The TTL in milliseconds, 0 to not cache results, or -1 to use the database's TTL
+     */
+    public void setResultCacheTtlMillis(int resultCacheTtlMillis) {
+        this.resultCacheTtlMillis = Math.max(-1, resultCacheTtlMillis);
+    }
+
+    /**
+     * Invalidates the cached results made stale by a statement run on this connection. In a transaction, this waits
+     * until the transaction commits, as other connections can't see the writes before then.
+     *
+     * @param sql The SQL of the statement
+     */
+    public void invalidateResults(String sql) {
+        if (!transactionOpen) {
+            resultCache.invalidateWrites(sql);
+            return;
+        }
+
+        if (!resultCache.isEnabled() || ReadOnlyStatements.isReadOnly(sql)) {
+            return;
+        }
+
+        var tables = TableReferences.writtenTables(sql);
+        if (tables == null) {
+            pendingInvalidateAll = true;
+        } else {
+            pendingInvalidations.addAll(tables);
+        }
+    }
+
+    public void beginTransaction() {
+        transactionOpen = true;
+    }
+
+    /**
+     * Ends the open transaction, invalidating the cached results it made stale if it committed.
+     *
+     * @param committed If the transaction committed, false if it was rolled back
+     */
+    public void endTransaction(boolean committed) {
+        if (committed && pendingInvalidateAll) {
+            resultCache.invalidate(null);
+        } else if (committed && !pendingInvalidations.isEmpty()) {
+            resultCache.invalidate(Set.copyOf(pendingInvalidations));
+        }
+
+        transactionOpen = false;
+        pendingInvalidateAll = false;
+        pendingInvalidations.clear();
+    }
+
+    /**
+     * Gets the amount of rows a statement prepared on this connection batches before sending them as a chunk.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Gets the timeout of statements run on this connection that don't specify their own, or 0 for no timeout.
+     */
+    public int getQueryTimeoutMillis() {
+        return queryTimeoutMillis;
+    }
+
+    public void setQueryTimeoutMillis(int queryTimeoutMillis) {
+        this.queryTimeoutMillis = Math.max(0, queryTimeoutMillis);
+    }
+
+    /**
+     * Called after a rollback, which may have undone the server-side timeout set in the transaction.
+     */
+    public void forgetStatementTimeout() {
+        pooledConnection.forgetStatementTimeout();
+    }
+
+    /**
+     * Gets the listener receiving this connection's notifications, starting it if this is the first time it's needed.
+     * The listener has its own connection, as the borrowed one may be busy with statements for a long time.
+     */
+    public NotificationListener notificationListener() {
+        if (notificationListener == null) {
+            notificationListener = new NotificationListener(pool, NotificationListener.DEFAULT_CAPACITY);
+        }
+
+        return notificationListener;
+    }
+
+    /**
+     * Gets the listener receiving this connection's notifications, or null if nothing has been listened to.
+     */
+    public NotificationListener getNotificationListenerIfStarted() {
+        return notificationListener;
+    }
+
+    public Map<String, FunctionType> notificationCallbacks() {
+        return notificationCallbacks;
+    }
+
+    /**
+     * Gets the buffer updates on this connection are queued in, or null if they run right away.
+     */
+    public WriteBehindBuffer getWriteBehindBuffer() {
+        return writeBehindBuffer;
+    }
+
+    /**
+     * Sets the buffer updates on this connection are queued in, closing the previous one. Its writes must have been
+     * flushed already.
+     *
+     * @param writeBehindBuffer The buffer, or null to run updates right away
+     */
+    public void setWriteBehindBuffer(WriteBehindBuffer writeBehindBuffer) {
+        if (this.writeBehindBuffer != null) {
+            this.writeBehindBuffer.close();
+        }
+
+        this.writeBehindBuffer = writeBehindBuffer;
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * Returns the connection to its pool and stops listening for notifications. After this, the handle must no longer
+     * touch the connection, as it may be borrowed by someone else.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            if (notificationListener != null) {
+                notificationListener.close();
+            }
+
+            if (writeBehindBuffer != null) {
+                writeBehindBuffer.close();
+            }
+
+            pool.release(pooledConnection);
+        }
+    }
+}
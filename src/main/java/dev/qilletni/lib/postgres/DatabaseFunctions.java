@@ -1,51 +1,245 @@
 package dev.qilletni.lib.postgres;
 
 import dev.qilletni.api.lang.types.EntityType;
+import dev.qilletni.api.lang.types.ListType;
+import dev.qilletni.api.lang.types.QilletniType;
 import dev.qilletni.api.lang.types.StringType;
 import dev.qilletni.api.lang.types.conversion.TypeConverter;
 import dev.qilletni.api.lang.types.entity.EntityInitializer;
 import dev.qilletni.api.lang.types.list.ListInitializer;
 import dev.qilletni.api.lib.annotations.NativeOn;
+import dev.qilletni.lib.postgres.cache.ResultCache;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PoolConfig;
+import dev.qilletni.lib.postgres.pool.WarmUp;
+import dev.qilletni.lib.postgres.replica.BalancingMode;
+import dev.qilletni.lib.postgres.replica.ReplicaRouter;
+import dev.qilletni.lib.postgres.upsert.TableColumnTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @NativeOn("Database")
 public class DatabaseFunctions {
-    
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseFunctions.class);
-    
+
+    /**
+     * Pools are shared by every Database entity pointing at the same server with the same credentials. Only a hash of
+     * the password is kept in the key, so the password itself lives no longer than the pool using it.
+     */
+    private static final Map<PoolKey, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The replicas reads are routed to, shared the same way as pools. A database without replicas has an empty router.
+     */
+    private static final Map<PoolKey, ReplicaRouter> REPLICA_ROUTERS = new ConcurrentHashMap<>();
+
+    /**
+     * The caches of query results, shared the same way as pools. Caches are disabled until configured.
+     */
+    private static final Map<PoolKey, ResultCache> RESULT_CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * The column types of tables upserted into, shared the same way as pools.
+     */
+    private static final Map<PoolKey, TableColumnTypes> TABLE_COLUMN_TYPES = new ConcurrentHashMap<>();
+
     private final EntityInitializer entityInitializer;
     private final TypeConverter typeConverter;
     private final ListInitializer listInitializer;
+    private final QueryStatsFactory queryStatsFactory;
 
     public DatabaseFunctions(EntityInitializer entityInitializer, TypeConverter typeConverter, ListInitializer listInitializer) {
         this.entityInitializer = entityInitializer;
         this.typeConverter = typeConverter;
         this.listInitializer = listInitializer;
+        this.queryStatsFactory = new QueryStatsFactory(entityInitializer, listInitializer);
     }
 
     public EntityType createConnection(EntityType entityType) throws SQLException {
-        var url = entityType.getEntityScope().<StringType>lookup("url").getValue().getValue();
-        var username = entityType.getEntityScope().<StringType>lookup("username").getValue().getValue();
-        var password = entityType.getEntityScope().<StringType>lookup("password").getValue().getValue();
-
-        Connection connection;
-        
-        if (username.isBlank() && password.isBlank()) {
-            connection = DriverManager.getConnection(url);
-        } else {
-            connection = DriverManager.getConnection(url, username, password);
+        var pool = getPool(entityType);
+        var pooledConnection = pool.borrow();
+
+        return entityInitializer.initializeEntity("Connection", new ConnectionHandle(pool, pooledConnection, getReplicaRouter(entityType), getResultCache(entityType), getTableColumnTypes(entityType)));
+    }
+
+    public void configurePool(EntityType entityType, int minSize, int maxSize) {
+        var pool = getPool(entityType);
+        var config = pool.getConfig().withSize(minSize, maxSize);
+        pool.reconfigure(config);
+        getReplicaRouter(entityType).reconfigure(config);
+    }
+
+    public void configurePool(EntityType entityType, int minSize, int maxSize, int idleTimeoutMillis, int maxLifetimeMillis, int borrowTimeoutMillis, int maxWaiting) {
+        var pool = getPool(entityType);
+        var config = pool.getConfig().withSize(minSize, maxSize).withTimeouts(idleTimeoutMillis, maxLifetimeMillis, borrowTimeoutMillis, maxWaiting);
+        pool.reconfigure(config);
+        getReplicaRouter(entityType).reconfigure(config);
+    }
+
+    public void addReplica(EntityType entityType, String url) {
+        getReplicaRouter(entityType).addReplica(url, lookupString(entityType, "username"), lookupString(entityType, "password"), getPool(entityType).getConfig());
+    }
+
+    public boolean removeReplica(EntityType entityType, String url) {
+        return getReplicaRouter(entityType).removeReplica(url);
+    }
+
+    public void setReplicaBalancing(EntityType entityType, String mode) {
+        getReplicaRouter(entityType).setBalancingMode(BalancingMode.fromName(mode));
+    }
+
+    public ListType replicaStats(EntityType entityType) {
+        var replicaStats = getReplicaRouter(entityType).getStatistics().stream()
+                .<QilletniType>map(statistics -> entityInitializer.initializeEntity("ReplicaStats", statistics.url(), statistics.healthy(), statistics.outstanding(), statistics.reads(), statistics.failures(), statistics.ejections(), statistics.ewmaMillis()))
+                .toList();
+
+        return listInitializer.createList(replicaStats);
+    }
+
+    public void enableResultCache(EntityType entityType, int maxBytes, int ttlMillis) {
+        enableResultCache(entityType, maxBytes, ttlMillis, (int) ResultCache.DEFAULT_REPLICA_LAG_MILLIS);
+    }
+
+    public void enableResultCache(EntityType entityType, int maxBytes, int ttlMillis, int replicaLagMillis) {
+        var resultCache = getResultCache(entityType);
+        resultCache.setReplicaLagMillis(replicaLagMillis);
+        resultCache.configure(maxBytes, ttlMillis);
+    }
+
+    public void disableResultCache(EntityType entityType) {
+        var resultCache = getResultCache(entityType);
+        resultCache.clear();
+        resultCache.configure(0, 0);
+    }
+
+    public void clearResultCache(EntityType entityType) {
+        getResultCache(entityType).clear();
+    }
+
+    public EntityType resultCacheStats(EntityType entityType) {
+        var statistics = getResultCache(entityType).getStatistics();
+
+        return entityInitializer.initializeEntity("ResultCacheStats", statistics.entries(), statistics.bytes(), statistics.capacityBytes(), statistics.hits(), statistics.misses(), statistics.hitRate(), statistics.evictions(), statistics.expirations(), statistics.invalidations(), statistics.savedMillis());
+    }
+
+    public void setReWriteBatchedInserts(EntityType entityType, boolean enabled) {
+        getPool(entityType).setConnectionProperty("reWriteBatchedInserts", String.valueOf(enabled));
+    }
+
+    public EntityType warmUp(EntityType entityType, List<QilletniType> statements) throws SQLException {
+        return warmUp(entityType, statements, false);
+    }
+
+    public EntityType warmUp(EntityType entityType, List<QilletniType> statements, boolean preloadTypes) throws SQLException {
+        var sqlStatements = statements.stream().map(statement -> String.valueOf(DatabaseTypeUtility.fromQilletniToNativeJava(statement))).toList();
+        var warmUp = new WarmUp(sqlStatements, preloadTypes);
+
+        long start = System.nanoTime();
+        var statistics = getPool(entityType).warmUp(warmUp);
+        int connections = statistics.connections();
+        long opened = statistics.opened();
+
+        for (var replicaStatistics : getReplicaRouter(entityType).warmUp(warmUp)) {
+            connections += replicaStatistics.connections();
+            opened += replicaStatistics.opened();
         }
-        
-        if (connection == null) {
-            LOGGER.warn("Unable to create connection to database!");
+
+        return entityInitializer.initializeEntity("WarmUpStats", connections, opened, statistics.statements(), (System.nanoTime() - start) / 1_000_000D);
+    }
+
+    public EntityType poolStats(EntityType entityType) {
+        var statistics = getPool(entityType).getStatistics();
+
+        return entityInitializer.initializeEntity("PoolStats", statistics.active(), statistics.idle(), statistics.waiting(), statistics.total(), statistics.borrowCount(), statistics.averageBorrowMillis(), statistics.maxBorrowMillis(), statistics.borrowTimeouts(), statistics.created(), statistics.destroyed(),
+                statistics.coldFirstQueries(), statistics.coldFirstQueryMillis(), statistics.warmFirstQueries(), statistics.warmFirstQueryMillis());
+    }
+
+    public EntityType stats(EntityType entityType) {
+        return queryStatsFactory.createQueryStats(getPool(entityType).getQueryMetrics());
+    }
+
+    public void setSlowQueryThreshold(EntityType entityType, int thresholdMillis) {
+        getPool(entityType).getQueryMetrics().setSlowQueryThresholdMillis(thresholdMillis);
+    }
+
+    public void closePool(EntityType entityType) {
+        var key = PoolKey.fromEntity(entityType);
+        var replicaRouter = REPLICA_ROUTERS.remove(key);
+        if (replicaRouter != null) {
+            replicaRouter.close();
+        }
+
+        // Connections of the old pool that are still in use keep the cache and column types they were created with
+        var resultCache = RESULT_CACHES.remove(key);
+        if (resultCache != null) {
+            resultCache.clear();
+        }
+
+        var tableColumnTypes = TABLE_COLUMN_TYPES.remove(key);
+        if (tableColumnTypes != null) {
+            tableColumnTypes.clear();
+        }
+
+        var pool = POOLS.remove(key);
+
+        if (pool == null) {
+            LOGGER.warn("No connection pool is open for this database");
+            return;
         }
-        
-        return entityInitializer.initializeEntity("Connection", connection);
+
+        pool.close();
+    }
+
+    private ConnectionPool getPool(EntityType entityType) {
+        return POOLS.computeIfAbsent(PoolKey.fromEntity(entityType), key -> new ConnectionPool(key.url(), key.username(), lookupString(entityType, "password"), PoolConfig.DEFAULT));
+    }
+
+    private ReplicaRouter getReplicaRouter(EntityType entityType) {
+        return REPLICA_ROUTERS.computeIfAbsent(PoolKey.fromEntity(entityType), key -> new ReplicaRouter());
+    }
+
+    private ResultCache getResultCache(EntityType entityType) {
+        return RESULT_CACHES.computeIfAbsent(PoolKey.fromEntity(entityType), key -> new ResultCache());
+    }
+
+    private TableColumnTypes getTableColumnTypes(EntityType entityType) {
+        return TABLE_COLUMN_TYPES.computeIfAbsent(PoolKey.fromEntity(entityType), key -> new TableColumnTypes());
     }
-    
+
+    private static String lookupString(EntityType entityType, String name) {
+        return entityType.getEntityScope().<StringType>lookup(name).getValue().getValue();
+    }
+
+    /**
+     * What pools and everything shared with them are looked up by.
+     *
+     * @param passwordHash The SHA-256 hash of the password, so the maps holding pools never hold the password itself
+     */
+    private record PoolKey(String url, String username, String passwordHash) {
+
+        static PoolKey fromEntity(EntityType entityType) {
+            return new PoolKey(lookupString(entityType, "url"), lookupString(entityType, "username"), hash(lookupString(entityType, "password")));
+        }
+
+        private static String hash(String password) {
+            try {
+                var digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest);
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform is required to support SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
 }
@@ -4,10 +4,14 @@ import dev.qilletni.api.lang.types.AnyType;
 import dev.qilletni.api.lang.types.BooleanType;
 import dev.qilletni.api.lang.types.DoubleType;
 import dev.qilletni.api.lang.types.IntType;
+import dev.qilletni.api.lang.types.ListType;
 import dev.qilletni.api.lang.types.QilletniType;
 import dev.qilletni.api.lang.types.StringType;
 import dev.qilletni.lib.postgres.exceptions.InvalidPreparedStatementType;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
 public class DatabaseTypeUtility {
 
     public static Object fromQilletniToNativeJava(QilletniType qilletniType) {
@@ -25,5 +29,35 @@ public class DatabaseTypeUtility {
             default -> throw new InvalidPreparedStatementType("Invalid type for PreparedStatement: %s".formatted(qilletniType.getTypeClass().getTypeName()));
         };
     }
+
+    /**
+     * Converts a Qilletni value to a statement parameter. This is the same as
+     * {@link #fromQilletniToNativeJava(QilletniType)}, except lists are converted to an {@link ArrayParameter}.
+     *
+     * @param qilletniType The value to convert
+     * @return The parameter, to be bound through {@link #bindParameter(PreparedStatement, int, Object)}
+     */
+    public static Object fromQilletniToParameter(QilletniType qilletniType) {
+        if (qilletniType instanceof ListType listType) {
+            return ArrayParameter.fromList(listType);
+        }
+
+        return fromQilletniToNativeJava(qilletniType);
+    }
+
+    /**
+     * Binds a parameter converted by {@link #fromQilletniToParameter(QilletniType)} to a statement.
+     *
+     * @param statement The statement to bind to
+     * @param index     The 1-indexed parameter
+     * @param parameter The converted parameter
+     */
+    public static void bindParameter(PreparedStatement statement, int index, Object parameter) throws SQLException {
+        if (parameter instanceof ArrayParameter arrayParameter) {
+            arrayParameter.bind(statement, index);
+        } else {
+            statement.setObject(index, parameter);
+        }
+    }
     
 }
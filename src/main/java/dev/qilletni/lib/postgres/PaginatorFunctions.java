@@ -0,0 +1,35 @@
+package dev.qilletni.lib.postgres;
+
+import dev.qilletni.api.lang.types.EntityType;
+import dev.qilletni.api.lang.types.JavaType;
+import dev.qilletni.api.lib.annotations.BeforeAnyInvocation;
+import dev.qilletni.api.lib.annotations.NativeOn;
+import dev.qilletni.lib.postgres.pagination.KeysetPaginator;
+
+@NativeOn("Paginator")
+public class PaginatorFunctions {
+
+    private KeysetPaginator paginator;
+
+    @BeforeAnyInvocation
+    public void setupPaginator(EntityType entityType) {
+        paginator = entityType.getEntityScope().<JavaType>lookup("_paginator").getValue().getReference(KeysetPaginator.class);
+    }
+
+    public EntityType nextPage(EntityType entityType) {
+        return paginator.nextPage();
+    }
+
+    public boolean hasNextPage(EntityType entityType) {
+        return paginator.hasNextPage();
+    }
+
+    public int pageCount(EntityType entityType) {
+        return paginator.getPages();
+    }
+
+    public void reset(EntityType entityType) {
+        paginator.reset();
+    }
+
+}
@@ -5,32 +5,70 @@ import dev.qilletni.api.lang.types.JavaType;
 import dev.qilletni.api.lang.types.QilletniType;
 import dev.qilletni.api.lib.annotations.BeforeAnyInvocation;
 import dev.qilletni.api.lib.annotations.NativeOn;
+import dev.qilletni.lib.postgres.exceptions.DatabaseException;
+import dev.qilletni.lib.postgres.exceptions.InvalidPreparedStatementType;
+import dev.qilletni.lib.postgres.statement.StatementHandle;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.List;
 
 @NativeOn("PreparedStatement")
 public class PreparedStatementFunctions {
 
     private PreparedStatement preparedStatement;
+    private StatementHandle statementHandle;
 
     @BeforeAnyInvocation
     public void setupPreparedStatement(EntityType entityType) {
         preparedStatement = entityType.getEntityScope().<JavaType>lookup("_preparedStatement").getValue().getReference(PreparedStatement.class);
+        statementHandle = entityType.getEntityScope().<JavaType>lookup("_statementHandle").getValue().getReference(StatementHandle.class);
     }
     
     public boolean setParam(EntityType entityType, int index, QilletniType value) {
         try {
-            preparedStatement.setObject(index, DatabaseTypeUtility.fromQilletniToNativeJava(value));
+            statementHandle.verifyOpen();
+
+            var parameter = DatabaseTypeUtility.fromQilletniToParameter(value);
+            DatabaseTypeUtility.bindParameter(preparedStatement, index, parameter);
+            statementHandle.rememberParameter(index, parameter);
             return true;
-        } catch (SQLException e) {
+        } catch (SQLException | InvalidPreparedStatementType | DatabaseException e) {
             return false;
         }
     }
     
+    public boolean addBatch(EntityType entityType) {
+        try {
+            statementHandle.verifyOpen();
+
+            statementHandle.addBatch();
+            return true;
+        } catch (SQLException | DatabaseException e) {
+            return false;
+        }
+    }
+
+    public boolean addBatch(EntityType entityType, List<QilletniType> paramList) {
+        try {
+            statementHandle.verifyOpen();
+
+            for (int i = 0; i < paramList.size(); i++) {
+                var parameter = DatabaseTypeUtility.fromQilletniToParameter(paramList.get(i));
+                DatabaseTypeUtility.bindParameter(preparedStatement, i + 1, parameter);
+                statementHandle.rememberParameter(i + 1, parameter);
+            }
+
+            statementHandle.addBatch();
+            return true;
+        } catch (SQLException | InvalidPreparedStatementType | DatabaseException e) {
+            return false;
+        }
+    }
+
     public boolean close(EntityType entityType) {
         try {
-            preparedStatement.close();
+            statementHandle.close();
             return true;
         } catch (SQLException e) {
             return false;
@@ -0,0 +1,27 @@
+package dev.qilletni.lib.postgres;
+
+import dev.qilletni.api.lang.types.EntityType;
+import dev.qilletni.api.lang.types.JavaType;
+import dev.qilletni.api.lib.annotations.BeforeAnyInvocation;
+import dev.qilletni.api.lib.annotations.NativeOn;
+import dev.qilletni.lib.postgres.async.AsyncQuery;
+
+@NativeOn("QueryFuture")
+public class QueryFutureFunctions {
+
+    private AsyncQuery<?> asyncQuery;
+
+    @BeforeAnyInvocation
+    public void setupQueryFuture(EntityType entityType) {
+        asyncQuery = entityType.getEntityScope().<JavaType>lookup("_future").getValue().getReference(AsyncQuery.class);
+    }
+
+    public EntityType await(EntityType entityType) {
+        return asyncQuery.await();
+    }
+
+    public boolean isDone(EntityType entityType) {
+        return asyncQuery.isDone();
+    }
+
+}
@@ -1,5 +1,7 @@
 package dev.qilletni.lib.postgres;
 
+import dev.qilletni.lib.postgres.statement.StatementTimeout;
+
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -7,18 +9,16 @@ import java.sql.Statement;
 /**
  * An object to wrap both a {@link ResultSet} and optionally (if not a prepared statement) a {@link Statement} to close
  * them both at once.
- * 
+ *
  * @param resultSet The result set
  * @param statement The statement, if any
+ * @param timeout   The timeout of the query, which is stopped when this is closed
  */
-public record QueryResult(ResultSet resultSet, Statement statement) implements AutoCloseable {
-    
-    public QueryResult(ResultSet resultSet) {
-        this(resultSet, null);
-    }
-    
+public record QueryResult(ResultSet resultSet, Statement statement, StatementTimeout timeout) implements AutoCloseable {
+
     @Override
     public void close() throws SQLException {
+        timeout.close();
         if (resultSet != null) resultSet.close();
         if (statement != null) statement.close();
     }
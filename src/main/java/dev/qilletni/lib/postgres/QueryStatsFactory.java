@@ -0,0 +1,34 @@
+package dev.qilletni.lib.postgres;
+
+import dev.qilletni.api.lang.types.EntityType;
+import dev.qilletni.api.lang.types.QilletniType;
+import dev.qilletni.api.lang.types.entity.EntityInitializer;
+import dev.qilletni.api.lang.types.list.ListInitializer;
+import dev.qilletni.lib.postgres.metrics.QueryMetrics;
+import dev.qilletni.lib.postgres.metrics.StatementStatistics;
+
+/**
+ * Creates QueryStats entities from {@link QueryMetrics}, shared by the Connection and Database stats functions.
+ */
+public class QueryStatsFactory {
+
+    private final EntityInitializer entityInitializer;
+    private final ListInitializer listInitializer;
+
+    public QueryStatsFactory(EntityInitializer entityInitializer, ListInitializer listInitializer) {
+        this.entityInitializer = entityInitializer;
+        this.listInitializer = listInitializer;
+    }
+
+    public EntityType createQueryStats(QueryMetrics queryMetrics) {
+        var statements = queryMetrics.getStatementStatistics().stream().<QilletniType>map(this::createStatementStats).toList();
+
+        return entityInitializer.initializeEntity("QueryStats", createStatementStats(queryMetrics.getTotalStatistics()), listInitializer.createList(statements));
+    }
+
+    private EntityType createStatementStats(StatementStatistics statistics) {
+        var latency = statistics.latency();
+
+        return entityInitializer.initializeEntity("StatementStats", statistics.sql(), latency.count(), statistics.errors(), statistics.timeouts(), statistics.rows(), latency.totalMillis(), latency.meanMillis(), latency.p50Millis(), latency.p95Millis(), latency.p99Millis(), latency.maxMillis());
+    }
+}
@@ -3,29 +3,70 @@ package dev.qilletni.lib.postgres;
 import dev.qilletni.api.lang.types.EntityType;
 import dev.qilletni.api.lang.types.IntType;
 import dev.qilletni.api.lang.types.JavaType;
+import dev.qilletni.api.lang.types.ListType;
 import dev.qilletni.api.lang.types.QilletniType;
 import dev.qilletni.api.lang.types.StringType;
+import dev.qilletni.api.lang.types.list.ListInitializer;
 import dev.qilletni.api.lib.annotations.BeforeAnyInvocation;
 import dev.qilletni.api.lib.annotations.NativeOn;
+import dev.qilletni.lib.postgres.blob.BlobTransfer;
+import dev.qilletni.lib.postgres.decode.ColumnLookup;
 import dev.qilletni.lib.postgres.exceptions.DatabaseException;
+import dev.qilletni.lib.postgres.exceptions.InvalidRowCountException;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.WeakHashMap;
 
 @NativeOn("ResultSet")
 public class ResultSetFunctions {
-    
+
+    private final ListInitializer listInitializer;
+
+    /**
+     * Column lookups of every open result set, built once from its ResultMetadata and driver metadata instead of
+     * resolving column names and types through the driver for every value.
+     */
+    private final Map<ResultSet, ColumnLookup> columnLookups = new WeakHashMap<>();
+
     private ResultSet resultSet;
     private Statement statement;
-    
+    private EntityType resultSetEntity;
+
+    public ResultSetFunctions(ListInitializer listInitializer) {
+        this.listInitializer = listInitializer;
+    }
+
     @BeforeAnyInvocation
     public void setupResultSet(EntityType entityType) {
         this.resultSet = entityType.getEntityScope().<JavaType>lookup("_resultSet").getValue().getReference(ResultSet.class);
         this.statement = (Statement) entityType.getEntityScope().<JavaType>lookup("_statement").getValue().getReference(Optional.class).orElse(null);
+        this.resultSetEntity = entityType;
     }
-    
+
+    private ColumnLookup getColumnLookup() {
+        return columnLookups.computeIfAbsent(resultSet, ignored -> {
+            var metadata = resultSetEntity.getEntityScope().<EntityType>lookup("metadata").getValue();
+            var columnLabels = metadata.getEntityScope().<ListType>lookup("columnLabels").getValue().getItems().stream()
+                    .map(label -> label instanceof StringType stringType ? stringType.getValue() : "")
+                    .toList();
+
+            try {
+                return ColumnLookup.create(resultSet, columnLabels);
+            } catch (SQLException e) {
+                throw new DatabaseException(e);
+            }
+        });
+    }
+
     public boolean hasNext(EntityType entityType) {
         try {
             return resultSet.next();
@@ -33,13 +74,17 @@ public class ResultSetFunctions {
             return false;
         }
     }
-    
+
     public Object getValue(EntityType entityType, QilletniType column) {
         try {
             if (column instanceof StringType columnName) {
-                return resultSet.getObject(columnName.getValue());
+                var columnLookup = getColumnLookup();
+                int columnIndex = columnLookup.indexOf(columnName.getValue());
+
+                // Unknown names go through the driver, so the error matches what it would normally be
+                return columnIndex == -1 ? resultSet.getObject(columnName.getValue()) : columnLookup.rowDecoder().decode(resultSet, columnIndex);
             } else if (column instanceof IntType columnIndex) {
-                return resultSet.getObject(((int) columnIndex.getValue()) + 1);
+                return getColumnLookup().rowDecoder().decode(resultSet, ((int) columnIndex.getValue()) + 1);
             }
 
             return null;
@@ -47,11 +92,81 @@ public class ResultSetFunctions {
             throw new DatabaseException(e);
         }
     }
-    
+
+    /**
+     * Writes a column of the current row into a file through a fixed-size buffer, see {@link BlobTransfer}.
+     *
+     * @param column The label or 0-indexed position of the column
+     * @param path   The file to write, which is replaced if it exists
+     * @return The amount of bytes written, or -1 if the value is null and no file was written
+     */
+    public long streamColumnToFile(EntityType entityType, QilletniType column, String path) {
+        try {
+            int columnIndex;
+            if (column instanceof StringType columnName) {
+                columnIndex = getColumnLookup().indexOf(columnName.getValue());
+
+                if (columnIndex == -1) {
+                    // Unknown names go through the driver, so the error matches what it would normally be
+                    columnIndex = resultSet.findColumn(columnName.getValue());
+                }
+            } else if (column instanceof IntType columnPosition) {
+                columnIndex = ((int) columnPosition.getValue()) + 1;
+            } else {
+                return -1;
+            }
+
+            var input = resultSet.getBinaryStream(columnIndex);
+            if (input == null) {
+                return -1;
+            }
+
+            return BlobTransfer.streamToFile(input, Path.of(path));
+        } catch (SQLException | IOException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    public ListType nextRow(EntityType entityType) {
+        try {
+            if (!resultSet.next()) {
+                return listInitializer.createListFromJava(Collections.emptyList());
+            }
+
+            return listInitializer.createListFromJava(readRow());
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    public ListType nextBatch(EntityType entityType, int count) {
+        if (count < 1) {
+            // An empty list would look like the rows ran out
+            throw new InvalidRowCountException("The amount of rows to get must be at least 1, got %d".formatted(count));
+        }
+
+        try {
+            var rows = new ArrayList<QilletniType>(Math.min(count, 1024));
+
+            while (rows.size() < count && resultSet.next()) {
+                rows.add(listInitializer.createListFromJava(readRow()));
+            }
+
+            return listInitializer.createList(rows);
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    private List<Object> readRow() throws SQLException {
+        return getColumnLookup().rowDecoder().decodeRow(resultSet);
+    }
+
     public void close(EntityType entityType) {
         try {
+            columnLookups.remove(resultSet);
             resultSet.close();
-            
+
             if (statement != null) {
                 statement.close();
             }
@@ -59,5 +174,5 @@ public class ResultSetFunctions {
             throw new DatabaseException(e);
         }
     }
-    
+
 }
@@ -0,0 +1,82 @@
+package dev.qilletni.lib.postgres.async;
+
+import dev.qilletni.api.lang.types.EntityType;
+
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * The state behind a Qilletni QueryFuture entity. The database work runs on another thread and produces plain Java
+ * values, which are only turned into Qilletni values by {@link #await()} on the interpreter's thread.
+ *
+ * @param <T> The type of the value produced by the database work
+ */
+public class AsyncQuery<T> {
+
+    private final CompletableFuture<T> future;
+    private final ResultConverter<T> converter;
+    private final Function<SQLException, EntityType> errorConverter;
+    private EntityType result;
+
+    /**
+     * Creates an async query.
+     *
+     * @param future         The future of the database work
+     * @param converter      Creates the Result entity from the produced value
+     * @param errorConverter Creates the Result entity if the work failed
+     */
+    public AsyncQuery(CompletableFuture<T> future, ResultConverter<T> converter, Function<SQLException, EntityType> errorConverter) {
+        this.future = future;
+        this.converter = converter;
+        this.errorConverter = errorConverter;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Blocks until the query has finished, and gets its Result. Repeated calls return the same Result.
+     *
+     * @return The Result entity of the query
+     */
+    public synchronized EntityType await() {
+        if (result == null) {
+            result = createResult();
+        }
+
+        return result;
+    }
+
+    private EntityType createResult() {
+        T value;
+
+        try {
+            value = future.join();
+        } catch (CancellationException e) {
+            return errorConverter.apply(new SQLException("Query was cancelled", e));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                return errorConverter.apply(sqlException);
+            } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw e;
+        }
+
+        try {
+            return converter.convert(value);
+        } catch (SQLException e) {
+            return errorConverter.apply(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResultConverter<T> {
+        EntityType convert(T value) throws SQLException;
+    }
+}
@@ -0,0 +1,201 @@
+package dev.qilletni.lib.postgres.blob;
+
+import org.postgresql.PGConnection;
+import org.postgresql.largeobject.LargeObject;
+import org.postgresql.largeobject.LargeObjectManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Copies binary values between the database and local files through a fixed-size buffer, so a value is never held in
+ * memory whole on this side, no matter how large it is.
+ * <p>
+ * Large objects are read and written in {@link #BUFFER_SIZE} chunks through pgjdbc's {@link LargeObjectManager}. A
+ * bytea value is streamed from {@link java.sql.ResultSet#getBinaryStream(int)}, although the driver itself still
+ * receives the whole value with its row, so reading such rows with a small fetch size keeps that bounded.
+ * <p>
+ * Like {@link dev.qilletni.lib.postgres.copy.CopyExporter}, files are written under a temporary name next to their
+ * destination and only moved into place once complete.
+ */
+public class BlobTransfer {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private BlobTransfer() {}
+
+    /**
+     * Writes a stream into a file, replacing the file if it exists.
+     *
+     * @param input The stream to read until it ends, which is closed afterwards
+     * @param path  The file to write
+     * @return The amount of bytes written
+     */
+    public static long streamToFile(InputStream input, Path path) throws SQLException, IOException {
+        try (input) {
+            return writeFile(path, buffer -> input.read(buffer, 0, buffer.length));
+        }
+    }
+
+    /**
+     * Reads a large object into a file, replacing the file if it exists. Outside a transaction, the object is read in
+     * one of its own, as large objects can only be opened in a transaction.
+     *
+     * @param connection The connection to read through
+     * @param oid        The OID of the large object
+     * @param path       The file to write
+     * @return The amount of bytes written
+     */
+    public static long readLargeObject(Connection connection, long oid, Path path) throws SQLException, IOException {
+        return inTransaction(connection, () -> {
+            var largeObject = getLargeObjectManager(connection).open(oid, LargeObjectManager.READ);
+
+            try {
+                return writeFile(path, buffer -> {
+                    int read = largeObject.read(buffer, 0, buffer.length);
+                    return read == 0 ? -1 : read;
+                });
+            } finally {
+                largeObject.close();
+            }
+        });
+    }
+
+    /**
+     * Creates a large object holding the contents of a file. Outside a transaction, the object is created in one of its
+     * own, so it doesn't exist if writing it fails.
+     *
+     * @param connection The connection to write through
+     * @param path       The file to read
+     * @return The OID of the created large object
+     */
+    public static long writeLargeObject(Connection connection, Path path) throws SQLException, IOException {
+        return inTransaction(connection, () -> {
+            var largeObjectManager = getLargeObjectManager(connection);
+            long oid = largeObjectManager.createLO(LargeObjectManager.READWRITE);
+            LargeObject largeObject = largeObjectManager.open(oid, LargeObjectManager.WRITE);
+
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                var bytes = new byte[BUFFER_SIZE];
+                var buffer = ByteBuffer.wrap(bytes);
+
+                while (channel.read(buffer) != -1) {
+                    largeObject.write(bytes, 0, buffer.position());
+                    buffer.clear();
+                }
+            } finally {
+                largeObject.close();
+            }
+
+            return oid;
+        });
+    }
+
+    /**
+     * Writes chunks into a temporary file, and moves it over the destination once every chunk is written.
+     */
+    private static long writeFile(Path path, ChunkReader chunkReader) throws SQLException, IOException {
+        var absolutePath = path.toAbsolutePath();
+        var temporaryPath = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".part");
+        boolean success = false;
+
+        try {
+            long bytes = 0;
+
+            try (var channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var chunk = new byte[BUFFER_SIZE];
+                int read;
+
+                while ((read = chunkReader.read(chunk)) != -1) {
+                    var buffer = ByteBuffer.wrap(chunk, 0, read);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+
+                    bytes += read;
+                }
+
+                channel.force(false);
+            }
+
+            move(temporaryPath, absolutePath);
+            success = true;
+            return bytes;
+        } finally {
+            if (!success) {
+                Files.deleteIfExists(temporaryPath);
+            }
+        }
+    }
+
+    private static <T> T inTransaction(Connection connection, TransferAction<T> action) throws SQLException, IOException {
+        boolean ownTransaction = connection.getAutoCommit();
+        if (!ownTransaction) {
+            return action.run();
+        }
+
+        connection.setAutoCommit(false);
+        T result;
+
+        try {
+            result = action.run();
+            connection.commit();
+        } catch (Throwable e) {
+            // Cleaning up may fail too, such as if the connection broke, which mustn't hide why the transfer failed
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException autoCommitFailure) {
+                e.addSuppressed(autoCommitFailure);
+            }
+
+            throw e;
+        }
+
+        connection.setAutoCommit(true);
+        return result;
+    }
+
+    private static LargeObjectManager getLargeObjectManager(Connection connection) throws SQLException {
+        return connection.unwrap(PGConnection.class).getLargeObjectAPI();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the next chunk of a value into a buffer.
+     */
+    @FunctionalInterface
+    private interface ChunkReader {
+
+        /**
+         * @return The amount of bytes read, or -1 once the value has ended
+         */
+        int read(byte[] buffer) throws SQLException, IOException;
+    }
+
+    @FunctionalInterface
+    private interface TransferAction<T> {
+        T run() throws SQLException, IOException;
+    }
+}
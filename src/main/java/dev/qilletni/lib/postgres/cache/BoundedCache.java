@@ -0,0 +1,63 @@
+package dev.qilletni.lib.postgres.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe map of values derived from SQL strings and the like, which is simply emptied once it holds
+ * {@code maxSize} entries. Scripts usually repeat the same few statements, so this keeps them cheap without tracking
+ * recency, while scripts building SQL from values can't grow it forever.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize The number of entries after which the cache is emptied
+     */
+    public BoundedCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive, got " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets a cached value.
+     *
+     * @param key The key of the value
+     * @return The value, or null if it isn't cached
+     */
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches a value, first emptying the cache if it's full.
+     *
+     * @param key   The key of the value
+     * @param value The value, which may not be null
+     */
+    public void put(K key, V value) {
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            entries.clear();
+        }
+
+        entries.put(key, value);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
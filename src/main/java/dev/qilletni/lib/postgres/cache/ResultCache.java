@@ -0,0 +1,310 @@
+package dev.qilletni.lib.postgres.cache;
+
+import dev.qilletni.lib.postgres.replica.ReadOnlyStatements;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of query results shared by the connections of a database, bounded by the estimated memory of the results
+ * and evicting the least recently used first. Each result expires after its own TTL, and is invalidated early when a
+ * table it read is written to.
+ * <p>
+ * Results are cached as plain Java rows, so a hit still creates new Qilletni values but skips the round trip.
+ * <p>
+ * A replica may not have replayed a write yet when it is invalidated here, so a replica read of a table written to
+ * within the replica lag window isn't cached. It would otherwise keep the stale rows for a whole TTL.
+ */
+public class ResultCache {
+
+    /**
+     * The estimated size of an entry itself, on top of its SQL, parameters and rows.
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    public static final long DEFAULT_REPLICA_LAG_MILLIS = 5000;
+
+    private final LinkedHashMap<ResultCacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * The keys of the entries that read each table, so a write only touches the entries it invalidates.
+     */
+    private final Map<String, Set<ResultCacheKey>> keysByTable = new HashMap<>();
+
+    /**
+     * When each table was last invalidated, in {@link System#nanoTime()}, forgotten once the replica lag window passed.
+     */
+    private final Map<String, Long> invalidatedAtNanos = new HashMap<>();
+
+    private long capacityBytes;
+    private long defaultTtlMillis;
+    private long replicaLagNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REPLICA_LAG_MILLIS);
+    private long bytes;
+
+    /**
+     * When every result was last invalidated, by a write to unknown tables.
+     */
+    private long invalidatedAllAtNanos;
+    private boolean invalidatedAll;
+
+    /**
+     * Bumped by every invalidation, so a result read before a write can't be cached after it.
+     */
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    private long savedNanos;
+
+    /**
+     * Enables the cache, or changes its settings. Entries over the new capacity are evicted right away.
+     *
+     * @param capacityBytes    The most memory the cached results may use, or 0 to disable the cache
+     * @param defaultTtlMillis How long results are cached, unless a connection sets its own TTL
+     */
+    public synchronized void configure(long capacityBytes, long defaultTtlMillis) {
+        this.capacityBytes = Math.max(0, capacityBytes);
+        this.defaultTtlMillis = Math.max(0, defaultTtlMillis);
+
+        evictOverflow();
+    }
+
+    /**
+     * Sets how long after a table is written to that reads of it from a replica aren't cached. This should cover how
+     * far the replicas may lag behind the primary.
+     *
+     * @param replicaLagMillis The window in milliseconds, or 0 to cache every replica read
+     */
+    public synchronized void setReplicaLagMillis(long replicaLagMillis) {
+        this.replicaLagNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, replicaLagMillis));
+    }
+
+    public synchronized boolean isEnabled() {
+        return capacityBytes > 0;
+    }
+
+    public synchronized long getDefaultTtlMillis() {
+        return defaultTtlMillis;
+    }
+
+    /**
+     * Gets the current generation, to be passed to {@link #put} once the result is read.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Gets a cached result, counting a hit or a miss.
+     *
+     * @param key The key of the result
+     * @return The cached rows, or null if the result isn't cached or has expired
+     */
+    public synchronized List<List<Object>> get(ResultCacheKey key) {
+        var entry = entries.get(key);
+
+        if (entry != null && entry.expiresAtNanos - System.nanoTime() <= 0) {
+            remove(key, entry);
+            expirations++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        savedNanos += entry.loadNanos;
+        return entry.rows;
+    }
+
+    /**
+     * Caches a result. Nothing is cached if an invalidation happened since the result's query started, as the result
+     * may already be stale, or if the result alone is larger than the cache. Neither is a replica read of a table
+     * invalidated within the replica lag window.
+     *
+     * @param key         The key of the result
+     * @param rows        The rows of the result, which must not be modified afterwards
+     * @param tables      The tables the query read
+     * @param ttlMillis   How long the result is cached
+     * @param loadNanos   How long the query took
+     * @param generation  The {@link #generation()} from before the query started
+     * @param fromReplica If the query may have run on a replica
+     */
+    public synchronized void put(ResultCacheKey key, List<List<Object>> rows, Set<String> tables, long ttlMillis, long loadNanos, long generation, boolean fromReplica) {
+        if (capacityBytes == 0 || ttlMillis <= 0 || generation != this.generation) {
+            return;
+        }
+
+        if (fromReplica && mayLag(tables)) {
+            return;
+        }
+
+        long weight = ENTRY_OVERHEAD_BYTES + estimateBytes(key.sql()) + estimateBytes(key.parameters()) + estimateBytes(rows);
+        if (weight > capacityBytes) {
+            return;
+        }
+
+        var previous = entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+
+        entries.put(key, new Entry(rows, tables, weight, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis), loadNanos));
+        bytes += weight;
+        tables.forEach(table -> keysByTable.computeIfAbsent(table, ignored -> new HashSet<>()).add(key));
+
+        evictOverflow();
+    }
+
+    /**
+     * Checks if a replica may not have replayed the last write to any of the tables yet.
+     */
+    private boolean mayLag(Set<String> tables) {
+        long now = System.nanoTime();
+        if (invalidatedAll && now - invalidatedAllAtNanos < replicaLagNanos) {
+            return true;
+        }
+
+        for (var table : tables) {
+            var invalidatedAt = invalidatedAtNanos.get(table);
+            if (invalidatedAt != null && now - invalidatedAt < replicaLagNanos) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Drops the results made stale by a statement that has run. Read-only statements drop nothing, and statements
+     * writing to unknown tables drop everything.
+     *
+     * @param sql The SQL of the statement
+     */
+    public void invalidateWrites(String sql) {
+        if (isEnabled() && !ReadOnlyStatements.isReadOnly(sql)) {
+            invalidate(TableReferences.writtenTables(sql));
+        }
+    }
+
+    /**
+     * Drops every result that read any of the given tables.
+     *
+     * @param tables The tables written to, or null to drop every result
+     */
+    public synchronized void invalidate(Set<String> tables) {
+        generation++;
+
+        long now = System.nanoTime();
+        invalidatedAtNanos.values().removeIf(invalidatedAt -> now - invalidatedAt >= replicaLagNanos);
+
+        if (tables == null) {
+            invalidatedAll = true;
+            invalidatedAllAtNanos = now;
+            invalidations += entries.size();
+            clearEntries();
+            return;
+        }
+
+        for (var table : tables) {
+            invalidatedAtNanos.put(table, now);
+
+            var keys = keysByTable.get(table);
+            if (keys == null) {
+                continue;
+            }
+
+            for (var key : List.copyOf(keys)) {
+                var entry = entries.get(key);
+                if (entry != null) {
+                    remove(key, entry);
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every cached result, without counting them as invalidated.
+     */
+    public synchronized void clear() {
+        generation++;
+        clearEntries();
+    }
+
+    private void clearEntries() {
+        entries.clear();
+        keysByTable.clear();
+        bytes = 0;
+    }
+
+    private void remove(ResultCacheKey key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.weight;
+
+        for (var table : entry.tables) {
+            var keys = keysByTable.get(table);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByTable.remove(table);
+            }
+        }
+    }
+
+    private void evictOverflow() {
+        while (bytes > capacityBytes && !entries.isEmpty()) {
+            // Iteration goes from the least recently used entry
+            var eldest = entries.entrySet().iterator().next();
+            remove(eldest.getKey(), eldest.getValue());
+            evictions++;
+        }
+    }
+
+    public synchronized ResultCacheStatistics getStatistics() {
+        return new ResultCacheStatistics(entries.size(), bytes, capacityBytes, hits, misses, evictions, expirations, invalidations, savedNanos / 1_000_000D);
+    }
+
+    /**
+     * Roughly estimates the heap used by a decoded value, assuming compressed references. Strings are counted as two
+     * bytes per character, even though Latin-1 strings only take one.
+     */
+    static long estimateBytes(Object value) {
+        return switch (value) {
+            case null -> 0;
+            case String string -> 40 + 2L * string.length();
+            case Boolean ignored -> 0;
+            case Integer ignored -> 16;
+            case Long ignored -> 24;
+            case Double ignored -> 24;
+            case byte[] array -> 16 + array.length;
+            case List<?> list -> {
+                long size = 40 + 4L * list.size();
+                for (var element : list) {
+                    size += estimateBytes(element);
+                }
+
+                yield size;
+            }
+            case Object[] array -> {
+                long size = 16 + 4L * array.length;
+                for (var element : array) {
+                    size += estimateBytes(element);
+                }
+
+                yield size;
+            }
+            default -> 64;
+        };
+    }
+
+    private record Entry(List<List<Object>> rows, Set<String> tables, long weight, long expiresAtNanos, long loadNanos) {}
+}
@@ -0,0 +1,13 @@
+package dev.qilletni.lib.postgres.cache;
+
+import java.util.List;
+
+/**
+ * What a cached result is looked up by.
+ *
+ * @param sql        The SQL of the query
+ * @param parameters The values bound to the query's parameters, in order. Values may be null
+ * @param singleRow  If only the first row of the query was read, as by fetchOne()
+ */
+public record ResultCacheKey(String sql, List<Object> parameters, boolean singleRow) {
+}
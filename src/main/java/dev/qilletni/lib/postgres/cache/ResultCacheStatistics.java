@@ -0,0 +1,25 @@
+package dev.qilletni.lib.postgres.cache;
+
+/**
+ * A point-in-time snapshot of a {@link ResultCache}.
+ *
+ * @param entries       Results currently cached
+ * @param bytes         The estimated memory used by the cached results
+ * @param capacityBytes The most memory the cached results may use, or 0 if the cache is disabled
+ * @param hits          How many reads were answered from the cache
+ * @param misses        How many reads had to run their query
+ * @param evictions     How many results were dropped to stay within the capacity
+ * @param expirations   How many results were dropped for outliving their TTL
+ * @param invalidations How many results were dropped because a table they read was written to
+ * @param savedMillis   The time the queries answered from the cache took when they were last run
+ */
+public record ResultCacheStatistics(int entries, long bytes, long capacityBytes, long hits, long misses, long evictions, long expirations, long invalidations, double savedMillis) {
+
+    /**
+     * Gets the share of reads answered from the cache, between 0 and 1.
+     */
+    public double hitRate() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : hits / (double) reads;
+    }
+}
@@ -0,0 +1,87 @@
+package dev.qilletni.lib.postgres.cache;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The metadata built for the results of each query, kept by SQL so running the same query again reuses it instead of
+ * building it again. Cached metadata is checked against every result's column count, labels and types, and is rebuilt
+ * if they no longer match, such as after a table a {@code SELECT *} reads was altered.
+ * <p>
+ * Like the other caches built on {@link BoundedCache}, this is emptied once full.
+ *
+ * @param <T> The type of the built metadata
+ */
+public class ResultMetadataCache<T> {
+
+    public static final int MAX_CACHED = 1024;
+
+    private final BoundedCache<String, Entry<T>> entries = new BoundedCache<>(MAX_CACHED);
+
+    /**
+     * Gets the metadata of a query's result, building it if it isn't cached or the result changed shape.
+     *
+     * @param sql      The SQL of the query
+     * @param metaData The driver's metadata of the result
+     * @param factory  Builds the metadata from the result's column names and labels
+     * @return The metadata
+     */
+    public T get(String sql, ResultSetMetaData metaData, MetadataFactory<T> factory) throws SQLException {
+        var entry = entries.get(sql);
+        if (entry != null && entry.fits(metaData)) {
+            return entry.metadata();
+        }
+
+        int columnCount = metaData.getColumnCount();
+        var columnNames = new ArrayList<String>(columnCount);
+        var columnLabels = new String[columnCount];
+        var columnTypes = new int[columnCount];
+
+        for (int i = 0; i < columnCount; i++) {
+            columnNames.add(metaData.getColumnName(i + 1));
+            columnLabels[i] = metaData.getColumnLabel(i + 1);
+            columnTypes[i] = metaData.getColumnType(i + 1);
+        }
+
+        var metadata = factory.create(columnNames, Arrays.asList(columnLabels));
+        entries.put(sql, new Entry<>(columnLabels, columnTypes, metadata));
+        return metadata;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private record Entry<T>(String[] columnLabels, int[] columnTypes, T metadata) {
+
+        boolean fits(ResultSetMetaData metaData) throws SQLException {
+            if (metaData.getColumnCount() != columnLabels.length) {
+                return false;
+            }
+
+            for (int i = 0; i < columnLabels.length; i++) {
+                if (metaData.getColumnType(i + 1) != columnTypes[i] || !Objects.equals(metaData.getColumnLabel(i + 1), columnLabels[i])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Builds the metadata of a result.
+     */
+    @FunctionalInterface
+    public interface MetadataFactory<T> {
+        T create(List<String> columnNames, List<String> columnLabels);
+    }
+}
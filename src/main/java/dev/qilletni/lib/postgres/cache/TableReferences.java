@@ -0,0 +1,81 @@
+package dev.qilletni.lib.postgres.cache;
+
+import dev.qilletni.lib.postgres.metrics.SqlNormalizer;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the tables a statement reads or writes, for invalidating cached results. Both err towards invalidating too
+ * much: every identifier in a query counts as a table it reads, and a write whose target can't be found counts as
+ * writing everything.
+ * <p>
+ * Qualified names only count by their last part, so {@code public.artist} and {@code artist} are the same table.
+ */
+public class TableReferences {
+
+    private static final String IDENTIFIER = "(?:\"(?:[^\"]|\"\")+\"|[A-Za-z_][A-Za-z0-9_$]*)";
+
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile(IDENTIFIER);
+
+    private static final Pattern WRITE_TARGET = Pattern.compile("\\b(?:INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|MERGE\\s+INTO|COPY)\\s+(?:ONLY\\s+)?((?:" + IDENTIFIER + "\\s*\\.\\s*)*" + IDENTIFIER + ")", Pattern.CASE_INSENSITIVE);
+
+    private TableReferences() {}
+
+    /**
+     * Gets the tables a query may read, which is every identifier in it.
+     *
+     * @param sql The SQL of the query
+     * @return The lowercase names of the tables
+     */
+    public static Set<String> readTables(String sql) {
+        var tables = new HashSet<String>();
+        var matcher = IDENTIFIER_PATTERN.matcher(SqlNormalizer.normalize(sql));
+
+        while (matcher.find()) {
+            tables.add(unquote(matcher.group()));
+        }
+
+        return tables;
+    }
+
+    /**
+     * Gets the tables a statement writes to.
+     *
+     * @param sql The SQL of the statement
+     * @return The lowercase names of the tables, or null if they are unknown, such as for DDL or a function call,
+     * in which case the statement may have written to any table
+     */
+    public static Set<String> writtenTables(String sql) {
+        var tables = new HashSet<String>();
+        var matcher = WRITE_TARGET.matcher(SqlNormalizer.normalize(sql));
+
+        while (matcher.find()) {
+            var qualifiedName = matcher.group(1);
+            var nameMatcher = IDENTIFIER_PATTERN.matcher(qualifiedName);
+
+            String name = null;
+            while (nameMatcher.find()) {
+                name = nameMatcher.group();
+            }
+
+            tables.add(unquote(name));
+        }
+
+        return tables.isEmpty() ? null : tables;
+    }
+
+    /**
+     * Gets the name a table is tracked by: unquoted identifiers are folded to lowercase like PostgreSQL does, quoted
+     * ones are kept as-is.
+     */
+    private static String unquote(String identifier) {
+        if (identifier.startsWith("\"")) {
+            return identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+        }
+
+        return identifier.toLowerCase(Locale.ROOT);
+    }
+}
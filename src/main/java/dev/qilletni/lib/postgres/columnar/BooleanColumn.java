@@ -0,0 +1,38 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import java.util.BitSet;
+
+/**
+ * A column of boolean values, stored as a bitmap.
+ *
+ * @param values The rows that are true
+ * @param nulls  The rows that are NULL
+ * @param size   The amount of rows
+ */
+public record BooleanColumn(BitSet values, BitSet nulls, int size) implements ColumnVector {
+
+    @Override
+    public String typeName() {
+        return "boolean";
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public Object get(int row) {
+        return nulls.get(row) ? null : values.get(row);
+    }
+
+    @Override
+    public long estimateBytes() {
+        return 16L + (values.size() + nulls.size()) / 8;
+    }
+
+    @Override
+    public int nullCount() {
+        return nulls.cardinality();
+    }
+}
@@ -0,0 +1,52 @@
+package dev.qilletni.lib.postgres.columnar;
+
+/**
+ * The values of a single column of a result, stored together instead of as one boxed object per cell. Numeric columns
+ * are backed by primitive arrays, with SQL NULLs tracked in a separate bitmap.
+ */
+public sealed interface ColumnVector permits IntColumn, LongColumn, DoubleColumn, BooleanColumn, StringColumn, ObjectColumn {
+
+    /**
+     * Gets the name of the column's storage, such as {@code int} or {@code string}.
+     */
+    String typeName();
+
+    /**
+     * Gets the amount of rows in the column.
+     */
+    int size();
+
+    /**
+     * Checks if a row's value is SQL NULL.
+     *
+     * @param row The 0-indexed row
+     */
+    boolean isNull(int row);
+
+    /**
+     * Gets a row's value, boxing it if it is primitive.
+     *
+     * @param row The 0-indexed row
+     * @return The value, or null if it is SQL NULL
+     */
+    Object get(int row);
+
+    /**
+     * Estimates how much memory the column's storage takes, in bytes.
+     */
+    long estimateBytes();
+
+    /**
+     * Gets the amount of rows that are SQL NULL.
+     */
+    default int nullCount() {
+        int nulls = 0;
+        for (int row = 0; row < size(); row++) {
+            if (isNull(row)) {
+                nulls++;
+            }
+        }
+
+        return nulls;
+    }
+}
@@ -0,0 +1,291 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import dev.qilletni.lib.postgres.decode.ColumnKind;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a {@link ResultSet} into a {@link ColumnarResult}. Each column gets a builder for its {@link ColumnKind}, reading
+ * values through the driver's typed getters straight into growing primitive arrays, so no value is ever boxed.
+ */
+public class ColumnarReader {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * A string column stays dictionary-encoded if it has at most this fraction of distinct values to rows.
+     */
+    private static final double MAX_DICTIONARY_RATIO = 0.5;
+
+    private ColumnarReader() {}
+
+    /**
+     * Reads every remaining row of a result set.
+     *
+     * @param resultSet The result set to read
+     * @param maxRows   The maximum amount of rows, or 0 for no limit
+     * @return The read columns, or null if there were more than maxRows rows
+     */
+    public static ColumnarResult read(ResultSet resultSet, int maxRows) throws SQLException {
+        var metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        var columnNames = new ArrayList<String>(columnCount);
+        var columnLabels = new ArrayList<String>(columnCount);
+        var builders = new ColumnBuilder[columnCount];
+
+        for (int i = 0; i < columnCount; i++) {
+            columnNames.add(metaData.getColumnName(i + 1));
+            columnLabels.add(metaData.getColumnLabel(i + 1));
+            builders[i] = builderFor(metaData.getColumnType(i + 1), metaData.getColumnTypeName(i + 1));
+        }
+
+        int rowCount = 0;
+        while (resultSet.next()) {
+            if (maxRows > 0 && rowCount >= maxRows) {
+                return null;
+            }
+
+            for (int i = 0; i < columnCount; i++) {
+                builders[i].read(resultSet, i + 1, rowCount);
+            }
+
+            rowCount++;
+        }
+
+        var columns = new ArrayList<ColumnVector>(columnCount);
+        for (var builder : builders) {
+            columns.add(builder.build(rowCount));
+        }
+
+        return new ColumnarResult(columnNames, columnLabels, columns, rowCount);
+    }
+
+    private static ColumnBuilder builderFor(int sqlType, String typeName) {
+        return switch (ColumnKind.of(sqlType, typeName)) {
+            case INT -> new IntColumnBuilder();
+            case LONG -> new LongColumnBuilder();
+            case DOUBLE -> new DoubleColumnBuilder();
+            case BOOLEAN -> new BooleanColumnBuilder();
+            case STRING -> new StringColumnBuilder();
+            case OBJECT -> new ObjectColumnBuilder();
+        };
+    }
+
+    private interface ColumnBuilder {
+
+        /**
+         * Reads a column of the current row.
+         *
+         * @param resultSet The result set, positioned on the row
+         * @param column    The 1-indexed column
+         * @param row       The 0-indexed row
+         */
+        void read(ResultSet resultSet, int column, int row) throws SQLException;
+
+        ColumnVector build(int size);
+    }
+
+    private static class IntColumnBuilder implements ColumnBuilder {
+
+        private int[] values = new int[INITIAL_CAPACITY];
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        public void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, row * 2);
+            }
+
+            values[row] = resultSet.getInt(column);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        public ColumnVector build(int size) {
+            return new IntColumn(Arrays.copyOf(values, size), nulls, size);
+        }
+    }
+
+    private static class LongColumnBuilder implements ColumnBuilder {
+
+        private long[] values = new long[INITIAL_CAPACITY];
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        public void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, row * 2);
+            }
+
+            values[row] = resultSet.getLong(column);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        public ColumnVector build(int size) {
+            return new LongColumn(Arrays.copyOf(values, size), nulls, size);
+        }
+    }
+
+    private static class DoubleColumnBuilder implements ColumnBuilder {
+
+        private double[] values = new double[INITIAL_CAPACITY];
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        public void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, row * 2);
+            }
+
+            values[row] = resultSet.getDouble(column);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        public ColumnVector build(int size) {
+            return new DoubleColumn(Arrays.copyOf(values, size), nulls, size);
+        }
+    }
+
+    private static class BooleanColumnBuilder implements ColumnBuilder {
+
+        private final BitSet values = new BitSet();
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        public void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (resultSet.getBoolean(column)) {
+                values.set(row);
+            } else if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        public ColumnVector build(int size) {
+            return new BooleanColumn(values, nulls, size);
+        }
+    }
+
+    /**
+     * Dictionary-encodes strings as they are read, which also means repeated values share a single string. If the
+     * column turns out to have many distinct values, checked every {@link #SAMPLE_ROWS} rows, encoding stops and the
+     * strings are stored as they are.
+     */
+    private static class StringColumnBuilder implements ColumnBuilder {
+
+        /**
+         * How many rows are read between decisions on whether to keep dictionary-encoding.
+         */
+        private static final int SAMPLE_ROWS = 1024;
+
+        private Map<String, Integer> codesByValue = new HashMap<>();
+        private List<String> dictionary = new ArrayList<>();
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private String[] values;
+
+        @Override
+        public void read(ResultSet resultSet, int column, int row) throws SQLException {
+            var value = resultSet.getString(column);
+
+            if (values != null) {
+                if (row == values.length) {
+                    values = Arrays.copyOf(values, row * 2);
+                }
+
+                values[row] = value;
+                return;
+            }
+
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, row * 2);
+            }
+
+            // Checked again every SAMPLE_ROWS rows, as the first ones may repeat values that later rows don't
+            if (row > 0 && row % SAMPLE_ROWS == 0 && dictionary.size() > row * MAX_DICTIONARY_RATIO) {
+                values = decode(row, codes.length);
+                codesByValue = null;
+                dictionary = null;
+                codes = null;
+                values[row] = value;
+                return;
+            }
+
+            if (value == null) {
+                codes[row] = -1;
+                return;
+            }
+
+            var code = codesByValue.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codesByValue.put(value, code);
+                dictionary.add(value);
+            }
+
+            codes[row] = code;
+        }
+
+        /**
+         * Converts rows from their codes to their strings.
+         *
+         * @param rowCount The amount of rows to convert
+         * @param capacity The length of the returned array
+         */
+        private String[] decode(int rowCount, int capacity) {
+            var strings = new String[capacity];
+            for (int row = 0; row < rowCount; row++) {
+                strings[row] = codes[row] == -1 ? null : dictionary.get(codes[row]);
+            }
+
+            return strings;
+        }
+
+        @Override
+        public ColumnVector build(int size) {
+            if (values != null) {
+                return new StringColumn(null, null, Arrays.copyOf(values, size), size);
+            }
+
+            if (dictionary.size() <= size * MAX_DICTIONARY_RATIO) {
+                return new StringColumn(List.copyOf(dictionary), Arrays.copyOf(codes, size), null, size);
+            }
+
+            return new StringColumn(null, null, decode(size, size), size);
+        }
+    }
+
+    private static class ObjectColumnBuilder implements ColumnBuilder {
+
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        @Override
+        public void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, row * 2);
+            }
+
+            values[row] = resultSet.getObject(column);
+        }
+
+        @Override
+        public ColumnVector build(int size) {
+            return new ObjectColumn(Arrays.copyOf(values, size));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import java.util.List;
+
+/**
+ * The rows of a query, stored by column.
+ *
+ * @param columnNames  The name of each column
+ * @param columnLabels The label of each column
+ * @param columns      The values of each column, in order
+ * @param rowCount     The amount of rows
+ */
+public record ColumnarResult(List<String> columnNames, List<String> columnLabels, List<ColumnVector> columns, int rowCount) {
+
+    /**
+     * Estimates how much memory the columns take, in bytes.
+     */
+    public long estimateBytes() {
+        return columns.stream().mapToLong(ColumnVector::estimateBytes).sum();
+    }
+}
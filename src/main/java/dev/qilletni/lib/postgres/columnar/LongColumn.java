@@ -0,0 +1,53 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import java.util.BitSet;
+
+/**
+ * A column of bigint values, stored in a {@code long[]}.
+ *
+ * @param values The values, where rows that are NULL hold 0
+ * @param nulls  The rows that are NULL
+ * @param size   The amount of rows
+ */
+public record LongColumn(long[] values, BitSet nulls, int size) implements ColumnVector, NumericColumn {
+
+    @Override
+    public String typeName() {
+        return "bigint";
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public Object get(int row) {
+        return nulls.get(row) ? null : values[row];
+    }
+
+    @Override
+    public long estimateBytes() {
+        return 16L + (long) values.length * 8 + nulls.size() / 8;
+    }
+
+    @Override
+    public int nullCount() {
+        return nulls.cardinality();
+    }
+
+    @Override
+    public boolean isIntegral() {
+        return true;
+    }
+
+    @Override
+    public long longValue(int row) {
+        return values[row];
+    }
+
+    @Override
+    public double doubleValue(int row) {
+        return values[row];
+    }
+}
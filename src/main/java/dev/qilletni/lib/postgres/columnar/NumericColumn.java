@@ -0,0 +1,145 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A column of numbers, which can be aggregated directly over its primitive storage. Every aggregate skips NULLs.
+ */
+public sealed interface NumericColumn permits IntColumn, LongColumn, DoubleColumn {
+
+    /**
+     * Gets the amount of rows in the column.
+     */
+    int size();
+
+    /**
+     * Gets the rows that are NULL.
+     */
+    BitSet nulls();
+
+    /**
+     * Checks if the column holds whole numbers, which are aggregated through {@link #longValue(int)}.
+     */
+    boolean isIntegral();
+
+    /**
+     * Gets a row's value as a long, which is 0 for NULL rows and truncated for columns that aren't integral.
+     *
+     * @param row The 0-indexed row
+     */
+    long longValue(int row);
+
+    /**
+     * Gets a row's value as a double, which is 0 for NULL rows.
+     *
+     * @param row The 0-indexed row
+     */
+    double doubleValue(int row);
+
+    /**
+     * Gets the sum of the column's values, which is a long for integral columns and a double otherwise. If the sum of
+     * an integral column doesn't fit in a long, it is a double instead of silently overflowing.
+     *
+     * @return The sum, or null if every value is NULL
+     */
+    default Number sum() {
+        int size = size();
+        if (nulls().cardinality() == size) {
+            return null;
+        }
+
+        // NULL rows hold 0, so they don't change the sum
+        if (!isIntegral()) {
+            double sum = 0;
+            for (int row = 0; row < size; row++) {
+                sum += doubleValue(row);
+            }
+
+            return sum;
+        }
+
+        long sum = 0;
+        for (int row = 0; row < size; row++) {
+            try {
+                sum = Math.addExact(sum, longValue(row));
+            } catch (ArithmeticException e) {
+                return exactSum().doubleValue();
+            }
+        }
+
+        return sum;
+    }
+
+    private BigInteger exactSum() {
+        var sum = BigInteger.ZERO;
+        for (int row = 0; row < size(); row++) {
+            sum = sum.add(BigInteger.valueOf(longValue(row)));
+        }
+
+        return sum;
+    }
+
+    /**
+     * @return The lowest value, or null if every value is NULL
+     */
+    default Number min() {
+        // Not a conditional expression, which would unbox both to a double
+        if (isIntegral()) {
+            return reduceLongs(Math::min);
+        }
+
+        return reduceDoubles(Math::min);
+    }
+
+    /**
+     * @return The highest value, or null if every value is NULL
+     */
+    default Number max() {
+        if (isIntegral()) {
+            return reduceLongs(Math::max);
+        }
+
+        return reduceDoubles(Math::max);
+    }
+
+    /**
+     * @return The mean of the values, or null if every value is NULL
+     */
+    default Double mean() {
+        var sum = sum();
+        return sum == null ? null : sum.doubleValue() / (size() - nulls().cardinality());
+    }
+
+    private Long reduceLongs(LongBinaryOperator operator) {
+        var nulls = nulls();
+        int row = nulls.nextClearBit(0);
+        if (row >= size()) {
+            return null;
+        }
+
+        long result = longValue(row);
+        for (row = nulls.nextClearBit(row + 1); row < size(); row = nulls.nextClearBit(row + 1)) {
+            result = operator.applyAsLong(result, longValue(row));
+        }
+
+        return result;
+    }
+
+    private Double reduceDoubles(DoubleBinaryOperator operator) {
+        var nulls = nulls();
+        int row = nulls.nextClearBit(0);
+        if (row >= size()) {
+            return null;
+        }
+
+        double result = doubleValue(row);
+        for (row = nulls.nextClearBit(row + 1); row < size(); row = nulls.nextClearBit(row + 1)) {
+            result = operator.applyAsDouble(result, doubleValue(row));
+        }
+
+        return result;
+    }
+}
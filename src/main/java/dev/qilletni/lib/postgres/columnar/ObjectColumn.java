@@ -0,0 +1,46 @@
+package dev.qilletni.lib.postgres.columnar;
+
+/**
+ * A column of a type without specialized storage, holding the driver's object for each row.
+ *
+ * @param values The value of each row, or null if it is NULL
+ */
+public record ObjectColumn(Object[] values) implements ColumnVector {
+
+    /**
+     * The estimated size of each value, as its actual size depends on its type.
+     */
+    private static final long VALUE_BYTES = 32;
+
+    @Override
+    public String typeName() {
+        return "object";
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return values[row] == null;
+    }
+
+    @Override
+    public Object get(int row) {
+        return values[row];
+    }
+
+    @Override
+    public long estimateBytes() {
+        long bytes = 16L + values.length * 4L;
+        for (var value : values) {
+            if (value != null) {
+                bytes += VALUE_BYTES;
+            }
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,65 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A column of strings. If the column has few distinct values, each row holds the index of its value in a dictionary
+ * instead of its own string.
+ *
+ * @param dictionary The distinct values, or null if the column isn't dictionary-encoded
+ * @param codes      The index of each row's value in the dictionary, or -1 if it is NULL. This is null if the column
+ *                   isn't dictionary-encoded
+ * @param values     The value of each row, or null if the column is dictionary-encoded
+ * @param size       The amount of rows
+ */
+public record StringColumn(List<String> dictionary, int[] codes, String[] values, int size) implements ColumnVector {
+
+    /**
+     * The estimated size of a string, not counting its characters.
+     */
+    private static final long STRING_OVERHEAD_BYTES = 40;
+
+    public boolean isDictionaryEncoded() {
+        return dictionary != null;
+    }
+
+    @Override
+    public String typeName() {
+        return "string";
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return dictionary != null ? codes[row] == -1 : values[row] == null;
+    }
+
+    @Override
+    public Object get(int row) {
+        if (dictionary == null) {
+            return values[row];
+        }
+
+        int code = codes[row];
+        return code == -1 ? null : dictionary.get(code);
+    }
+
+    @Override
+    public long estimateBytes() {
+        if (dictionary != null) {
+            return 16L + codes.length * 4L + stringsBytes(dictionary);
+        }
+
+        return 16L + values.length * 4L + stringsBytes(Arrays.stream(values).filter(Objects::nonNull).toList());
+    }
+
+    private static long stringsBytes(List<String> strings) {
+        long bytes = 0;
+        for (var string : strings) {
+            bytes += STRING_OVERHEAD_BYTES + string.length();
+        }
+
+        return bytes;
+    }
+}
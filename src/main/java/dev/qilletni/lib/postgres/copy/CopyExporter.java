@@ -0,0 +1,153 @@
+package dev.qilletni.lib.postgres.copy;
+
+import org.postgresql.copy.CopyOut;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the result of a query into a local file through PostgreSQL's COPY TO STDOUT protocol. The server formats
+ * the rows, and the data is written to the file as it arrives without ever being decoded, so memory use does not depend
+ * on the amount of data exported.
+ * <p>
+ * The file is written next to its destination under a temporary name and only moved into place once the export
+ * succeeds, so a failed export never leaves a partial file behind.
+ */
+public class CopyExporter {
+
+    /**
+     * The size of the direct buffer rows are gathered in before being written to the file.
+     */
+    public static final int BUFFER_SIZE = 1024 * 1024;
+
+    private CopyExporter() {}
+
+    /**
+     * Exports the result of a query into a file, replacing the file if it exists.
+     *
+     * @param connection The connection to export through
+     * @param query      The query whose rows are exported
+     * @param path       The file to write
+     * @param format     The format to write the rows in
+     * @param gzip       If the file is compressed with gzip as it is written
+     * @return The amount of rows and bytes written
+     */
+    public static ExportStatistics copyToFile(Connection connection, String query, Path path, CopyFormat format, boolean gzip) throws SQLException, IOException {
+        long start = System.nanoTime();
+        var absolutePath = path.toAbsolutePath();
+        var temporaryPath = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".part");
+        boolean success = false;
+
+        try {
+            var copyOut = CopyLoader.getCopyManager(connection).copyOut(createCopyOutSql(query, format));
+            long dataBytes;
+
+            try (var channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                dataBytes = gzip ? writeCompressed(copyOut, channel) : write(copyOut, channel);
+                channel.force(false);
+            } finally {
+                if (copyOut.isActive()) {
+                    copyOut.cancelCopy();
+                }
+            }
+
+            long bytes = Files.size(temporaryPath);
+            move(temporaryPath, absolutePath);
+            success = true;
+
+            return new ExportStatistics(copyOut.getHandledRowCount(), bytes, dataBytes, (System.nanoTime() - start) / 1_000_000D);
+        } finally {
+            if (!success) {
+                Files.deleteIfExists(temporaryPath);
+            }
+        }
+    }
+
+    /**
+     * Writes the data as it is, gathering it in a direct buffer so the file is written in large chunks instead of once
+     * per row.
+     *
+     * @return The amount of bytes written
+     */
+    private static long write(CopyOut copyOut, FileChannel channel) throws SQLException, IOException {
+        var buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long bytes = 0;
+        byte[] data;
+
+        while ((data = copyOut.readFromCopy()) != null) {
+            bytes += data.length;
+
+            if (data.length > buffer.remaining()) {
+                drain(buffer, channel);
+
+                if (data.length > buffer.capacity()) {
+                    var wrapped = ByteBuffer.wrap(data);
+                    while (wrapped.hasRemaining()) {
+                        channel.write(wrapped);
+                    }
+
+                    continue;
+                }
+            }
+
+            buffer.put(data);
+        }
+
+        drain(buffer, channel);
+        return bytes;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Writes the data compressed with gzip.
+     *
+     * @return The amount of bytes read from the server, before compression
+     */
+    private static long writeCompressed(CopyOut copyOut, FileChannel channel) throws SQLException, IOException {
+        // Not closed, as closing the stream would close the channel before it is forced
+        var output = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        long bytes = 0;
+        byte[] data;
+
+        while ((data = copyOut.readFromCopy()) != null) {
+            bytes += data.length;
+            output.write(data);
+        }
+
+        output.finish();
+        output.flush();
+        return bytes;
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static String createCopyOutSql(String query, CopyFormat format) {
+        // A trailing semicolon would end the statement inside the parentheses
+        var trimmedQuery = query.strip().replaceAll(";+$", "");
+        return "COPY (%s) TO STDOUT WITH (FORMAT %s)".formatted(trimmedQuery, format.getSqlName());
+    }
+}
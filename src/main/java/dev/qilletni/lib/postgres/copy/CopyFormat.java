@@ -0,0 +1,38 @@
+package dev.qilletni.lib.postgres.copy;
+
+import dev.qilletni.lib.postgres.exceptions.InvalidCopyFormatException;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The data formats supported by PostgreSQL's COPY command.
+ */
+public enum CopyFormat {
+    CSV("csv"),
+    TEXT("text"),
+    BINARY("binary");
+
+    private final String sqlName;
+
+    CopyFormat(String sqlName) {
+        this.sqlName = sqlName;
+    }
+
+    public String getSqlName() {
+        return sqlName;
+    }
+
+    /**
+     * Gets a format by its name, ignoring case.
+     *
+     * @param name The name of the format, such as "csv"
+     * @return The format
+     */
+    public static CopyFormat fromName(String name) {
+        return Arrays.stream(values())
+                .filter(format -> format.sqlName.equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new InvalidCopyFormatException("Unknown COPY format %s, expected one of %s".formatted(name, Arrays.stream(values()).map(CopyFormat::getSqlName).collect(Collectors.joining(", ")))));
+    }
+}
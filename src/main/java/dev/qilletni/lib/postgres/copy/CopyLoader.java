@@ -0,0 +1,134 @@
+package dev.qilletni.lib.postgres.copy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streams data into a table through PostgreSQL's COPY FROM STDIN protocol. Data is sent in chunks of at most
+ * {@link #BUFFER_SIZE} bytes, so memory use does not depend on the amount of data loaded.
+ */
+public class CopyLoader {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private CopyLoader() {}
+
+    /**
+     * Loads rows of plain Java values into a table, encoding them as CSV as they are sent.
+     *
+     * @param connection The connection to load through
+     * @param table      The table to load into
+     * @param columns    The columns the values of each row map to, or an empty list for all columns in order
+     * @param rows       The rows to load. These are consumed one at a time and never collected
+     * @return The amount of rows loaded
+     */
+    public static long copyRows(Connection connection, String table, List<String> columns, Iterator<? extends List<?>> rows) throws SQLException {
+        var copyIn = getCopyManager(connection).copyIn(createCopyInSql(table, columns, CopyFormat.CSV));
+
+        try {
+            var buffer = new byte[BUFFER_SIZE];
+            int position = 0;
+            var line = new StringBuilder();
+
+            while (rows.hasNext()) {
+                line.setLength(0);
+                appendCsvRow(line, rows.next());
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+
+                if (position + bytes.length > buffer.length) {
+                    copyIn.writeToCopy(buffer, 0, position);
+                    position = 0;
+                }
+
+                if (bytes.length > buffer.length) {
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                } else {
+                    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                    position += bytes.length;
+                }
+            }
+
+            if (position > 0) {
+                copyIn.writeToCopy(buffer, 0, position);
+            }
+
+            return copyIn.endCopy();
+        } finally {
+            cancelIfActive(copyIn);
+        }
+    }
+
+    /**
+     * Loads a local file into a table, streaming it to the server without parsing it.
+     *
+     * @param connection The connection to load through
+     * @param table      The table to load into
+     * @param path       The file to load
+     * @param format     The format the file is in
+     * @return The amount of rows loaded
+     */
+    public static long copyFile(Connection connection, String table, Path path, CopyFormat format) throws SQLException, IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var copyIn = getCopyManager(connection).copyIn(createCopyInSql(table, List.of(), format));
+
+            try {
+                var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    copyIn.writeToCopy(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    buffer.clear();
+                }
+
+                return copyIn.endCopy();
+            } finally {
+                cancelIfActive(copyIn);
+            }
+        }
+    }
+
+    public static CopyManager getCopyManager(Connection connection) throws SQLException {
+        return connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    static String createCopyInSql(String table, List<String> columns, CopyFormat format) {
+        var columnList = columns.isEmpty() ? "" : " (%s)".formatted(String.join(", ", columns));
+        return "COPY %s%s FROM STDIN WITH (FORMAT %s)".formatted(table, columnList, format.getSqlName());
+    }
+
+    private static void appendCsvRow(StringBuilder line, List<?> row) {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+
+            var value = row.get(i);
+            if (value instanceof String string) {
+                // Always quoted, so an empty string is not read back as null
+                line.append('"').append(string.replace("\"", "\"\"")).append('"');
+            } else if (value != null) {
+                line.append(value);
+            }
+        }
+
+        line.append('\n');
+    }
+
+    private static void cancelIfActive(CopyIn copyIn) throws SQLException {
+        if (copyIn.isActive()) {
+            copyIn.cancelCopy();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package dev.qilletni.lib.postgres.copy;
+
+/**
+ * The outcome of exporting a query to a file.
+ *
+ * @param rows      The amount of rows exported
+ * @param bytes     The size of the written file
+ * @param dataBytes The amount of bytes the server sent, which is larger than the file if it is compressed
+ * @param millis    How long the export took
+ */
+public record ExportStatistics(long rows, long bytes, long dataBytes, double millis) {
+}
@@ -0,0 +1,20 @@
+package dev.qilletni.lib.postgres.decode;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads a single column of the current row of a {@link ResultSet} into a plain Java value.
+ */
+@FunctionalInterface
+public interface ColumnDecoder {
+
+    /**
+     * Reads the column's value.
+     *
+     * @param resultSet The result set, positioned on a row
+     * @param column    The 1-indexed column to read
+     * @return The value, or null if it is SQL NULL
+     */
+    Object decode(ResultSet resultSet, int column) throws SQLException;
+}
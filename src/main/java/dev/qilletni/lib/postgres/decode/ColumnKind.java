@@ -0,0 +1,40 @@
+package dev.qilletni.lib.postgres.decode;
+
+import java.sql.Types;
+
+/**
+ * How the values of a column are read, decided once from its SQL type. Both {@link RowDecoder} and the columnar reader
+ * pick their getter by this, so a column reads as the same Java type whichever way a result is fetched.
+ */
+public enum ColumnKind {
+    INT,
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    STRING,
+    /**
+     * Read through {@link java.sql.ResultSet#getObject(int)}, as the type has no specialized getter.
+     */
+    OBJECT;
+
+    /**
+     * Gets the kind of a column.
+     *
+     * @param sqlType  The {@link Types} constant of the column
+     * @param typeName The database-specific name of the column's type, such as {@code int4}
+     * @return The kind of the column
+     */
+    public static ColumnKind of(int sqlType, String typeName) {
+        return switch (sqlType) {
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> INT;
+            case Types.BIGINT -> LONG;
+            case Types.DOUBLE, Types.FLOAT, Types.REAL -> DOUBLE;
+            // pgjdbc reports both bool and bit(n) as BIT, and a bit string of more than one bit isn't a boolean
+            case Types.BIT -> "bool".equals(typeName) ? BOOLEAN : STRING;
+            case Types.BOOLEAN -> BOOLEAN;
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR -> STRING;
+            // A varbit would otherwise come back as a PGobject, which has no Qilletni counterpart
+            default -> "varbit".equals(typeName) ? STRING : OBJECT;
+        };
+    }
+}
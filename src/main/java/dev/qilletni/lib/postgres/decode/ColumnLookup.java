@@ -0,0 +1,46 @@
+package dev.qilletni.lib.postgres.decode;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The decoder plan and case-insensitive label to column index mapping of a result set, built once instead of resolving
+ * column names and types through the driver for every value.
+ *
+ * @param rowDecoder    The decoder plan of the result set's columns
+ * @param columnIndexes The 1-indexed column of each lowercase label. Duplicate labels map to their first column,
+ *                      like the driver does
+ */
+public record ColumnLookup(RowDecoder rowDecoder, Map<String, Integer> columnIndexes) {
+
+    /**
+     * Creates the lookup of a result set.
+     *
+     * @param resultSet    The result set to decode
+     * @param columnLabels The label of each column, in order
+     * @return The created lookup
+     */
+    public static ColumnLookup create(ResultSet resultSet, List<String> columnLabels) throws SQLException {
+        var columnIndexes = new HashMap<String, Integer>();
+
+        for (int i = 0; i < columnLabels.size(); i++) {
+            columnIndexes.putIfAbsent(columnLabels.get(i).toLowerCase(Locale.ROOT), i + 1);
+        }
+
+        return new ColumnLookup(RowDecoder.fromMetadata(resultSet.getMetaData()), columnIndexes);
+    }
+
+    /**
+     * Gets the column of a label, ignoring case.
+     *
+     * @param columnLabel The label of the column
+     * @return The 1-indexed column, or -1 if no column has the label
+     */
+    public int indexOf(String columnLabel) {
+        return columnIndexes.getOrDefault(columnLabel.toLowerCase(Locale.ROOT), -1);
+    }
+}
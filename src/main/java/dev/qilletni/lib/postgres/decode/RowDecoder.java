@@ -0,0 +1,114 @@
+package dev.qilletni.lib.postgres.decode;
+
+import dev.qilletni.lib.postgres.exceptions.DatabaseException;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A plan for reading rows of a query, built once from its {@link ResultSetMetaData}. Each column gets a decoder using
+ * the driver's typed getter for its {@link ColumnKind}, which avoids the per-cell type dispatch and boxing of
+ * {@link ResultSet#getObject(int)}. Types without a specialized getter still go through getObject.
+ */
+public class RowDecoder {
+
+    private static final ColumnDecoder INT_DECODER = (resultSet, column) -> {
+        int value = resultSet.getInt(column);
+        return resultSet.wasNull() ? null : value;
+    };
+
+    private static final ColumnDecoder LONG_DECODER = (resultSet, column) -> {
+        long value = resultSet.getLong(column);
+        return resultSet.wasNull() ? null : value;
+    };
+
+    private static final ColumnDecoder DOUBLE_DECODER = (resultSet, column) -> {
+        double value = resultSet.getDouble(column);
+        return resultSet.wasNull() ? null : value;
+    };
+
+    private static final ColumnDecoder BOOLEAN_DECODER = (resultSet, column) -> {
+        boolean value = resultSet.getBoolean(column);
+        return resultSet.wasNull() ? null : value;
+    };
+
+    private static final ColumnDecoder STRING_DECODER = ResultSet::getString;
+
+    private static final ColumnDecoder OBJECT_DECODER = ResultSet::getObject;
+
+    private final ColumnDecoder[] decoders;
+    private final int[] columnTypes;
+
+    private RowDecoder(ColumnDecoder[] decoders, int[] columnTypes) {
+        this.decoders = decoders;
+        this.columnTypes = columnTypes;
+    }
+
+    public static RowDecoder fromMetadata(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        var decoders = new ColumnDecoder[columnCount];
+        var columnTypes = new int[columnCount];
+
+        for (int i = 0; i < columnCount; i++) {
+            columnTypes[i] = metaData.getColumnType(i + 1);
+            decoders[i] = decoderFor(columnTypes[i], metaData.getColumnTypeName(i + 1));
+        }
+
+        return new RowDecoder(decoders, columnTypes);
+    }
+
+    private static ColumnDecoder decoderFor(int sqlType, String typeName) {
+        return switch (ColumnKind.of(sqlType, typeName)) {
+            case INT -> INT_DECODER;
+            case LONG -> LONG_DECODER;
+            case DOUBLE -> DOUBLE_DECODER;
+            case BOOLEAN -> BOOLEAN_DECODER;
+            case STRING -> STRING_DECODER;
+            case OBJECT -> OBJECT_DECODER;
+        };
+    }
+
+    public int getColumnCount() {
+        return decoders.length;
+    }
+
+    /**
+     * Gets the {@link Types} constant of a column.
+     *
+     * @param column The 1-indexed column
+     */
+    public int getColumnType(int column) {
+        return columnTypes[column - 1];
+    }
+
+    /**
+     * Reads a single column of the current row.
+     *
+     * @param column The 1-indexed column to read
+     * @throws DatabaseException If there is no such column
+     */
+    public Object decode(ResultSet resultSet, int column) throws SQLException {
+        if (column < 1 || column > decoders.length) {
+            throw new DatabaseException("There is no column %d, counting from 1, in a row of %d columns".formatted(column, decoders.length));
+        }
+
+        return decoders[column - 1].decode(resultSet, column);
+    }
+
+    /**
+     * Reads every column of the current row.
+     */
+    public List<Object> decodeRow(ResultSet resultSet) throws SQLException {
+        var row = new ArrayList<>(decoders.length);
+
+        for (int i = 0; i < decoders.length; i++) {
+            row.add(decoders[i].decode(resultSet, i + 1));
+        }
+
+        return row;
+    }
+}
@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidColumnTypeException extends QilletniException {
+
+    public InvalidColumnTypeException() {
+        super();
+    }
+
+    public InvalidColumnTypeException(String message) {
+        super(message);
+    }
+
+    public InvalidColumnTypeException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidCopyFormatException extends QilletniException {
+
+    public InvalidCopyFormatException() {
+        super();
+    }
+
+    public InvalidCopyFormatException(String message) {
+        super(message);
+    }
+
+    public InvalidCopyFormatException(Throwable cause) {
+        super(cause);
+    }
+}
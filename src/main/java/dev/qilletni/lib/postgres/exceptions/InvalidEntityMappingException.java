@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidEntityMappingException extends QilletniException {
+
+    public InvalidEntityMappingException() {
+        super();
+    }
+
+    public InvalidEntityMappingException(String message) {
+        super(message);
+    }
+
+    public InvalidEntityMappingException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidPaginationException extends QilletniException {
+
+    public InvalidPaginationException() {
+        super();
+    }
+
+    public InvalidPaginationException(String message) {
+        super(message);
+    }
+
+    public InvalidPaginationException(Throwable cause) {
+        super(cause);
+    }
+}
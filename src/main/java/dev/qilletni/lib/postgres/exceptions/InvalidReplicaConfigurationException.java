@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidReplicaConfigurationException extends QilletniException {
+
+    public InvalidReplicaConfigurationException() {
+        super();
+    }
+
+    public InvalidReplicaConfigurationException(String message) {
+        super(message);
+    }
+
+    public InvalidReplicaConfigurationException(Throwable cause) {
+        super(cause);
+    }
+}
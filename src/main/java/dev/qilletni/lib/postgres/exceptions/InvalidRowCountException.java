@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidRowCountException extends QilletniException {
+
+    public InvalidRowCountException() {
+        super();
+    }
+
+    public InvalidRowCountException(String message) {
+        super(message);
+    }
+
+    public InvalidRowCountException(Throwable cause) {
+        super(cause);
+    }
+}
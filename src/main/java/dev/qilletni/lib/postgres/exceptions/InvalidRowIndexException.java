@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidRowIndexException extends QilletniException {
+
+    public InvalidRowIndexException() {
+        super();
+    }
+
+    public InvalidRowIndexException(String message) {
+        super(message);
+    }
+
+    public InvalidRowIndexException(Throwable cause) {
+        super(cause);
+    }
+}
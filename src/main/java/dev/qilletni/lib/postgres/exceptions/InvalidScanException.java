@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidScanException extends QilletniException {
+
+    public InvalidScanException() {
+        super();
+    }
+
+    public InvalidScanException(String message) {
+        super(message);
+    }
+
+    public InvalidScanException(Throwable cause) {
+        super(cause);
+    }
+}
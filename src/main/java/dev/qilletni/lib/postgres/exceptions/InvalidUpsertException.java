@@ -0,0 +1,18 @@
+package dev.qilletni.lib.postgres.exceptions;
+
+import dev.qilletni.api.exceptions.QilletniException;
+
+public class InvalidUpsertException extends QilletniException {
+
+    public InvalidUpsertException() {
+        super();
+    }
+
+    public InvalidUpsertException(String message) {
+        super(message);
+    }
+
+    public InvalidUpsertException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,140 @@
+package dev.qilletni.lib.postgres.mapping;
+
+import dev.qilletni.lib.postgres.cache.BoundedCache;
+import dev.qilletni.lib.postgres.decode.RowDecoder;
+import dev.qilletni.lib.postgres.exceptions.InvalidEntityMappingException;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Which column of a query's result goes to each constructor parameter of an entity, so rows can be turned straight
+ * into entities. A parameter takes the column whose label matches its name ignoring case and underscores, so both
+ * {@code releaseDate} and {@code release_date} match a {@code releaseDate} field. Columns no parameter takes are never
+ * read.
+ * <p>
+ * Matching labels walks the result's metadata and the entity's definition, so plans are cached by their SQL and
+ * entity. A cached plan is checked against each result's column count and the labels and types of the columns it
+ * reads, and is rebuilt if the query's result changed shape, such as after the table was altered.
+ */
+public class EntityMappingPlan {
+
+    private static final BoundedCache<PlanKey, EntityMappingPlan> CACHE = new BoundedCache<>(2048);
+
+    private final int columnCount;
+    private final int[] columns;
+    private final String[] labels;
+    private final int[] types;
+    private final RowDecoder rowDecoder;
+
+    private EntityMappingPlan(int columnCount, int[] columns, String[] labels, int[] types, RowDecoder rowDecoder) {
+        this.columnCount = columnCount;
+        this.columns = columns;
+        this.labels = labels;
+        this.types = types;
+        this.rowDecoder = rowDecoder;
+    }
+
+    /**
+     * Gets the plan for mapping a query's result to an entity, reusing the cached one if it still fits the result.
+     *
+     * @param sql        The SQL of the query
+     * @param entityName The name of the entity rows are mapped to
+     * @param fieldNames Gets the names of the entity's constructor parameters, in order. Only called to build a plan
+     * @param metaData   The metadata of the query's result
+     * @return The plan
+     * @throws InvalidEntityMappingException If a constructor parameter has no matching column
+     */
+    public static EntityMappingPlan forResult(String sql, String entityName, Supplier<List<String>> fieldNames, ResultSetMetaData metaData) throws SQLException {
+        var key = new PlanKey(sql, entityName);
+        var plan = CACHE.get(key);
+
+        if (plan != null && plan.fits(metaData)) {
+            return plan;
+        }
+
+        plan = create(entityName, fieldNames.get(), metaData);
+        CACHE.put(key, plan);
+        return plan;
+    }
+
+    private static EntityMappingPlan create(String entityName, List<String> fieldNames, ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        var columnsByName = new HashMap<String, Integer>();
+
+        for (int column = 1; column <= columnCount; column++) {
+            // Duplicate labels map to their first column, like the driver does
+            columnsByName.putIfAbsent(normalize(metaData.getColumnLabel(column)), column);
+        }
+
+        var columns = new int[fieldNames.size()];
+        var labels = new String[columns.length];
+        var types = new int[columns.length];
+        var missingFields = new ArrayList<String>();
+
+        for (int i = 0; i < columns.length; i++) {
+            var column = columnsByName.get(normalize(fieldNames.get(i)));
+
+            if (column == null) {
+                missingFields.add(fieldNames.get(i));
+                continue;
+            }
+
+            columns[i] = column;
+            labels[i] = metaData.getColumnLabel(column);
+            types[i] = metaData.getColumnType(column);
+        }
+
+        if (!missingFields.isEmpty()) {
+            throw new InvalidEntityMappingException("No column of the result matches the %s field(s) %s of %s".formatted(missingFields.size(), String.join(", ", missingFields), entityName));
+        }
+
+        return new EntityMappingPlan(columnCount, columns, labels, types, RowDecoder.fromMetadata(metaData));
+    }
+
+    /**
+     * Checks if the plan still fits a result, which it may not if the query's tables were altered since.
+     */
+    private boolean fits(ResultSetMetaData metaData) throws SQLException {
+        if (metaData.getColumnCount() != columnCount) {
+            return false;
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            if (metaData.getColumnType(columns[i]) != types[i] || !Objects.equals(metaData.getColumnLabel(columns[i]), labels[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the constructor arguments of the entity from the current row.
+     *
+     * @param resultSet The result set, positioned on a row
+     * @return The value of each constructor parameter, in order
+     */
+    public Object[] map(ResultSet resultSet) throws SQLException {
+        var values = new Object[columns.length];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rowDecoder.decode(resultSet, columns[i]);
+        }
+
+        return values;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private record PlanKey(String sql, String entityName) {}
+}
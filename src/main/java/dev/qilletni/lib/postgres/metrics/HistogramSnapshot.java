@@ -0,0 +1,15 @@
+package dev.qilletni.lib.postgres.metrics;
+
+/**
+ * A point-in-time snapshot of a {@link LatencyHistogram}, in milliseconds.
+ *
+ * @param count       How many latencies were recorded
+ * @param totalMillis The sum of every recorded latency
+ * @param meanMillis  The mean latency
+ * @param p50Millis   The median latency
+ * @param p95Millis   The 95th percentile latency
+ * @param p99Millis   The 99th percentile latency
+ * @param maxMillis   The highest latency
+ */
+public record HistogramSnapshot(long count, double totalMillis, double meanMillis, double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+}
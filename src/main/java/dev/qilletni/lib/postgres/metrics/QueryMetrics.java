@@ -0,0 +1,109 @@
+package dev.qilletni.lib.postgres.metrics;
+
+import dev.qilletni.lib.postgres.statement.StatementTimeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency, row and error metrics of the statements run through a connection or pool, keyed by their normalized SQL.
+ * Metrics recorded here are also recorded into the parent, if any, so a connection's statements count towards its
+ * pool.
+ */
+public class QueryMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryMetrics.class);
+
+    /**
+     * The most distinct statements tracked, after which new statements are only counted under {@link #OTHER_SQL}.
+     */
+    private static final int MAX_STATEMENTS = 512;
+
+    private static final String ALL_SQL = "(all)";
+    private static final String OTHER_SQL = "(other)";
+
+    private final QueryMetrics parent;
+    private final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+    private final StatementMetrics total = new StatementMetrics(ALL_SQL);
+    private volatile long slowQueryThresholdNanos;
+
+    public QueryMetrics() {
+        this(null);
+    }
+
+    public QueryMetrics(QueryMetrics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Sets how long a statement may take before it is logged as slow.
+     *
+     * @param thresholdMillis The threshold in milliseconds, or 0 to not log slow statements
+     */
+    public void setSlowQueryThresholdMillis(long thresholdMillis) {
+        slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, thresholdMillis));
+    }
+
+    /**
+     * Records a statement that was run.
+     *
+     * @param sql      The SQL of the statement, which is normalized here
+     * @param nanos    How long the statement took
+     * @param rowCount The amount of rows returned or affected
+     * @param failure  The exception the statement failed with, or null if it succeeded
+     */
+    public void record(String sql, long nanos, long rowCount, Exception failure) {
+        var normalizedSql = SqlNormalizer.normalize(sql);
+        record(normalizedSql, nanos, rowCount, failure != null, failure instanceof SQLException sqlException && StatementTimeout.isTimeout(sqlException));
+    }
+
+    private void record(String normalizedSql, long nanos, long rowCount, boolean failed, boolean timedOut) {
+        getStatementMetrics(normalizedSql).record(nanos, rowCount, failed, timedOut);
+        total.record(nanos, rowCount, failed, timedOut);
+
+        long threshold = slowQueryThresholdNanos;
+        if (threshold > 0 && nanos >= threshold) {
+            LOGGER.warn("Slow query took {} ms ({} rows{}): {}", TimeUnit.NANOSECONDS.toMillis(nanos), rowCount, failed ? ", failed" : "", normalizedSql);
+        }
+
+        if (parent != null) {
+            parent.record(normalizedSql, nanos, rowCount, failed, timedOut);
+        }
+    }
+
+    private StatementMetrics getStatementMetrics(String normalizedSql) {
+        var metrics = statements.get(normalizedSql);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        if (statements.size() >= MAX_STATEMENTS) {
+            return statements.computeIfAbsent(OTHER_SQL, StatementMetrics::new);
+        }
+
+        return statements.computeIfAbsent(normalizedSql, StatementMetrics::new);
+    }
+
+    /**
+     * Gets the combined metrics of every statement.
+     */
+    public StatementStatistics getTotalStatistics() {
+        return total.getStatistics();
+    }
+
+    /**
+     * Gets the metrics of each distinct statement, the ones taking the most time in total first.
+     */
+    public List<StatementStatistics> getStatementStatistics() {
+        return statements.values().stream()
+                .map(StatementMetrics::getStatistics)
+                .sorted(Comparator.comparingDouble((StatementStatistics statistics) -> statistics.latency().totalMillis()).reversed())
+                .toList();
+    }
+}
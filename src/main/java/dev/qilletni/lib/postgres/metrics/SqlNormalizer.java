@@ -0,0 +1,103 @@
+package dev.qilletni.lib.postgres.metrics;
+
+import dev.qilletni.lib.postgres.cache.BoundedCache;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL so that statements only differing in their literal values are tracked as one. String and numeric
+ * literals become {@code ?}, comments are dropped, whitespace is collapsed and lists of placeholders such as
+ * {@code IN (?, ?, ?)} become a single {@code (?)}.
+ */
+public class SqlNormalizer {
+
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\?(?: ?, ?\\?)+\\)");
+
+    /**
+     * Scripts usually run the same few SQL strings over and over, so normalized forms are remembered.
+     */
+    private static final BoundedCache<String, String> CACHE = new BoundedCache<>(2048);
+
+    private SqlNormalizer() {}
+
+    public static String normalize(String sql) {
+        var normalized = CACHE.get(sql);
+        if (normalized != null) {
+            return normalized;
+        }
+
+        normalized = PLACEHOLDER_LIST.matcher(strip(sql)).replaceAll("(?)");
+        CACHE.put(sql, normalized);
+        return normalized;
+    }
+
+    private static String strip(String sql) {
+        var builder = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+
+            if (c == '\'') {
+                // String literal, where '' is an escaped quote
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+
+                        break;
+                    }
+
+                    i++;
+                }
+
+                builder.append('?');
+                i++;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end == -1 ? length : end + 2;
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+
+                // Whitespace on both sides of a dropped comment still only makes one space
+                if (!builder.isEmpty() && i < length && builder.charAt(builder.length() - 1) != ' ') {
+                    builder.append(' ');
+                }
+            } else if (Character.isDigit(c) && !isIdentifierPart(builder)) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+
+                builder.append('?');
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+
+        return builder.toString().strip();
+    }
+
+    /**
+     * Checks if the last character written continues an identifier or placeholder, such as {@code table1} or
+     * {@code $1}, in which case a following digit is not a literal.
+     */
+    private static boolean isIdentifierPart(StringBuilder builder) {
+        if (builder.isEmpty()) {
+            return false;
+        }
+
+        char last = builder.charAt(builder.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+}
@@ -0,0 +1,36 @@
+package dev.qilletni.lib.postgres.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a single normalized statement, safe to record into from any thread.
+ */
+class StatementMetrics {
+
+    private final String sql;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    StatementMetrics(String sql) {
+        this.sql = sql;
+    }
+
+    void record(long nanos, long rowCount, boolean failed, boolean timedOut) {
+        latency.record(nanos);
+        rows.add(rowCount);
+
+        if (failed) {
+            errors.increment();
+        }
+
+        if (timedOut) {
+            timeouts.increment();
+        }
+    }
+
+    StatementStatistics getStatistics() {
+        return new StatementStatistics(sql, errors.sum(), timeouts.sum(), rows.sum(), latency.snapshot());
+    }
+}
@@ -0,0 +1,13 @@
+package dev.qilletni.lib.postgres.metrics;
+
+/**
+ * A point-in-time snapshot of the metrics of a single normalized statement, or of every statement combined.
+ *
+ * @param sql      The normalized SQL of the statement
+ * @param errors   How many executions failed, including timeouts
+ * @param timeouts How many executions were cancelled due to a timeout
+ * @param rows     The total amount of rows returned or affected
+ * @param latency  The latencies of every execution, failed or not
+ */
+public record StatementStatistics(String sql, long errors, long timeouts, long rows, HistogramSnapshot latency) {
+}
@@ -0,0 +1,11 @@
+package dev.qilletni.lib.postgres.notify;
+
+/**
+ * A notification received on a channel, copied out of the driver's notification.
+ *
+ * @param channel   The channel the notification was sent on
+ * @param payload   The payload of the notification, which is empty if none was given
+ * @param processId The process ID of the server backend that sent the notification
+ */
+public record Notification(String channel, String payload, int processId) {
+}
@@ -0,0 +1,315 @@
+package dev.qilletni.lib.postgres.notify;
+
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Receives notifications for a set of channels on a dedicated connection, outside of the pool. A background thread
+ * blocks on {@link PGConnection#getNotifications(int)} and queues what arrives, to be taken by the interpreter's thread
+ * through {@link #poll(int)} or {@link #await(long, int)}.
+ * <p>
+ * The queue is bounded. When it is full, the background thread stops reading from the connection until there is room,
+ * so unread notifications wait in the server's notification queue instead of piling up here.
+ * <p>
+ * If the connection breaks, it is reopened with a backoff and every channel is listened to again. Notifications sent
+ * while it was down are lost, as the server only delivers them to sessions listening at the time.
+ */
+public class NotificationListener implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationListener.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    /**
+     * How long the background thread blocks for notifications at once, which bounds how long a listen or unlisten
+     * waits to be applied.
+     */
+    private static final int POLL_MILLIS = 250;
+
+    private static final long SYNC_TIMEOUT_MILLIS = 5_000;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final ConnectionPool pool;
+    private final BlockingQueue<Notification> queue;
+    private final Thread thread;
+
+    /**
+     * The channels that should be listened to, which the background thread applies to the connection.
+     */
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Completed once the background thread has applied {@link #channels} as they were when it started the sync.
+     */
+    private volatile CompletableFuture<Void> nextSync = new CompletableFuture<>();
+
+    private volatile boolean closed;
+
+    // Only touched by the background thread
+    private Connection connection;
+    private final Set<String> listenedChannels = new HashSet<>();
+
+    /**
+     * Creates a listener and starts its background thread, which opens its connection.
+     *
+     * @param pool     The pool whose settings the connection is opened with
+     * @param capacity The most notifications queued before the background thread stops reading more
+     */
+    public NotificationListener(ConnectionPool pool, int capacity) {
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.thread = new Thread(this::run, "qilletni-postgres-notifications");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts listening to a channel, waiting until the server has confirmed it.
+     *
+     * @param channel The name of the channel
+     */
+    public void listen(String channel) throws SQLException {
+        channels.add(channel);
+
+        try {
+            awaitSync();
+        } catch (SQLException e) {
+            channels.remove(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops listening to a channel, waiting until the server has confirmed it. Notifications of the channel that are
+     * already queued are kept.
+     *
+     * @param channel The name of the channel
+     */
+    public void unlisten(String channel) throws SQLException {
+        channels.remove(channel);
+        awaitSync();
+    }
+
+    public boolean isListening(String channel) {
+        return channels.contains(channel);
+    }
+
+    /**
+     * Waits for the background thread to apply the current channels to its connection.
+     */
+    private void awaitSync() throws SQLException {
+        try {
+            nextSync.get(SYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+
+            throw new SQLException("Failed to update listened channels", e.getCause());
+        } catch (TimeoutException e) {
+            throw new SQLTimeoutException("Timed out after %dms waiting for the notification connection".formatted(SYNC_TIMEOUT_MILLIS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the notification connection", e);
+        }
+    }
+
+    /**
+     * Takes the queued notifications without waiting.
+     *
+     * @param max The most notifications to take
+     * @return The notifications, oldest first
+     */
+    public List<Notification> poll(int max) {
+        var notifications = new ArrayList<Notification>();
+        queue.drainTo(notifications, max);
+        return notifications;
+    }
+
+    /**
+     * Takes the queued notifications, waiting for one to arrive if none are queued.
+     *
+     * @param timeoutMillis The longest to wait for a notification
+     * @param max           The most notifications to take
+     * @return The notifications, oldest first, which are empty if none arrived in time
+     */
+    public List<Notification> await(long timeoutMillis, int max) {
+        var notifications = poll(max);
+        if (!notifications.isEmpty() || timeoutMillis <= 0) {
+            return notifications;
+        }
+
+        try {
+            var first = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                notifications.add(first);
+                queue.drainTo(notifications, max - 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return notifications;
+    }
+
+    /**
+     * Gets the amount of notifications queued and not yet taken.
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    private void run() {
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+
+        while (!closed) {
+            try {
+                if (connection == null) {
+                    connection = pool.openDedicatedConnection();
+                    listenedChannels.clear();
+                }
+
+                syncChannels();
+                receive();
+                backoffMillis = INITIAL_BACKOFF_MILLIS;
+            } catch (SQLException e) {
+                if (closed) {
+                    break;
+                }
+
+                LOGGER.warn("Notification connection failed, reconnecting in {}ms: {}", backoffMillis, e.getMessage());
+                failSync(e);
+                closeConnection();
+                sleep(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+
+        closeConnection();
+        failSync(new SQLException("Notification listener is closed"));
+    }
+
+    /**
+     * Listens and unlistens on the connection until it matches {@link #channels}, then completes the pending sync.
+     */
+    private void syncChannels() throws SQLException {
+        var sync = nextSync;
+        nextSync = new CompletableFuture<>();
+
+        try {
+            var wanted = Set.copyOf(channels);
+            if (wanted.equals(listenedChannels)) {
+                sync.complete(null);
+                return;
+            }
+
+            try (var statement = connection.createStatement()) {
+                for (var channel : wanted) {
+                    if (listenedChannels.add(channel)) {
+                        statement.execute("LISTEN " + quoteIdentifier(channel));
+                    }
+                }
+
+                for (var iterator = listenedChannels.iterator(); iterator.hasNext(); ) {
+                    var channel = iterator.next();
+                    if (!wanted.contains(channel)) {
+                        statement.execute("UNLISTEN " + quoteIdentifier(channel));
+                        iterator.remove();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            // Whatever was in flight is unknown, so everything is listened to again after reconnecting
+            sync.completeExceptionally(e);
+            throw e;
+        }
+
+        sync.complete(null);
+    }
+
+    /**
+     * Blocks for notifications for up to {@link #POLL_MILLIS}, and queues them.
+     */
+    private void receive() throws SQLException {
+        var notifications = connection.unwrap(PGConnection.class).getNotifications(POLL_MILLIS);
+        if (notifications == null) {
+            return;
+        }
+
+        for (var notification : notifications) {
+            var copied = new Notification(notification.getName(), notification.getParameter(), notification.getPID());
+
+            try {
+                while (!queue.offer(copied, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void failSync(SQLException exception) {
+        var sync = nextSync;
+        nextSync = new CompletableFuture<>();
+        sync.completeExceptionally(exception);
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Failed to close notification connection", e);
+        }
+
+        connection = null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // Woken up by close()
+        }
+    }
+
+    /**
+     * Quotes a channel name as an identifier, so it is used exactly as given, matching how pg_notify() takes it.
+     */
+    static String quoteIdentifier(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Stops the background thread and closes the connection. Notifications still queued can still be taken.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+}
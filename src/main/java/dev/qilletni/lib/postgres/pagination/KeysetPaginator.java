@@ -0,0 +1,228 @@
+package dev.qilletni.lib.postgres.pagination;
+
+import dev.qilletni.api.lang.types.EntityType;
+import dev.qilletni.lib.postgres.decode.ColumnLookup;
+import dev.qilletni.lib.postgres.exceptions.InvalidPaginationException;
+import dev.qilletni.lib.postgres.pool.PooledConnection;
+import dev.qilletni.lib.postgres.statement.StatementCache;
+import dev.qilletni.lib.postgres.statement.StatementTimeout;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The state behind a Qilletni Paginator entity, which reads a query's rows a page at a time by keyset instead of
+ * {@code OFFSET}. The query is wrapped so each page after the first continues from the key of the last row read:
+ * <pre>{@code
+ * SELECT * FROM (query) AS keyset_page WHERE (k1, k2) > (?, ?) ORDER BY k1, k2 LIMIT n
+ * }</pre>
+ * With an index on the keys, the server seeks straight to the next page, so every page costs the same no matter how
+ * far in it is. Every page after the first runs the same SQL, so they share one statement from the connection's
+ * {@link StatementCache}.
+ * <p>
+ * The keys must uniquely identify a row and never be null, or rows sharing a key across a page boundary are skipped.
+ * One more row than a page is read, to know if there is a next page without reading an empty one.
+ */
+public class KeysetPaginator {
+
+    private final List<String> keyColumns;
+    private final int pageSize;
+    private final String firstPageSql;
+    private final String nextPageSql;
+    private final PageReader pageReader;
+
+    private ColumnLookup columnLookup;
+    private int[] keyIndexes;
+    private Object[] lastKey;
+    private boolean exhausted;
+    private int pages;
+
+    /**
+     * Creates a paginator, which reads nothing until the first page is asked for.
+     *
+     * @param query      The query to page through. It runs as a subquery of every page, so its own LIMIT and OFFSET
+     *                   still cut down the rows paged through, while its own ORDER BY only costs a sort
+     * @param keyColumns The columns of the query's result to order and continue pages by
+     * @param pageSize   The amount of rows in each page
+     * @param descending If the rows are ordered by descending keys, instead of ascending
+     * @param pageReader Reads a page on the connection the paginator was created by
+     */
+    public KeysetPaginator(String query, List<String> keyColumns, int pageSize, boolean descending, PageReader pageReader) {
+        if (keyColumns.isEmpty()) {
+            throw new InvalidPaginationException("At least one key column is required to paginate by");
+        }
+
+        if (pageSize < 1) {
+            throw new InvalidPaginationException("The page size must be at least 1, got %d".formatted(pageSize));
+        }
+
+        this.keyColumns = List.copyOf(keyColumns);
+        this.pageSize = pageSize;
+        this.pageReader = pageReader;
+
+        // A trailing semicolon would end the statement inside the parentheses
+        var trimmedQuery = query.strip().replaceAll(";+$", "");
+        var keys = String.join(", ", keyColumns);
+        var order = keyColumns.stream().map(column -> descending ? column + " DESC" : column).collect(Collectors.joining(", "));
+        var parameters = keyColumns.stream().map(column -> "?").collect(Collectors.joining(", "));
+
+        firstPageSql = "SELECT * FROM (%s) AS keyset_page ORDER BY %s LIMIT %d".formatted(trimmedQuery, order, pageSize + 1);
+        nextPageSql = "SELECT * FROM (%s) AS keyset_page WHERE (%s) %s (%s) ORDER BY %s LIMIT %d"
+                .formatted(trimmedQuery, keys, descending ? "<" : ">", parameters, order, pageSize + 1);
+    }
+
+    /**
+     * Reads the next page through the reader the paginator was created with.
+     *
+     * @return The Result entity of the page
+     */
+    public EntityType nextPage() {
+        return pageReader.read(this);
+    }
+
+    /**
+     * Gets the SQL the next page is read with.
+     */
+    public String getSql() {
+        return lastKey == null ? firstPageSql : nextPageSql;
+    }
+
+    /**
+     * Gets the SQL every page after the first is read with, whose parameters are the key of the last row read.
+     */
+    String getNextPageSql() {
+        return nextPageSql;
+    }
+
+    /**
+     * Reads the rows of the next page, continuing from the last key read. Once the rows run out, this returns an
+     * empty page without running anything.
+     *
+     * @param target        The connection to read on, whose statement cache the page's statement comes from
+     * @param timeoutMillis The timeout of the page's query, or 0 for no timeout
+     * @return The rows of the page, as plain Java values
+     */
+    public List<List<Object>> readPage(PooledConnection target, long timeoutMillis) throws SQLException {
+        if (exhausted) {
+            return List.of();
+        }
+
+        var rows = new ArrayList<List<Object>>(Math.min(pageSize, 1024));
+
+        var statementHandle = target.statementCache().prepare(getSql());
+
+        try {
+            var statement = statementHandle.getStatement();
+
+            if (lastKey != null) {
+                for (int i = 0; i < lastKey.length; i++) {
+                    statement.setObject(i + 1, lastKey[i]);
+                }
+            }
+
+            target.applyStatementTimeout(timeoutMillis);
+            try (var timeout = StatementTimeout.start(statement, timeoutMillis);
+                 var resultSet = statement.executeQuery()) {
+                if (columnLookup == null) {
+                    findKeys(resultSet);
+                }
+
+                Object[] pageLastKey = null;
+                boolean hasMore = false;
+                while (resultSet.next()) {
+                    if (rows.size() == pageSize) {
+                        // The extra row only tells that there is another page
+                        hasMore = true;
+                        break;
+                    }
+
+                    rows.add(columnLookup.rowDecoder().decodeRow(resultSet));
+                    pageLastKey = readKey(resultSet);
+                }
+
+                exhausted = !hasMore;
+                if (pageLastKey != null) {
+                    lastKey = pageLastKey;
+                }
+            }
+        } finally {
+            statementHandle.close();
+        }
+
+        pages++;
+        return rows;
+    }
+
+    /**
+     * Finds the key columns in the query's result, and builds the decoder plan every page shares.
+     */
+    private void findKeys(ResultSet resultSet) throws SQLException {
+        var metaData = resultSet.getMetaData();
+        var labels = new ArrayList<String>(metaData.getColumnCount());
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            labels.add(metaData.getColumnLabel(column));
+        }
+
+        var lookup = ColumnLookup.create(resultSet, labels);
+        var indexes = new int[keyColumns.size()];
+
+        for (int i = 0; i < indexes.length; i++) {
+            var keyColumn = keyColumns.get(i);
+            var label = keyColumn.startsWith("\"") && keyColumn.endsWith("\"") ? keyColumn.substring(1, keyColumn.length() - 1) : keyColumn;
+            indexes[i] = lookup.indexOf(label);
+
+            if (indexes[i] == -1) {
+                throw new InvalidPaginationException("The key column %s is not in the query's result".formatted(keyColumn));
+            }
+        }
+
+        columnLookup = lookup;
+        keyIndexes = indexes;
+    }
+
+    /**
+     * Reads the key of the current row as the driver's own values, so they bind back exactly as they were read.
+     */
+    private Object[] readKey(ResultSet resultSet) throws SQLException {
+        var key = new Object[keyIndexes.length];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = resultSet.getObject(keyIndexes[i]);
+        }
+
+        return key;
+    }
+
+    /**
+     * Checks if there is another page, which is false once the last page has been read.
+     */
+    public boolean hasNextPage() {
+        return !exhausted;
+    }
+
+    /**
+     * Gets the amount of pages read since the paginator was created or reset.
+     */
+    public int getPages() {
+        return pages;
+    }
+
+    /**
+     * Goes back to before the first page.
+     */
+    public void reset() {
+        lastKey = null;
+        exhausted = false;
+        pages = 0;
+    }
+
+    /**
+     * Reads a page of a paginator, creating its Result entity.
+     */
+    @FunctionalInterface
+    public interface PageReader {
+        EntityType read(KeysetPaginator paginator);
+    }
+}
@@ -0,0 +1,692 @@
+package dev.qilletni.lib.postgres.pool;
+
+import dev.qilletni.lib.postgres.metrics.QueryMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of physical connections to a single database. Idle connections are handed out most recently used
+ * first, so that surplus connections age out through the idle timeout when load drops.
+ * <p>
+ * Connections topping the pool up to its minimum size are opened in parallel on virtual threads, so the handshakes
+ * overlap instead of adding up. Every connection the pool opens is warmed up by its {@link WarmUp} first.
+ * <p>
+ * Maintenance passes of every pool are scheduled by one shared thread, but each pass runs on a virtual thread of its
+ * own, so a database that is slow to connect to only holds up its own pool. A pool never runs two passes at once.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * Connections used more recently than this are trusted without a validity round trip when borrowed.
+     */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 5_000;
+
+    private static final ScheduledExecutorService MAINTENANCE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "qilletni-postgres-pool-maintenance-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private volatile PoolConfig config;
+    private final Properties connectionProperties = new Properties();
+    private volatile int propertiesGeneration;
+    private volatile WarmUp warmUp = WarmUp.NONE;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private int totalConnections;
+    private int activeConnections;
+    private int waitingBorrowers;
+    private boolean closed;
+
+    private final ScheduledFuture<?> maintenanceTask;
+
+    /**
+     * The maintenance passes asked for and not yet run. Only the request finding this at 0 starts a pass, which keeps
+     * running passes until every request made meanwhile has been served.
+     */
+    private final AtomicInteger maintenanceRequests = new AtomicInteger();
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder coldFirstQueries = new LongAdder();
+    private final LongAdder coldFirstQueryNanos = new LongAdder();
+    private final LongAdder warmFirstQueries = new LongAdder();
+    private final LongAdder warmFirstQueryNanos = new LongAdder();
+
+    private final QueryMetrics queryMetrics = new QueryMetrics();
+
+    public ConnectionPool(String url, String username, String password, PoolConfig config) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.config = config;
+
+        maintenanceTask = MAINTENANCE_SCHEDULER.scheduleWithFixedDelay(this::requestMaintenance, 0, MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the metrics of every statement run on a connection from this pool.
+     */
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Replaces the pool's configuration. Existing connections are kept, and are trimmed or retired by the next
+     * maintenance pass according to the new settings.
+     *
+     * @param config The new configuration
+     */
+    public void reconfigure(PoolConfig config) {
+        lock.lock();
+        try {
+            this.config = config;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        requestMaintenance();
+    }
+
+    /**
+     * Sets a pgjdbc connection property used when opening connections. Connections opened with the previous
+     * properties are closed instead of being reused, once they are idle.
+     *
+     * @param key   The name of the property
+     * @param value The value of the property
+     */
+    public void setConnectionProperty(String key, String value) {
+        lock.lock();
+        try {
+            connectionProperties.setProperty(key, value);
+            propertiesGeneration++;
+        } finally {
+            lock.unlock();
+        }
+
+        requestMaintenance();
+    }
+
+    /**
+     * Warms up the pool right away, then keeps warming up every connection it opens the same way. As many connections
+     * as the pool's minimum size, and at least one, are borrowed in parallel on virtual threads, opening any that are
+     * missing, and each is warmed up before they are all released. Idle connections beyond those borrowed stay cold.
+     *
+     * @param warmUp How to warm up connections
+     * @return What warming up did
+     * @throws SQLException If a connection couldn't be opened or warmed up, such as if a statement is invalid, in which
+     *                      case connections opened later keep the previous warm-up
+     */
+    public WarmUpStatistics warmUp(WarmUp warmUp) throws SQLException {
+        long start = System.nanoTime();
+        long createdBefore = createdCount.sum();
+        int count;
+
+        lock.lock();
+        try {
+            count = Math.min(Math.max(config.minSize(), 1), config.maxSize() - activeConnections);
+        } finally {
+            lock.unlock();
+        }
+
+        var borrowed = new ArrayList<PooledConnection>(Math.max(count, 0));
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Every connection is held until all are borrowed, so none is borrowed twice
+            var borrows = new ArrayList<Future<PooledConnection>>();
+            for (int i = 0; i < count; i++) {
+                borrows.add(executor.submit(this::borrow));
+            }
+
+            SQLException failure = null;
+            for (var borrow : borrows) {
+                try {
+                    borrowed.add(awaitWarmUp(borrow));
+                } catch (SQLException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+
+            if (failure == null) {
+                var warmUps = new ArrayList<Future<PooledConnection>>(borrowed.size());
+                for (var pooledConnection : borrowed) {
+                    warmUps.add(executor.submit(() -> {
+                        if (pooledConnection.warmUp() != warmUp) {
+                            warmUp.apply(pooledConnection);
+                        }
+
+                        return pooledConnection;
+                    }));
+                }
+
+                for (var future : warmUps) {
+                    try {
+                        awaitWarmUp(future);
+                    } catch (SQLException e) {
+                        failure = failure == null ? e : failure;
+                    }
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+
+            // Only kept once it worked, so an invalid statement isn't retried on every connection opened later
+            this.warmUp = warmUp;
+        } finally {
+            borrowed.forEach(this::release);
+        }
+
+        return new WarmUpStatistics(borrowed.size(), createdCount.sum() - createdBefore, warmUp.statements().size(), (System.nanoTime() - start) / 1_000_000D);
+    }
+
+    private static PooledConnection awaitWarmUp(Future<PooledConnection> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while warming up the connection pool", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+
+            throw new SQLException("Unable to warm up the connection pool", e.getCause());
+        }
+    }
+
+    /**
+     * Records how long the first statement run on one of the pool's connections took, split by whether the connection
+     * was warmed up.
+     *
+     * @param pooledConnection The connection the statement ran on
+     * @param nanos            How long the statement took
+     */
+    void recordFirstQuery(PooledConnection pooledConnection, long nanos) {
+        if (pooledConnection.warmUp() != null) {
+            warmFirstQueries.increment();
+            warmFirstQueryNanos.add(nanos);
+        } else {
+            coldFirstQueries.increment();
+            coldFirstQueryNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none are idle and the pool is below its maximum size. If the pool is
+     * exhausted, this waits up to the configured borrow timeout for a connection to be released.
+     *
+     * @return The borrowed connection, which must be given back through {@link #release(PooledConnection)}
+     * @throws SQLException If no connection could be acquired or opened in time
+     */
+    public PooledConnection borrow() throws SQLException {
+        long start = System.nanoTime();
+        var pooledConnection = acquire(start);
+
+        long elapsed = System.nanoTime() - start;
+        borrowCount.increment();
+        borrowNanos.add(elapsed);
+        maxBorrowNanos.accumulateAndGet(elapsed, Math::max);
+
+        return pooledConnection;
+    }
+
+    private PooledConnection acquire(long start) throws SQLException {
+        var currentConfig = config;
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(currentConfig.borrowTimeoutMillis());
+
+        while (true) {
+            PooledConnection candidate = null;
+
+            lock.lock();
+            try {
+                awaitCapacity(currentConfig, deadline);
+
+                if (idleConnections.isEmpty()) {
+                    totalConnections++;
+                } else {
+                    candidate = idleConnections.pollFirst();
+                }
+
+                activeConnections++;
+            } finally {
+                lock.unlock();
+            }
+
+            if (candidate == null) {
+                try {
+                    return openConnection();
+                } catch (SQLException e) {
+                    discard(null);
+                    throw e;
+                }
+            }
+
+            if (isUsable(candidate, currentConfig)) {
+                candidate.touch();
+                return candidate;
+            }
+
+            discard(candidate);
+        }
+    }
+
+    /**
+     * Blocks until there is an idle connection or room to open a new one. Must be called while holding the lock.
+     */
+    private void awaitCapacity(PoolConfig currentConfig, long deadline) throws SQLException {
+        boolean counted = false;
+
+        try {
+            while (!closed && idleConnections.isEmpty() && totalConnections >= config.maxSize()) {
+                if (!counted) {
+                    if (waitingBorrowers >= currentConfig.maxWaiting()) {
+                        borrowTimeouts.increment();
+                        throw new SQLTransientConnectionException("Connection pool wait queue is full (%d waiting)".formatted(waitingBorrowers));
+                    }
+
+                    waitingBorrowers++;
+                    counted = true;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    borrowTimeouts.increment();
+                    throw new SQLTransientConnectionException("Timed out after %dms waiting for a pooled connection".formatted(currentConfig.borrowTimeoutMillis()));
+                }
+
+                available.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        } finally {
+            if (counted) {
+                waitingBorrowers--;
+            }
+        }
+
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooledConnection, PoolConfig currentConfig) {
+        long now = System.nanoTime();
+        if (isStale(pooledConnection, currentConfig, now)) {
+            return false;
+        }
+
+        if (pooledConnection.idleMillis(now) < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+
+        try {
+            return pooledConnection.connection().isValid(currentConfig.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gives a borrowed connection back to the pool. Any open transaction is rolled back; connections that are broken
+     * or past their lifetime are closed instead of being reused.
+     *
+     * @param pooledConnection The connection to release
+     */
+    public void release(PooledConnection pooledConnection) {
+        boolean reusable = resetState(pooledConnection) && !isStale(pooledConnection, config, System.nanoTime());
+
+        lock.lock();
+        try {
+            if (reusable && !closed) {
+                activeConnections--;
+                pooledConnection.touch();
+                idleConnections.addFirst(pooledConnection);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        discard(pooledConnection);
+    }
+
+    /**
+     * Checks if a connection must be retired, either due to its age or because it was opened with outdated properties.
+     */
+    private boolean isStale(PooledConnection pooledConnection, PoolConfig currentConfig, long now) {
+        return pooledConnection.isExpired(currentConfig.maxLifetimeMillis(), now) || pooledConnection.propertiesGeneration() != propertiesGeneration;
+    }
+
+    private boolean resetState(PooledConnection pooledConnection) {
+        var connection = pooledConnection.connection();
+
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+
+            pooledConnection.resetStatementTimeout();
+            connection.clearWarnings();
+            pooledConnection.statementCache().revokeLeases();
+            return true;
+        } catch (SQLException e) {
+            LOGGER.debug("Discarding pooled connection that failed to reset", e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes an active connection from the pool's accounting and closes it.
+     *
+     * @param pooledConnection The connection to close, or null if the connection never got opened
+     */
+    private void discard(PooledConnection pooledConnection) {
+        lock.lock();
+        try {
+            activeConnections--;
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (pooledConnection != null) {
+            pooledConnection.closePhysical();
+            destroyedCount.increment();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Properties properties;
+        int generation;
+
+        lock.lock();
+        try {
+            properties = createProperties();
+            generation = propertiesGeneration;
+        } finally {
+            lock.unlock();
+        }
+
+        Connection connection = DriverManager.getConnection(url, properties);
+        createdCount.increment();
+
+        var pooledConnection = new PooledConnection(this, connection, generation);
+        var currentWarmUp = warmUp;
+
+        if (currentWarmUp != WarmUp.NONE) {
+            try {
+                currentWarmUp.apply(pooledConnection);
+            } catch (SQLException e) {
+                // The connection itself is fine, so it's handed out cold rather than failing whoever needs it
+                LOGGER.warn("Unable to warm up connection to {}: {}", url, e.getMessage());
+            }
+        }
+
+        return pooledConnection;
+    }
+
+    /**
+     * Opens a connection with the pool's URL, credentials and properties that isn't part of the pool, for something
+     * holding a connection indefinitely, such as listening for notifications. The caller must close it.
+     *
+     * @return The opened connection
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        Properties properties;
+
+        lock.lock();
+        try {
+            properties = createProperties();
+        } finally {
+            lock.unlock();
+        }
+
+        return DriverManager.getConnection(url, properties);
+    }
+
+    /**
+     * Creates the properties to open a connection with. Must be called while holding the lock.
+     */
+    private Properties createProperties() {
+        var properties = new Properties();
+        properties.putAll(connectionProperties);
+
+        if (!username.isBlank() || !password.isBlank()) {
+            properties.setProperty("user", username);
+            properties.setProperty("password", password);
+        }
+
+        return properties;
+    }
+
+    /**
+     * Asks for a maintenance pass, starting one on a virtual thread unless one is already running.
+     */
+    private void requestMaintenance() {
+        if (maintenanceRequests.getAndIncrement() == 0) {
+            Thread.ofVirtual().name("qilletni-postgres-pool-maintenance").start(this::runMaintenance);
+        }
+    }
+
+    private void runMaintenance() {
+        int served;
+
+        do {
+            served = maintenanceRequests.get();
+
+            try {
+                maintain();
+            } catch (RuntimeException e) {
+                // Thrown away with the thread otherwise, and the next pass may well succeed
+                LOGGER.warn("Maintenance of the connection pool to {} failed", url, e);
+            }
+        } while (maintenanceRequests.addAndGet(-served) > 0);
+    }
+
+    /**
+     * Closes connections that have been idle too long or outlived their lifetime, then tops the pool back up to its
+     * minimum size.
+     */
+    void maintain() {
+        var currentConfig = config;
+        var evicted = new ArrayList<PooledConnection>();
+        int toOpen;
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            long now = System.nanoTime();
+
+            // The least recently used connections sit at the tail
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext()) {
+                var pooledConnection = iterator.next();
+                boolean surplus = totalConnections - evicted.size() > currentConfig.minSize();
+                boolean idleTooLong = currentConfig.idleTimeoutMillis() > 0 && pooledConnection.idleMillis(now) >= currentConfig.idleTimeoutMillis();
+                boolean oversized = totalConnections - evicted.size() > currentConfig.maxSize();
+
+                if (isStale(pooledConnection, currentConfig, now) || oversized || (surplus && idleTooLong)) {
+                    iterator.remove();
+                    evicted.add(pooledConnection);
+                }
+            }
+
+            totalConnections -= evicted.size();
+            toOpen = Math.max(0, currentConfig.minSize() - totalConnections);
+            totalConnections += toOpen;
+        } finally {
+            lock.unlock();
+        }
+
+        evicted.forEach(pooledConnection -> {
+            pooledConnection.closePhysical();
+            destroyedCount.increment();
+        });
+
+        fill(toOpen);
+    }
+
+    /**
+     * Opens connections that have already been reserved in {@link #totalConnections} in parallel, and adds them to the
+     * idle set. Returns once every connection has been opened or has failed to.
+     */
+    private void fill(int reserved) {
+        if (reserved == 0) {
+            return;
+        }
+
+        var failures = new AtomicInteger();
+        var lastFailure = new AtomicReference<SQLException>();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < reserved; i++) {
+                executor.execute(() -> {
+                    try {
+                        fillOne();
+                    } catch (SQLException e) {
+                        failures.incrementAndGet();
+                        lastFailure.set(e);
+                    }
+                });
+            }
+        }
+
+        if (failures.get() > 0) {
+            LOGGER.warn("Unable to open {} of {} connections to {} while filling pool: {}", failures.get(), reserved, url, lastFailure.get().getMessage());
+        }
+    }
+
+    /**
+     * Opens a single reserved connection, giving its reservation back if it couldn't be opened.
+     */
+    private void fillOne() throws SQLException {
+        PooledConnection pooledConnection;
+
+        try {
+            pooledConnection = openConnection();
+        } catch (SQLException e) {
+            lock.lock();
+            try {
+                totalConnections--;
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            if (!closed) {
+                idleConnections.addLast(pooledConnection);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        pooledConnection.closePhysical();
+    }
+
+    public PoolStatistics getStatistics() {
+        lock.lock();
+        try {
+            long borrows = borrowCount.sum();
+            double averageBorrowMillis = borrows == 0 ? 0 : borrowNanos.sum() / (double) borrows / 1_000_000D;
+            long coldQueries = coldFirstQueries.sum();
+            long warmQueries = warmFirstQueries.sum();
+            double coldFirstQueryMillis = coldQueries == 0 ? 0 : coldFirstQueryNanos.sum() / (double) coldQueries / 1_000_000D;
+            double warmFirstQueryMillis = warmQueries == 0 ? 0 : warmFirstQueryNanos.sum() / (double) warmQueries / 1_000_000D;
+
+            return new PoolStatistics(activeConnections, idleConnections.size(), waitingBorrowers, totalConnections, borrows, averageBorrowMillis, maxBorrowNanos.get() / 1_000_000D, borrowTimeouts.sum(), createdCount.sum(), destroyedCount.sum(),
+                    coldQueries, coldFirstQueryMillis, warmQueries, warmFirstQueryMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the pool. Borrowed connections are closed as they are released.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            toClose = new ArrayList<>(idleConnections);
+            totalConnections -= idleConnections.size();
+            idleConnections.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        maintenanceTask.cancel(false);
+        toClose.forEach(pooledConnection -> {
+            pooledConnection.closePhysical();
+            destroyedCount.increment();
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package dev.qilletni.lib.postgres.pool;
+
+/**
+ * The sizing and lifecycle settings of a {@link ConnectionPool}.
+ *
+ * @param minSize                  The amount of connections kept open even when idle
+ * @param maxSize                  The maximum amount of connections open at once
+ * @param idleTimeoutMillis        How long a connection may sit idle before it is closed, if above {@link #minSize}
+ * @param maxLifetimeMillis        How long a connection may live in total before it is retired
+ * @param borrowTimeoutMillis      How long a borrow may wait for a free connection before failing
+ * @param maxWaiting               The maximum amount of borrowers that may wait at once, further borrows fail instantly
+ * @param validationTimeoutSeconds The timeout of the validity check done when borrowing a connection
+ */
+public record PoolConfig(int minSize, int maxSize, long idleTimeoutMillis, long maxLifetimeMillis, long borrowTimeoutMillis, int maxWaiting, int validationTimeoutSeconds) {
+
+    public static final PoolConfig DEFAULT = new PoolConfig(0, 10, 600_000, 1_800_000, 30_000, 64, 5);
+
+    public PoolConfig {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size, expected 0 <= minSize <= maxSize and maxSize >= 1, got min %d and max %d".formatted(minSize, maxSize));
+        }
+    }
+
+    public PoolConfig withSize(int minSize, int maxSize) {
+        return new PoolConfig(minSize, maxSize, idleTimeoutMillis, maxLifetimeMillis, borrowTimeoutMillis, maxWaiting, validationTimeoutSeconds);
+    }
+
+    public PoolConfig withTimeouts(long idleTimeoutMillis, long maxLifetimeMillis, long borrowTimeoutMillis, int maxWaiting) {
+        return new PoolConfig(minSize, maxSize, idleTimeoutMillis, maxLifetimeMillis, borrowTimeoutMillis, maxWaiting, validationTimeoutSeconds);
+    }
+}
@@ -0,0 +1,23 @@
+package dev.qilletni.lib.postgres.pool;
+
+/**
+ * A point-in-time snapshot of a {@link ConnectionPool}.
+ *
+ * @param active               Connections currently borrowed
+ * @param idle                 Connections open and ready to be borrowed
+ * @param waiting              Borrowers currently waiting for a connection
+ * @param total                All connections owned by the pool, including ones being opened
+ * @param borrowCount          How many borrows have succeeded
+ * @param averageBorrowMillis  The mean time a successful borrow took
+ * @param maxBorrowMillis      The longest time a successful borrow took
+ * @param borrowTimeouts       How many borrows timed out or were rejected by a full wait queue
+ * @param created              How many physical connections have been opened
+ * @param destroyed            How many physical connections have been closed
+ * @param coldFirstQueries     How many connections ran their first statement without being warmed up
+ * @param coldFirstQueryMillis The mean time the first statement of a connection that wasn't warmed up took
+ * @param warmFirstQueries     How many connections ran their first statement after being warmed up
+ * @param warmFirstQueryMillis The mean time the first statement of a warmed up connection took
+ */
+public record PoolStatistics(int active, int idle, int waiting, int total, long borrowCount, double averageBorrowMillis, double maxBorrowMillis, long borrowTimeouts, long created, long destroyed,
+                             long coldFirstQueries, double coldFirstQueryMillis, long warmFirstQueries, double warmFirstQueryMillis) {
+}
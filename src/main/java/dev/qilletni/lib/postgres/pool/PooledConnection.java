@@ -0,0 +1,145 @@
+package dev.qilletni.lib.postgres.pool;
+
+import dev.qilletni.lib.postgres.statement.StatementCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}, along with the timestamps the pool needs to retire it and
+ * the statements cached on it.
+ */
+public class PooledConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledConnection.class);
+
+    private static final long UNKNOWN_STATEMENT_TIMEOUT = -1;
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final int propertiesGeneration;
+    private final long createdAt;
+    private volatile long lastUsedAt;
+    private volatile WarmUp warmUp;
+    private boolean queried;
+
+    /**
+     * The statement_timeout last set on the session, or {@link #UNKNOWN_STATEMENT_TIMEOUT} if a rollback may have
+     * reverted it. 0 stands for the session's default, whatever the server or role configures it as, which is where a
+     * new connection starts.
+     */
+    private long statementTimeoutMillis;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int propertiesGeneration) {
+        this.pool = pool;
+        this.connection = connection;
+        this.propertiesGeneration = propertiesGeneration;
+        this.statementCache = new StatementCache(connection);
+        this.createdAt = System.nanoTime();
+        this.lastUsedAt = createdAt;
+    }
+
+    public Connection connection() {
+        return connection;
+    }
+
+    public StatementCache statementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Sets the server-side statement_timeout of the session, only talking to the server if it differs from the last
+     * one set.
+     *
+     * @param timeoutMillis The timeout in milliseconds, or 0 to leave the session's default in place
+     */
+    public void applyStatementTimeout(long timeoutMillis) throws SQLException {
+        if (statementTimeoutMillis == timeoutMillis) {
+            return;
+        }
+
+        try (var statement = connection.createStatement()) {
+            // The server's default isn't necessarily 0, so no timeout of our own means going back to it
+            statement.execute(timeoutMillis == 0 ? "RESET statement_timeout" : "SET statement_timeout = " + timeoutMillis);
+        }
+
+        statementTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Forgets the statement_timeout last set, as a SET run inside a transaction is undone when it is rolled back.
+     */
+    public void forgetStatementTimeout() {
+        statementTimeoutMillis = UNKNOWN_STATEMENT_TIMEOUT;
+    }
+
+    /**
+     * Resets the session's statement_timeout to the server default, if it was changed.
+     */
+    void resetStatementTimeout() throws SQLException {
+        applyStatementTimeout(0);
+    }
+
+    /**
+     * Gets the warm-up last applied to the connection, or null if it was never warmed up.
+     */
+    WarmUp warmUp() {
+        return warmUp;
+    }
+
+    void markWarmedUp(WarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Checks if no statement has been recorded on the connection yet, through {@link #recordQuery(long)}.
+     */
+    public boolean isFirstQuery() {
+        return !queried;
+    }
+
+    /**
+     * Records a statement run on the connection. Only the first one counts, towards its pool's time-to-first-query.
+     *
+     * @param nanos How long the statement took
+     */
+    public void recordQuery(long nanos) {
+        if (queried) {
+            return;
+        }
+
+        queried = true;
+        pool.recordFirstQuery(this, nanos);
+    }
+
+    int propertiesGeneration() {
+        return propertiesGeneration;
+    }
+
+    void touch() {
+        lastUsedAt = System.nanoTime();
+    }
+
+    long idleMillis(long now) {
+        return TimeUnit.NANOSECONDS.toMillis(now - lastUsedAt);
+    }
+
+    boolean isExpired(long maxLifetimeMillis, long now) {
+        return maxLifetimeMillis > 0 && TimeUnit.NANOSECONDS.toMillis(now - createdAt) >= maxLifetimeMillis;
+    }
+
+    /**
+     * Closes the underlying connection, swallowing any error since the connection is being discarded anyway.
+     */
+    void closePhysical() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Error while closing pooled connection", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.qilletni.lib.postgres.pool;
+
+import org.postgresql.PGStatement;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.jdbc.TypeInfoCache;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * What a {@link ConnectionPool} does to each connection it opens before handing it out, so the first queries run on it
+ * don't pay for work that can be done ahead of time.
+ * <p>
+ * Each statement is put in the connection's {@link dev.qilletni.lib.postgres.statement.StatementCache} and described
+ * by the server, which parses it and resolves its parameter types without running it. Its prepareThreshold is lowered
+ * to 1, so its first execution already uses a named server-side statement instead of running unnamed until pgjdbc's
+ * threshold is crossed. Only SQL later passed to {@code prepareStatement()} with the exact same text benefits.
+ *
+ * @param statements   The SQL of the statements to prepare
+ * @param preloadTypes If every type's OID is loaded into pgjdbc's type cache in one query, instead of one lookup for
+ *                     each type the first time a column of it is read
+ */
+public record WarmUp(List<String> statements, boolean preloadTypes) {
+
+    public static final WarmUp NONE = new WarmUp(List.of(), false);
+
+    public WarmUp {
+        statements = List.copyOf(statements);
+    }
+
+    /**
+     * Warms up a connection, which is marked as warmed once every step succeeded.
+     *
+     * @param pooledConnection The connection to warm up, which must not be in use
+     */
+    void apply(PooledConnection pooledConnection) throws SQLException {
+        var connection = pooledConnection.connection();
+
+        if (preloadTypes && connection.isWrapperFor(BaseConnection.class)
+                && connection.unwrap(BaseConnection.class).getTypeInfo() instanceof TypeInfoCache typeInfoCache) {
+            typeInfoCache.cacheSQLTypes();
+        }
+
+        for (var sql : statements) {
+            var statementHandle = pooledConnection.statementCache().prepare(sql);
+
+            try {
+                var statement = statementHandle.getStatement();
+
+                if (statement.isWrapperFor(PGStatement.class)) {
+                    statement.unwrap(PGStatement.class).setPrepareThreshold(1);
+                }
+
+                statement.getParameterMetaData();
+            } finally {
+                statementHandle.close();
+            }
+        }
+
+        pooledConnection.markWarmedUp(this);
+    }
+}
@@ -0,0 +1,12 @@
+package dev.qilletni.lib.postgres.pool;
+
+/**
+ * What a {@link ConnectionPool#warmUp(WarmUp)} call did.
+ *
+ * @param connections How many connections were warmed up, including ones opened for it
+ * @param opened      How many connections were opened for it
+ * @param statements  How many statements were prepared on each connection
+ * @param millis      How long warming up took
+ */
+public record WarmUpStatistics(int connections, long opened, int statements, double millis) {
+}
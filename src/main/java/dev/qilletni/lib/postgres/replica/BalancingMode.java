@@ -0,0 +1,45 @@
+package dev.qilletni.lib.postgres.replica;
+
+import dev.qilletni.lib.postgres.exceptions.InvalidReplicaConfigurationException;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * How a {@link ReplicaRouter} picks the replica a read goes to.
+ */
+public enum BalancingMode {
+    /**
+     * The replica with the fewest reads in flight.
+     */
+    LEAST_OUTSTANDING("least_outstanding"),
+
+    /**
+     * The replica with the lowest moving average latency, scaled by the reads in flight so that a fast replica isn't
+     * piled onto until it slows down.
+     */
+    EWMA("ewma");
+
+    private final String name;
+
+    BalancingMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets a balancing mode by its name, ignoring case.
+     *
+     * @param name The name of the mode, such as "ewma"
+     * @return The balancing mode
+     */
+    public static BalancingMode fromName(String name) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.name.equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new InvalidReplicaConfigurationException("Unknown balancing mode %s, expected one of %s".formatted(name, Arrays.stream(values()).map(BalancingMode::getName).collect(Collectors.joining(", ")))));
+    }
+}
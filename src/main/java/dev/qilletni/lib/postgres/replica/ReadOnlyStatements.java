@@ -0,0 +1,44 @@
+package dev.qilletni.lib.postgres.replica;
+
+import dev.qilletni.lib.postgres.cache.BoundedCache;
+import dev.qilletni.lib.postgres.metrics.SqlNormalizer;
+
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether a SQL string is safe to run on a replica. This errs on the side of the primary: a statement is only
+ * read-only if it starts as a query and mentions nothing that writes, locks rows or changes session state. Literals and
+ * comments are ignored, so a string containing the word "update" doesn't count.
+ */
+public class ReadOnlyStatements {
+
+    private static final Pattern READ_START = Pattern.compile("^\\(*\\s*(?:SELECT|WITH|VALUES|TABLE|SHOW)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WRITE_KEYWORD = Pattern.compile("\\b(?:INSERT|UPDATE|DELETE|MERGE|INTO|SHARE|LOCK|nextval|setval|set_config|pg_notify|pg_advisory\\w*|txid_current)\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Matching the patterns takes about as long as a small query on a fast network, so the verdict on every SQL string
+     * is remembered.
+     */
+    private static final BoundedCache<String, Boolean> CACHE = new BoundedCache<>(2048);
+
+    private ReadOnlyStatements() {}
+
+    /**
+     * Checks if a statement only reads, and may run on a replica.
+     *
+     * @param sql The SQL of the statement
+     * @return If the statement is read-only
+     */
+    public static boolean isReadOnly(String sql) {
+        var cached = CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        var normalized = SqlNormalizer.normalize(sql);
+        boolean readOnly = READ_START.matcher(normalized).find() && !WRITE_KEYWORD.matcher(normalized).find();
+        CACHE.put(sql, readOnly);
+        return readOnly;
+    }
+}
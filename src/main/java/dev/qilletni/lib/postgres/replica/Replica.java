@@ -0,0 +1,176 @@
+package dev.qilletni.lib.postgres.replica;
+
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PoolConfig;
+import dev.qilletni.lib.postgres.pool.PooledConnection;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A replica of a {@link ReplicaRouter}, with its own connection pool, load and health.
+ * <p>
+ * A replica that can't be reached is ejected, and no reads are routed to it until its backoff passes. After that, a
+ * single read is let through as a probe. If the probe fails, the backoff doubles up to {@link #MAX_BACKOFF_NANOS};
+ * if it succeeds, the replica is healthy again.
+ */
+class Replica implements AutoCloseable {
+
+    private static final long INITIAL_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * The weight of the newest latency in the moving average.
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final String url;
+    private final ConnectionPool pool;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder ejections = new LongAdder();
+
+    // Guarded by this
+    private double ewmaNanos;
+    private int consecutiveFailures;
+    private long retryAtNanos;
+
+    Replica(String url, String username, String password, PoolConfig config) {
+        this.url = url;
+        this.pool = new ConnectionPool(url, username, password, config);
+
+        // Makes pgjdbc set the session read-only, autocommit or not, so a misrouted write fails instead of running.
+        // The default readOnlyMode of transaction would only cover transactions opened with autocommit off
+        pool.setConnectionProperty("readOnly", "true");
+        pool.setConnectionProperty("readOnlyMode", "always");
+    }
+
+    String url() {
+        return url;
+    }
+
+    ConnectionPool pool() {
+        return pool;
+    }
+
+    int outstanding() {
+        return outstanding.get();
+    }
+
+    synchronized boolean isHealthy() {
+        return consecutiveFailures == 0;
+    }
+
+    synchronized double ewmaNanos() {
+        return ewmaNanos;
+    }
+
+    /**
+     * Claims the probe of an ejected replica whose backoff has passed. Until the probe finishes, no other read is let
+     * through.
+     *
+     * @param now The current {@link System#nanoTime()}
+     * @return If the caller may send its read to this replica as the probe
+     */
+    synchronized boolean tryClaimProbe(long now) {
+        if (consecutiveFailures == 0 || now - retryAtNanos < 0) {
+            return false;
+        }
+
+        retryAtNanos = now + backoffNanos();
+        return true;
+    }
+
+    /**
+     * Runs a read on a connection borrowed from this replica.
+     *
+     * @param work The read to run
+     * @return The result of the read
+     * @throws ReplicaUnavailableException If the replica could not be reached or has no connection to spare, in which
+     *                                     case the read should be retried on the primary
+     * @throws SQLException                If the read itself failed
+     */
+    <T> T read(ReplicaRouter.Work<T> work) throws ReplicaUnavailableException, SQLException {
+        outstanding.incrementAndGet();
+        reads.increment();
+        long start = System.nanoTime();
+
+        try {
+            PooledConnection pooledConnection;
+            try {
+                pooledConnection = pool.borrow();
+            } catch (SQLException e) {
+                // A busy pool isn't a reason to eject the replica, only a failure to connect is
+                if (isConnectionFailure(e)) {
+                    recordFailure();
+                }
+
+                throw new ReplicaUnavailableException(url, e);
+            }
+
+            try {
+                var result = work.run(pooledConnection);
+                recordSuccess(System.nanoTime() - start);
+                return result;
+            } catch (SQLException e) {
+                if (isConnectionFailure(e)) {
+                    recordFailure();
+                    throw new ReplicaUnavailableException(url, e);
+                }
+
+                // The replica answered, even if with an error
+                recordSuccess(System.nanoTime() - start);
+                throw e;
+            } finally {
+                pool.release(pooledConnection);
+            }
+        } finally {
+            outstanding.decrementAndGet();
+        }
+    }
+
+    private synchronized void recordSuccess(long nanos) {
+        consecutiveFailures = 0;
+        ewmaNanos = ewmaNanos == 0 ? nanos : EWMA_ALPHA * nanos + (1 - EWMA_ALPHA) * ewmaNanos;
+    }
+
+    private synchronized void recordFailure() {
+        failures.increment();
+
+        if (consecutiveFailures++ == 0) {
+            ejections.increment();
+        }
+
+        retryAtNanos = System.nanoTime() + backoffNanos();
+    }
+
+    /**
+     * Gets how long to wait before probing again, doubling with every consecutive failure.
+     */
+    private long backoffNanos() {
+        int doublings = Math.min(Math.max(consecutiveFailures - 1, 0), 16);
+        return Math.min(INITIAL_BACKOFF_NANOS << doublings, MAX_BACKOFF_NANOS);
+    }
+
+    /**
+     * Checks if an exception means the server could not be reached or dropped the connection, as opposed to a failure
+     * of the statement itself. These are SQLSTATE class 08 (connection exception) and the 57P0x states of a server
+     * shutting down or not yet accepting connections.
+     */
+    static boolean isConnectionFailure(SQLException exception) {
+        var sqlState = exception.getSQLState();
+        return sqlState != null && (sqlState.startsWith("08") || sqlState.startsWith("57P0"));
+    }
+
+    synchronized ReplicaStatistics getStatistics() {
+        return new ReplicaStatistics(url, consecutiveFailures == 0, outstanding.get(), reads.sum(), failures.sum(), ejections.sum(), ewmaNanos / 1_000_000D);
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,220 @@
+package dev.qilletni.lib.postgres.replica;
+
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PoolConfig;
+import dev.qilletni.lib.postgres.pool.PooledConnection;
+import dev.qilletni.lib.postgres.pool.WarmUp;
+import dev.qilletni.lib.postgres.pool.WarmUpStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads reads over the replicas of a primary database. Each replica has its own connection pool, and reads go to
+ * the healthy replica picked by the {@link BalancingMode}. If every replica is ejected, or the chosen one turns out to
+ * be unreachable, the read runs on the primary instead. So does a read the replica refused as a write, such as a
+ * {@code SELECT} of a function that writes, which {@link ReadOnlyStatements} can't tell apart from a plain read.
+ * <p>
+ * Whether a statement may be routed here at all is up to the caller, see {@link ReadOnlyStatements}.
+ */
+public class ReplicaRouter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    /**
+     * The SQLState of a write refused by a read-only transaction, which every replica connection runs in.
+     */
+    private static final String READ_ONLY_TRANSACTION_STATE = "25006";
+
+    /**
+     * Replaced as a whole when replicas are added or removed, so reads can scan it without locking.
+     */
+    private volatile List<Replica> replicas = List.of();
+
+    /**
+     * Where the scan for the best replica starts, rotated so that ties don't always go to the first replica.
+     */
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    private volatile BalancingMode balancingMode = BalancingMode.LEAST_OUTSTANDING;
+
+    /**
+     * Adds a replica to route reads to. Adding a URL that is already a replica does nothing.
+     *
+     * @param url      The URL of the replica
+     * @param username The username to connect with
+     * @param password The password to connect with
+     * @param config   The configuration of the replica's connection pool
+     */
+    public synchronized void addReplica(String url, String username, String password, PoolConfig config) {
+        if (replicas.stream().anyMatch(replica -> replica.url().equals(url))) {
+            return;
+        }
+
+        var updated = new ArrayList<>(replicas);
+        updated.add(new Replica(url, username, password, config));
+        replicas = List.copyOf(updated);
+    }
+
+    /**
+     * Stops routing reads to a replica and closes its pool.
+     *
+     * @param url The URL of the replica
+     * @return If the replica was removed, false if it wasn't a replica
+     */
+    public synchronized boolean removeReplica(String url) {
+        for (var replica : replicas) {
+            if (replica.url().equals(url)) {
+                replicas = replicas.stream().filter(other -> other != replica).toList();
+                replica.close();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    public void setBalancingMode(BalancingMode balancingMode) {
+        this.balancingMode = balancingMode;
+    }
+
+    /**
+     * Replaces the configuration of every replica's pool.
+     *
+     * @param config The new configuration
+     */
+    public void reconfigure(PoolConfig config) {
+        replicas.forEach(replica -> replica.pool().reconfigure(config));
+    }
+
+    /**
+     * Warms up the pool of every replica, like {@link ConnectionPool#warmUp(WarmUp)} does for the primary. A replica
+     * that can't be warmed up, such as one that is unreachable, is skipped with a warning, as reads fall back to the
+     * other replicas or the primary anyway. Replicas added later start cold.
+     *
+     * @param warmUp How to warm up connections
+     * @return What warming up did on each replica that was warmed up
+     */
+    public List<WarmUpStatistics> warmUp(WarmUp warmUp) {
+        var statistics = new ArrayList<WarmUpStatistics>();
+        for (var replica : replicas) {
+            try {
+                statistics.add(replica.pool().warmUp(warmUp));
+            } catch (SQLException e) {
+                LOGGER.warn("Couldn't warm up replica {}", replica.url(), e);
+            }
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Runs a read on a replica, or on the primary if no replica is available.
+     *
+     * @param work    The read to run on a connection borrowed from the chosen replica
+     * @param primary Runs the read on the primary instead
+     * @return The result of the read
+     */
+    public <T> T read(Work<T> work, Fallback<T> primary) throws SQLException {
+        var replica = select();
+        if (replica == null) {
+            return primary.run();
+        }
+
+        try {
+            return replica.read(work);
+        } catch (ReplicaUnavailableException e) {
+            LOGGER.debug("Retrying read on the primary", e);
+            return primary.run();
+        } catch (SQLException e) {
+            if (!READ_ONLY_TRANSACTION_STATE.equals(e.getSQLState())) {
+                throw e;
+            }
+
+            LOGGER.debug("Retrying read that writes on the primary", e);
+            return primary.run();
+        }
+    }
+
+    /**
+     * Picks the replica for the next read. An ejected replica due for a probe is picked first, so it gets back into
+     * rotation as soon as it recovers.
+     *
+     * @return The replica, or null if none are healthy
+     */
+    private Replica select() {
+        var currentReplicas = replicas;
+        int size = currentReplicas.size();
+        if (size == 0) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+        var mode = balancingMode;
+        Replica best = null;
+        double bestScore = Double.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            var replica = currentReplicas.get((start + i) % size);
+
+            if (!replica.isHealthy()) {
+                if (replica.tryClaimProbe(now)) {
+                    return replica;
+                }
+
+                continue;
+            }
+
+            double score = switch (mode) {
+                case LEAST_OUTSTANDING -> replica.outstanding();
+                case EWMA -> replica.ewmaNanos() * (replica.outstanding() + 1);
+            };
+
+            if (score < bestScore) {
+                best = replica;
+                bestScore = score;
+            }
+        }
+
+        return best;
+    }
+
+    public List<ReplicaStatistics> getStatistics() {
+        return replicas.stream().map(Replica::getStatistics).toList();
+    }
+
+    /**
+     * Closes the pool of every replica.
+     */
+    @Override
+    public synchronized void close() {
+        var closed = replicas;
+        replicas = List.of();
+        closed.forEach(Replica::close);
+    }
+
+    /**
+     * A read run on a connection borrowed from a replica.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(PooledConnection pooledConnection) throws SQLException;
+    }
+
+    /**
+     * A read run on the primary.
+     */
+    @FunctionalInterface
+    public interface Fallback<T> {
+        T run() throws SQLException;
+    }
+}
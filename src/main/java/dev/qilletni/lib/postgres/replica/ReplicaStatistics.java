@@ -0,0 +1,15 @@
+package dev.qilletni.lib.postgres.replica;
+
+/**
+ * A point-in-time snapshot of a replica of a {@link ReplicaRouter}.
+ *
+ * @param url         The URL of the replica
+ * @param healthy     If reads are currently routed to the replica, false while it is ejected
+ * @param outstanding Reads currently running on the replica, including ones waiting for a connection
+ * @param reads       How many reads have been routed to the replica
+ * @param failures    How many reads failed due to the replica being unreachable, and were retried on the primary
+ * @param ejections   How many times the replica has been ejected
+ * @param ewmaMillis  The moving average latency of reads on the replica
+ */
+public record ReplicaStatistics(String url, boolean healthy, int outstanding, long reads, long failures, long ejections, double ewmaMillis) {
+}
@@ -0,0 +1,13 @@
+package dev.qilletni.lib.postgres.replica;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a read could not run on a replica, and should be retried on the primary instead.
+ */
+class ReplicaUnavailableException extends Exception {
+
+    ReplicaUnavailableException(String url, SQLException cause) {
+        super("Replica %s is unavailable: %s".formatted(url, cause.getMessage()), cause);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.qilletni.lib.postgres.scan;
+
+/**
+ * A range of keys read by one partition of a {@link PartitionedScan}. The first range has no lower bound and the last
+ * has no upper bound, so rows added past the bounds seen when planning are still read.
+ *
+ * @param lower The lowest key of the range, inclusive
+ * @param upper The highest key of the range, inclusive
+ * @param first If this is the first range
+ * @param last  If this is the last range
+ */
+record KeyRange(long lower, long upper, boolean first, boolean last) {
+}
@@ -0,0 +1,409 @@
+package dev.qilletni.lib.postgres.scan;
+
+import dev.qilletni.lib.postgres.decode.RowDecoder;
+import dev.qilletni.lib.postgres.exceptions.InvalidScanException;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PooledConnection;
+import dev.qilletni.lib.postgres.statement.StatementTimeout;
+
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a table or query as several key ranges at once, each on its own connection borrowed from a pool, so a large
+ * read isn't limited to a single server backend.
+ * <p>
+ * The key is either an integer column, split evenly between its minimum and maximum, or {@code ctid}, which splits a
+ * table by its pages and needs no index. Rows whose key is null are not read.
+ * <p>
+ * Partitions read through server-side cursors and pass their rows on in batches through bounded queues, blocking once
+ * the queues are full, so memory use doesn't depend on how much faster the partitions read than the rows are consumed.
+ * Each partition runs in its own transaction, so rows changed while the scan runs may be seen by some partitions and
+ * not by others.
+ */
+public class PartitionedScan {
+
+    /**
+     * The amount of rows read from a partition's cursor and passed on at once.
+     */
+    public static final int BATCH_ROWS = 1000;
+
+    /**
+     * The amount of batches each running partition may have waiting to be consumed.
+     */
+    private static final int QUEUED_BATCHES = 4;
+
+    private static final long OFFER_MILLIS = 100;
+
+    public static final String CTID = "ctid";
+
+    private static final Pattern QUERY_START = Pattern.compile("^\\(*\\s*(?:SELECT|WITH|VALUES|TABLE)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Queued by a partition once it has read all of its rows.
+     */
+    private static final Object END = new Object();
+
+    private final ConnectionPool pool;
+    private final String from;
+    private final String keyColumn;
+    private final String table;
+    private final int partitions;
+    private final boolean ordered;
+    private final long timeoutMillis;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a scan, which does nothing until {@link #run(BatchConsumer)}.
+     *
+     * @param pool          The pool partitions borrow their connections from
+     * @param source        The table to read, or a query whose rows are read
+     * @param keyColumn     The integer column to split the rows by, or {@code ctid} to split a table by its pages
+     * @param partitions    The amount of ranges to split the keys into
+     * @param ordered       If rows are consumed in the order of their keys, otherwise batches are consumed as soon as
+     *                      any partition reads them
+     * @param timeoutMillis The timeout of each partition's query, or 0 for no timeout
+     */
+    public PartitionedScan(ConnectionPool pool, String source, String keyColumn, int partitions, boolean ordered, long timeoutMillis) {
+        var query = QUERY_START.matcher(source.strip()).find();
+        if (keyColumn.equalsIgnoreCase(CTID) && query) {
+            throw new InvalidScanException("Only a table can be split by ctid, not a query");
+        }
+
+        this.pool = pool;
+        this.from = query ? "(%s) AS qilletni_partitioned".formatted(source) : source;
+        this.keyColumn = keyColumn.equalsIgnoreCase(CTID) ? CTID : keyColumn;
+        this.table = query ? null : source;
+        this.partitions = Math.max(1, partitions);
+        this.ordered = ordered;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Gets the SQL the scan reads, without any partition's key range.
+     */
+    public String getSql() {
+        return "SELECT * FROM " + from;
+    }
+
+    /**
+     * Reads every partition, passing their rows to the consumer on the calling thread.
+     *
+     * @param consumer Consumes the read rows, a batch at a time
+     * @return If every row was consumed, false if the consumer stopped the scan
+     */
+    public boolean run(BatchConsumer consumer) throws SQLException {
+        var ranges = planRanges();
+        if (ranges.isEmpty()) {
+            return true;
+        }
+
+        // One connection is left for whoever else uses the pool, which is usually the script's own connection
+        int concurrency = Math.max(1, Math.min(ranges.size(), pool.getConfig().maxSize() - 1));
+        var permits = new Semaphore(concurrency);
+
+        // When ordered, each partition has its own queue so later partitions can't fill up the queue the next rows come from
+        var queues = new ArrayList<BlockingQueue<Object>>();
+        if (ordered) {
+            for (int i = 0; i < ranges.size(); i++) {
+                queues.add(new ArrayBlockingQueue<>(QUEUED_BATCHES));
+            }
+        } else {
+            var queue = new ArrayBlockingQueue<>(QUEUED_BATCHES * concurrency);
+            for (int i = 0; i < ranges.size(); i++) {
+                queues.add(queue);
+            }
+        }
+
+        EXECUTOR.execute(() -> launchPartitions(ranges, queues, permits));
+
+        try {
+            if (ordered) {
+                for (var queue : queues) {
+                    if (!consume(queue, 1, consumer)) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+
+            return consume(queues.getFirst(), ranges.size(), consumer);
+        } finally {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Passes the batches of a queue to the consumer until the given amount of partitions have ended.
+     */
+    private boolean consume(BlockingQueue<Object> queue, int partitionCount, BatchConsumer consumer) throws SQLException {
+        int ended = 0;
+
+        while (ended < partitionCount) {
+            Object item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for rows", e);
+            }
+
+            switch (item) {
+                case SQLException exception -> throw exception;
+                case List<?> rows -> {
+                    @SuppressWarnings("unchecked")
+                    var batch = (List<List<Object>>) rows;
+                    if (!consumer.accept(batch)) {
+                        return false;
+                    }
+                }
+                default -> ended++;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts reading each partition once a permit is free. Permits are taken in the order of the partitions, so the
+     * partition whose rows are consumed next when ordered is never waiting on later partitions with full queues.
+     */
+    private void launchPartitions(List<KeyRange> ranges, List<BlockingQueue<Object>> queues, Semaphore permits) {
+        for (int i = 0; i < ranges.size() && !cancelled; i++) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                enqueue(queues.get(i), new SQLException("Interrupted while starting partitions", e));
+                return;
+            }
+
+            var range = ranges.get(i);
+            var queue = queues.get(i);
+            EXECUTOR.execute(() -> readPartition(range, queue, permits));
+        }
+    }
+
+    /**
+     * Reads the rows of a partition into its queue, then releases its permit. A failure is queued instead of the end
+     * of the partition.
+     */
+    private void readPartition(KeyRange range, BlockingQueue<Object> queue, Semaphore permits) {
+        try {
+            if (!cancelled) {
+                var pooledConnection = pool.borrow();
+
+                try {
+                    readRange(pooledConnection, range, queue);
+                } finally {
+                    pool.release(pooledConnection);
+                }
+            }
+
+            enqueue(queue, END);
+        } catch (SQLException e) {
+            enqueue(queue, e);
+        } catch (RuntimeException e) {
+            enqueue(queue, new SQLException("Failed to read partition", e));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void readRange(PooledConnection pooledConnection, KeyRange range, BlockingQueue<Object> queue) throws SQLException {
+        var connection = pooledConnection.connection();
+
+        // Set before the transaction begins, so it isn't undone if the transaction is rolled back
+        pooledConnection.applyStatementTimeout(timeoutMillis);
+
+        // PostgreSQL only keeps a cursor open inside a transaction
+        connection.setAutoCommit(false);
+        boolean success = false;
+
+        try (var statement = connection.prepareStatement(partitionSql(range));
+             var timeout = StatementTimeout.start(statement, timeoutMillis)) {
+            statement.setFetchSize(BATCH_ROWS);
+
+            long start = System.nanoTime();
+            try (var resultSet = statement.executeQuery()) {
+                pooledConnection.recordQuery(System.nanoTime() - start);
+                var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+                var batch = new ArrayList<List<Object>>(BATCH_ROWS);
+
+                while (!cancelled && resultSet.next()) {
+                    batch.add(rowDecoder.decodeRow(resultSet));
+
+                    if (batch.size() == BATCH_ROWS) {
+                        enqueue(queue, batch);
+                        batch = new ArrayList<>(BATCH_ROWS);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    enqueue(queue, batch);
+                }
+            }
+
+            success = true;
+        } finally {
+            try {
+                if (success) {
+                    connection.commit();
+                } else {
+                    connection.rollback();
+                }
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Queues an item, waiting for room unless the scan is cancelled.
+     */
+    private void enqueue(BlockingQueue<Object> queue, Object item) {
+        try {
+            while (!queue.offer(item, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the SQL a partition reads its range with.
+     */
+    String partitionSql(KeyRange range) {
+        var conditions = new ArrayList<String>();
+
+        if (keyColumn.equals(CTID)) {
+            if (!range.first()) {
+                conditions.add("ctid >= '(%d,0)'::tid".formatted(range.lower()));
+            }
+
+            if (!range.last()) {
+                conditions.add("ctid < '(%d,0)'::tid".formatted(range.upper() + 1));
+            }
+        } else {
+            if (!range.first()) {
+                conditions.add("%s >= %d".formatted(keyColumn, range.lower()));
+            }
+
+            if (!range.last()) {
+                conditions.add("%s <= %d".formatted(keyColumn, range.upper()));
+            }
+
+            conditions.add(keyColumn + " IS NOT NULL");
+        }
+
+        var sql = new StringBuilder(getSql());
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+
+        if (ordered) {
+            sql.append(" ORDER BY ").append(keyColumn);
+        }
+
+        return sql.toString();
+    }
+
+    /**
+     * Splits the keys into ranges, by the minimum and maximum key, or by the table's size in pages for {@code ctid}.
+     *
+     * @return The ranges, which are empty if there are no rows to read
+     */
+    private List<KeyRange> planRanges() throws SQLException {
+        var pooledConnection = pool.borrow();
+
+        try {
+            var boundsSql = keyColumn.equals(CTID)
+                    ? "SELECT 0, pg_relation_size(?::regclass) / current_setting('block_size')::bigint"
+                    : "SELECT min(%1$s)::bigint, max(%1$s)::bigint FROM %2$s".formatted(keyColumn, from);
+
+            try (var statement = pooledConnection.connection().prepareStatement(boundsSql)) {
+                if (keyColumn.equals(CTID)) {
+                    statement.setString(1, table);
+                }
+
+                long start = System.nanoTime();
+                try (var resultSet = statement.executeQuery()) {
+                    pooledConnection.recordQuery(System.nanoTime() - start);
+
+                    if (!resultSet.next()) {
+                        return List.of();
+                    }
+
+                    long min = resultSet.getLong(1);
+                    long max = resultSet.getLong(2);
+                    if (resultSet.wasNull()) {
+                        return List.of();
+                    }
+
+                    // An empty table has no pages, but rows may have been added since its size was read
+                    return split(min, Math.max(min, keyColumn.equals(CTID) ? max - 1 : max), partitions);
+                }
+            }
+        } finally {
+            pool.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Splits the keys between two bounds into ranges of about the same size.
+     *
+     * @param min        The lowest key, inclusive
+     * @param max        The highest key, inclusive
+     * @param partitions The most ranges to split into, which is fewer if there are fewer keys
+     * @return The ranges, lowest first
+     */
+    static List<KeyRange> split(long min, long max, int partitions) {
+        // The amount of keys can overflow a long
+        var size = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min)).add(BigInteger.ONE);
+        int count = size.min(BigInteger.valueOf(partitions)).intValueExact();
+
+        var ranges = new ArrayList<KeyRange>(count);
+        long lower = min;
+
+        for (int i = 0; i < count; i++) {
+            long upper = i == count - 1
+                    ? max
+                    : BigInteger.valueOf(min).add(size.multiply(BigInteger.valueOf(i + 1)).divide(BigInteger.valueOf(count))).longValueExact() - 1;
+
+            ranges.add(new KeyRange(lower, upper, i == 0, i == count - 1));
+            lower = upper + 1;
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Consumes the rows read by a scan.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+
+        /**
+         * Consumes a batch of rows.
+         *
+         * @param rows The decoded rows
+         * @return If the scan should continue, false to stop it
+         */
+        boolean accept(List<List<Object>> rows) throws SQLException;
+    }
+}
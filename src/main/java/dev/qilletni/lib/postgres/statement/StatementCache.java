@@ -0,0 +1,134 @@
+package dev.qilletni.lib.postgres.statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of {@link PreparedStatement}s for a single physical connection, keyed by their SQL text.
+ * <p>
+ * A cached statement is leased out by {@link #prepare(String)} and returned by {@link StatementHandle#close()}. While
+ * leased, preparing the same SQL again creates a separate, uncached statement so two holders never share parameters.
+ * Eviction only ever picks statements that are not leased, and is the only thing that actually closes them.
+ */
+public class StatementCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementCache.class);
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Connection connection;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private int capacity = DEFAULT_CAPACITY;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets a statement for the given SQL, reusing a cached one with its parameters cleared if possible.
+     *
+     * @param sql The SQL of the statement
+     * @return A handle to the statement, which should be closed to give the statement back to the cache
+     */
+    public synchronized StatementHandle prepare(String sql) throws SQLException {
+        var entry = entries.get(sql);
+
+        if (entry != null && entry.lease == null) {
+            hits++;
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+
+            var handle = new StatementHandle(sql, entry.statement, this);
+            entry.lease = handle;
+            return handle;
+        }
+
+        misses++;
+        var statement = connection.prepareStatement(sql);
+
+        if (entry != null || capacity == 0) {
+            // Already leased by someone else, or caching is off, so this one is closed for real when done
+            return new StatementHandle(sql, statement, null);
+        }
+
+        var newEntry = new Entry(statement);
+        var handle = new StatementHandle(sql, statement, this);
+        newEntry.lease = handle;
+        entries.put(sql, newEntry);
+
+        evictOverflow();
+        return handle;
+    }
+
+    /**
+     * Gives a leased statement back to the cache. Stale handles, whose lease was already revoked, are ignored.
+     */
+    synchronized void giveBack(StatementHandle handle) {
+        var entry = entries.get(handle.getSql());
+        if (entry != null && entry.lease == handle) {
+            entry.lease = null;
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Revokes every outstanding lease, used when the owning connection goes back to its pool and statements held by the
+     * previous user must be reusable by the next one.
+     */
+    public synchronized void revokeLeases() {
+        entries.values().forEach(entry -> entry.lease = null);
+        evictOverflow();
+    }
+
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        evictOverflow();
+    }
+
+    /**
+     * Closes least recently used, non-leased statements until the cache fits its capacity.
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+        while (entries.size() > capacity && iterator.hasNext()) {
+            var entry = iterator.next().getValue();
+            if (entry.lease != null) {
+                continue;
+            }
+
+            iterator.remove();
+            evictions++;
+
+            try {
+                entry.statement.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Error while closing evicted statement", e);
+            }
+        }
+    }
+
+    public synchronized StatementCacheStatistics getStatistics() {
+        return new StatementCacheStatistics(entries.size(), capacity, hits, misses, evictions);
+    }
+
+    private static class Entry {
+        private final PreparedStatement statement;
+        private StatementHandle lease;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+}
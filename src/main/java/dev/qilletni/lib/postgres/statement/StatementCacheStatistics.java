@@ -0,0 +1,13 @@
+package dev.qilletni.lib.postgres.statement;
+
+/**
+ * A point-in-time snapshot of a {@link StatementCache}.
+ *
+ * @param size      The amount of statements currently cached
+ * @param capacity  The maximum amount of statements cached
+ * @param hits      How many prepares reused a cached statement
+ * @param misses    How many prepares had to create a new statement
+ * @param evictions How many cached statements have been closed to make room
+ */
+public record StatementCacheStatistics(int size, int capacity, long hits, long misses, long evictions) {
+}
@@ -0,0 +1,229 @@
+package dev.qilletni.lib.postgres.statement;
+
+import dev.qilletni.lib.postgres.exceptions.DatabaseException;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The state behind a Qilletni PreparedStatement entity. If the statement came from a {@link StatementCache}, closing
+ * the handle gives it back to the cache instead of closing it.
+ * <p>
+ * The handle also tracks the statement's JDBC batch. Once the batch holds {@link #getBatchSize()} rows it is sent to
+ * the server as a chunk, so arbitrarily large batches never sit in driver memory all at once. Chunks run in whatever
+ * transaction state the connection is in: in autocommit mode each chunk commits on its own, so a batch is only atomic
+ * if it is executed inside a transaction the script began.
+ */
+public class StatementHandle {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final String sql;
+    private final PreparedStatement statement;
+    private final StatementCache cache;
+    private final List<Object> parameters = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Checks if the connection the statement was prepared on went back to its pool, after which someone else may have
+     * borrowed it.
+     */
+    private BooleanSupplier released = () -> false;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int pendingBatchRows;
+    private final List<int[]> executedBatchChunks = new ArrayList<>();
+    private SQLException batchFailure;
+
+    StatementHandle(String sql, PreparedStatement statement, StatementCache cache) {
+        this.sql = sql;
+        this.statement = statement;
+        this.cache = cache;
+    }
+
+    /**
+     * Ties the handle to the lease of the connection it was prepared on. Once the lease ends, {@link #verifyOpen()}
+     * fails and closing the handle no longer gives the statement back to the cache.
+     *
+     * @param released Checks if the connection went back to its pool
+     */
+    public void bindLease(BooleanSupplier released) {
+        this.released = released;
+    }
+
+    /**
+     * Makes sure the handle wasn't closed, after which its statement may be leased to another handle, and that the
+     * connection the statement was prepared on is still borrowed by whoever prepared it, so the statement doesn't run
+     * on a connection someone else borrowed since.
+     *
+     * @throws DatabaseException If the handle was closed or the connection was disconnected
+     */
+    public void verifyOpen() {
+        if (closed) {
+            throw new DatabaseException("The prepared statement is closed");
+        }
+
+        if (released.getAsBoolean()) {
+            throw new DatabaseException("The connection the statement was prepared on is disconnected");
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public PreparedStatement getStatement() {
+        return statement;
+    }
+
+    /**
+     * Remembers the value bound to a parameter, so results of the statement can be cached by its parameters.
+     *
+     * @param index The 1-indexed parameter
+     * @param value The value bound to it
+     */
+    public void rememberParameter(int index, Object value) {
+        while (parameters.size() < index) {
+            parameters.add(null);
+        }
+
+        parameters.set(index - 1, value);
+    }
+
+    /**
+     * Gets the values last bound to the statement's parameters, in order. Parameters never bound are null.
+     */
+    public List<Object> getParameters() {
+        return Collections.unmodifiableList(new ArrayList<>(parameters));
+    }
+
+    public boolean isCached() {
+        return cache != null;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Adds the statement's current parameters to the batch, sending the batch as a chunk if it reached the batch size.
+     * If sending a chunk fails, the failure is reported by {@link #executeBatch()}. Until then, adding more rows fails.
+     */
+    public void addBatch() throws SQLException {
+        if (batchFailure != null) {
+            throw new SQLException("The row wasn't added, as the batch already failed. executeBatch() reports why and resets it: %s".formatted(batchFailure.getMessage()), batchFailure.getSQLState(), batchFailure);
+        }
+
+        try {
+            statement.addBatch();
+
+            if (++pendingBatchRows >= batchSize) {
+                executeBatchChunk();
+            }
+        } catch (SQLException e) {
+            failBatch(e);
+            throw e;
+        }
+    }
+
+    private void executeBatchChunk() throws SQLException {
+        try {
+            executedBatchChunks.add(statement.executeBatch());
+        } catch (BatchUpdateException e) {
+            // The counts of the rows the driver got through before the failure
+            if (e.getUpdateCounts() != null) {
+                executedBatchChunks.add(e.getUpdateCounts());
+            }
+
+            throw e;
+        } finally {
+            pendingBatchRows = 0;
+        }
+    }
+
+    /**
+     * Remembers why the batch failed, dropping the rows not yet sent.
+     */
+    private void failBatch(SQLException failure) {
+        batchFailure = failure;
+
+        try {
+            statement.clearBatch();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        } finally {
+            pendingBatchRows = 0;
+        }
+    }
+
+    /**
+     * Sends any rows still in the batch and resets the batch for reuse.
+     *
+     * @return The update counts of every row added since the last call, including chunks that were already sent
+     * @throws BatchUpdateException If a chunk failed, with the update counts of the rows before the failure. In
+     *                              autocommit mode, the chunks before the failing one stay committed
+     */
+    public int[] executeBatch() throws SQLException {
+        try {
+            if (batchFailure == null && pendingBatchRows > 0) {
+                try {
+                    executeBatchChunk();
+                } catch (SQLException e) {
+                    failBatch(e);
+                }
+            }
+
+            if (batchFailure != null) {
+                var failure = new BatchUpdateException(batchFailure.getMessage(), batchFailure.getSQLState(), batchFailure.getErrorCode(), collectUpdateCounts(), batchFailure);
+                for (var suppressed : batchFailure.getSuppressed()) {
+                    failure.addSuppressed(suppressed);
+                }
+
+                throw failure;
+            }
+
+            return collectUpdateCounts();
+        } finally {
+            executedBatchChunks.clear();
+            pendingBatchRows = 0;
+            batchFailure = null;
+        }
+    }
+
+    private int[] collectUpdateCounts() {
+        int[] updateCounts = new int[executedBatchChunks.stream().mapToInt(chunk -> chunk.length).sum()];
+        int offset = 0;
+        for (int[] chunk : executedBatchChunks) {
+            System.arraycopy(chunk, 0, updateCounts, offset, chunk.length);
+            offset += chunk.length;
+        }
+
+        return updateCounts;
+    }
+
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (cache == null) {
+            // Nothing else tracks an uncached statement, so it is closed even if the connection went back to its pool
+            statement.close();
+        } else if (!released.getAsBoolean()) {
+            // Rows of a batch that was never executed are dropped when the statement is leased again. Once the
+            // connection went back to its pool, the pool already revoked the lease
+            cache.giveBack(this);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.qilletni.lib.postgres.statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels a statement through {@link Statement#cancel()} if it is still running once its timeout passes. Unlike
+ * {@link Statement#setQueryTimeout(int)}, this has millisecond precision, does not stick to cached statements, and
+ * covers everything done until it is closed, such as reading every fetch of a server-side cursor.
+ */
+public class StatementTimeout implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementTimeout.class);
+
+    /**
+     * The SQLState PostgreSQL reports for a statement that was cancelled, either through a cancel request or by the
+     * server-side statement_timeout.
+     */
+    private static final String QUERY_CANCELED_STATE = "57014";
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "qilletni-postgres-statement-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final StatementTimeout NONE = new StatementTimeout(null);
+
+    private final Statement statement;
+    private ScheduledFuture<?> cancelTask;
+    private boolean finished;
+
+    private StatementTimeout(Statement statement) {
+        this.statement = statement;
+    }
+
+    /**
+     * Starts the timeout of a statement, which should be closed as soon as the statement is done.
+     *
+     * @param statement     The statement to cancel once the timeout passes
+     * @param timeoutMillis The timeout in milliseconds, or 0 for no timeout
+     * @return The started timeout
+     */
+    public static StatementTimeout start(Statement statement, long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return NONE;
+        }
+
+        var timeout = new StatementTimeout(statement);
+        timeout.cancelTask = SCHEDULER.schedule(timeout::cancelStatement, timeoutMillis, TimeUnit.MILLISECONDS);
+        return timeout;
+    }
+
+    /**
+     * Checks if an exception was caused by a statement being cancelled due to a timeout, either by the cancel request
+     * this class sends or by the server-side statement_timeout. Both are only told apart from other failures by their
+     * SQLState, so other timeouts, such as waiting for a pooled connection, aren't counted.
+     *
+     * @param exception The exception thrown while running the statement
+     * @return If the exception is a timeout
+     */
+    public static boolean isTimeout(SQLException exception) {
+        return QUERY_CANCELED_STATE.equals(exception.getSQLState());
+    }
+
+    private synchronized void cancelStatement() {
+        if (finished) {
+            return;
+        }
+
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            LOGGER.debug("Error while cancelling timed out statement", e);
+        }
+    }
+
+    /**
+     * Stops the timeout. If the statement is being cancelled right now, this waits for the cancel request to be sent so
+     * it can not reach a later statement on the same connection.
+     */
+    @Override
+    public synchronized void close() {
+        finished = true;
+
+        if (cancelTask != null) {
+            cancelTask.cancel(false);
+        }
+    }
+}
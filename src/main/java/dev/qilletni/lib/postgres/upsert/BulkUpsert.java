@@ -0,0 +1,218 @@
+package dev.qilletni.lib.postgres.upsert;
+
+import dev.qilletni.lib.postgres.exceptions.InvalidUpsertException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts rows into a table, updating the rows they conflict with instead, in a single statement per chunk of rows:
+ * <pre>{@code
+ * WITH upserted AS (
+ *     INSERT INTO track (id, name) SELECT * FROM unnest(?::bigint[], ?::text[])
+ *     ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name
+ *     RETURNING xmax = 0 AS inserted
+ * ) SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted
+ * }</pre>
+ * Each column's values are bound as one text array and cast to the column's declared type on the server, so the SQL
+ * is the same for every chunk no matter how many rows it has, and any type that can be written as text works. A row
+ * whose {@code xmax} is 0 was inserted, as an updated row is locked by the updating transaction.
+ * <p>
+ * PostgreSQL refuses to update a row twice in one statement, so when conflicting rows are updated, rows with the same
+ * conflict key are collapsed first, the last one winning.
+ */
+public class BulkUpsert {
+
+    private final List<String> columns;
+    private final int[] conflictIndexes;
+    private final String sql;
+
+    private BulkUpsert(List<String> columns, int[] conflictIndexes, String sql) {
+        this.columns = columns;
+        this.conflictIndexes = conflictIndexes;
+        this.sql = sql;
+    }
+
+    /**
+     * Creates the upsert of some columns of a table.
+     *
+     * @param connection       The connection to look up the types of the columns through, if they aren't cached
+     * @param tableColumnTypes The cached types of the database's tables
+     * @param table            The table to upsert into
+     * @param columns          The columns each row's values map to
+     * @param conflictColumns  The columns of the unique index or constraint rows conflict on, which must be in
+     *                         {@code columns}. This may only be empty if {@code updateColumns} is
+     * @param updateColumns    The columns updated when a row conflicts, which must be in {@code columns}, or an empty
+     *                         list to skip conflicting rows
+     * @return The created upsert
+     */
+    public static BulkUpsert create(Connection connection, TableColumnTypes tableColumnTypes, String table, List<String> columns, List<String> conflictColumns, List<String> updateColumns) throws SQLException {
+        if (columns.isEmpty()) {
+            throw new InvalidUpsertException("At least one column must be upserted");
+        }
+
+        if (conflictColumns.isEmpty() && !updateColumns.isEmpty()) {
+            throw new InvalidUpsertException("Conflict columns are required to update conflicting rows");
+        }
+
+        var conflictIndexes = indexesIn(columns, conflictColumns, "conflict");
+        indexesIn(columns, updateColumns, "update");
+
+        var types = tableColumnTypes.typesOf(connection, table, columns);
+        var arrays = new ArrayList<String>();
+        for (int i = 0; i < types.size(); i++) {
+            if (types.get(i).endsWith("]")) {
+                throw new InvalidUpsertException("Column %s is an array, which can't be upserted through unnest".formatted(columns.get(i)));
+            }
+
+            arrays.add("?::%s[]".formatted(types.get(i)));
+        }
+
+        var conflictAction = updateColumns.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + updateColumns.stream()
+                .map(column -> "%s = EXCLUDED.%s".formatted(column, column))
+                .collect(Collectors.joining(", "));
+        var conflictTarget = conflictColumns.isEmpty() ? "" : "(%s) ".formatted(String.join(", ", conflictColumns));
+
+        var sql = "WITH upserted AS (INSERT INTO %s (%s) SELECT * FROM unnest(%s) ON CONFLICT %s%s RETURNING xmax = 0 AS inserted) SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted"
+                .formatted(table, String.join(", ", columns), String.join(", ", arrays), conflictTarget, conflictAction);
+
+        // Without an update, the server skips repeated keys itself
+        return new BulkUpsert(columns, updateColumns.isEmpty() ? new int[0] : conflictIndexes, sql);
+    }
+
+    /**
+     * Finds where each of some columns is in the upserted columns, comparing them like PostgreSQL would.
+     */
+    private static int[] indexesIn(List<String> columns, List<String> subset, String kind) {
+        var catalogNames = columns.stream().map(TableColumnTypes::catalogName).toList();
+        var indexes = new int[subset.size()];
+
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = catalogNames.indexOf(TableColumnTypes.catalogName(subset.get(i)));
+
+            if (indexes[i] == -1) {
+                throw new InvalidUpsertException("The %s column %s is not one of the upserted columns".formatted(kind, subset.get(i)));
+            }
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Gets the SQL each chunk of rows is sent with.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Upserts rows, in chunks of at most {@code chunkSize} rows. If the connection isn't in a transaction, the chunks
+     * run in one of their own, so either every row is upserted or none are.
+     *
+     * @param connection The connection to upsert through
+     * @param rows       The rows to upsert, each having a plain Java value for every column
+     * @param chunkSize  The most rows sent in one statement
+     * @return How many rows were inserted and updated
+     */
+    public UpsertStatistics run(Connection connection, List<? extends List<?>> rows, int chunkSize) throws SQLException {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).size() != columns.size()) {
+                throw new InvalidUpsertException("Row %d has %d values, expected one for each of the %d columns".formatted(i, rows.get(i).size(), columns.size()));
+            }
+        }
+
+        var uniqueRows = conflictIndexes.length == 0 ? rows : deduplicate(rows);
+        if (uniqueRows.isEmpty()) {
+            return new UpsertStatistics(0, 0, 0, 0);
+        }
+
+        boolean ownTransaction = connection.getAutoCommit();
+        if (ownTransaction) {
+            connection.setAutoCommit(false);
+        }
+
+        long inserted = 0;
+        long updated = 0;
+        int chunks = 0;
+        boolean success = false;
+
+        try (var statement = connection.prepareStatement(sql)) {
+            for (int start = 0; start < uniqueRows.size(); start += chunkSize) {
+                var chunk = uniqueRows.subList(start, Math.min(start + chunkSize, uniqueRows.size()));
+
+                for (int column = 0; column < columns.size(); column++) {
+                    var values = new String[chunk.size()];
+                    for (int row = 0; row < values.length; row++) {
+                        var value = chunk.get(row).get(column);
+                        values[row] = value == null ? null : String.valueOf(value);
+                    }
+
+                    statement.setArray(column + 1, connection.createArrayOf("text", values));
+                }
+
+                try (var resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    inserted += resultSet.getLong(1);
+                    updated += resultSet.getLong(2);
+                }
+
+                chunks++;
+            }
+
+            if (ownTransaction) {
+                connection.commit();
+            }
+
+            success = true;
+        } finally {
+            if (ownTransaction) {
+                try {
+                    if (!success) {
+                        connection.rollback();
+                    }
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+
+        return new UpsertStatistics(inserted, updated, rows.size() - inserted - updated, chunks);
+    }
+
+    /**
+     * Collapses rows with the same conflict key into the last of them, keeping the position of that last row. Rows
+     * with a null in their key are kept, as nulls never conflict.
+     */
+    private List<List<?>> deduplicate(List<? extends List<?>> rows) {
+        var rowsByKey = new LinkedHashMap<Object, List<?>>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            var row = rows.get(i);
+            var key = new Object[conflictIndexes.length];
+            Object mapKey = null;
+
+            for (int k = 0; k < key.length; k++) {
+                key[k] = row.get(conflictIndexes[k]);
+
+                if (key[k] == null) {
+                    // A key no other row can have
+                    mapKey = i;
+                }
+            }
+
+            if (mapKey == null) {
+                mapKey = Arrays.asList(key);
+            }
+
+            rowsByKey.remove(mapKey);
+            rowsByKey.put(mapKey, row);
+        }
+
+        return new ArrayList<>(rowsByKey.values());
+    }
+}
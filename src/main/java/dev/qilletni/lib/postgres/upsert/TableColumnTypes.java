@@ -0,0 +1,106 @@
+package dev.qilletni.lib.postgres.upsert;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The declared types of the columns of tables, as {@code format_type} prints them, such as {@code bigint} or
+ * {@code character varying(255)}. Each table is only looked up in the catalog the first time it's needed, and is shared
+ * by every connection of a database.
+ * <p>
+ * A table is looked up again if a column is asked for that it didn't have when cached. Nothing else notices a table
+ * being altered, so a statement failing with a type or column error should {@link #invalidate(String)} its table.
+ */
+public class TableColumnTypes {
+
+    private static final String COLUMN_TYPES_SQL = """
+            SELECT a.attname, format_type(a.atttypid, a.atttypmod)
+            FROM pg_attribute a
+            WHERE a.attrelid = ?::regclass AND a.attnum > 0 AND NOT a.attisdropped""";
+
+    /**
+     * The types of each table by its name as given, keyed by column name as stored in the catalog.
+     */
+    private final Map<String, Map<String, String>> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the types of some columns of a table, looking the table up if it isn't cached.
+     *
+     * @param connection The connection to look the table up through
+     * @param table      The name of the table, which may be qualified by its schema
+     * @param columns    The columns to get the types of, as they would be written in SQL
+     * @return The type of each column, in order
+     * @throws SQLException If the table doesn't exist, or a column isn't in it
+     */
+    public List<String> typesOf(Connection connection, String table, List<String> columns) throws SQLException {
+        var columnTypes = tables.get(table);
+        boolean cached = columnTypes != null;
+        if (!cached) {
+            columnTypes = lookUp(connection, table);
+            tables.put(table, columnTypes);
+        }
+
+        var types = new String[columns.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = columnTypes.get(catalogName(columns.get(i)));
+
+            if (types[i] == null) {
+                if (cached) {
+                    // The column may have been added since the table was cached
+                    invalidate(table);
+                    return typesOf(connection, table, columns);
+                }
+
+                throw new SQLException("Column %s does not exist in %s".formatted(columns.get(i), table), "42703");
+            }
+        }
+
+        return List.of(types);
+    }
+
+    private static Map<String, String> lookUp(Connection connection, String table) throws SQLException {
+        var columnTypes = new HashMap<String, String>();
+
+        try (var statement = connection.prepareStatement(COLUMN_TYPES_SQL)) {
+            statement.setString(1, table);
+
+            try (var resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    columnTypes.put(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+        }
+
+        return Map.copyOf(columnTypes);
+    }
+
+    /**
+     * Forgets the types of a table, so they are looked up again the next time they are needed.
+     *
+     * @param table The name of the table, as it was given to {@link #typesOf(Connection, String, List)}
+     */
+    public void invalidate(String table) {
+        tables.remove(table);
+    }
+
+    public void clear() {
+        tables.clear();
+    }
+
+    /**
+     * Gets the name a column is stored by in the catalog: unquoted identifiers are folded to lowercase like PostgreSQL
+     * does, quoted ones are kept as-is.
+     */
+    static String catalogName(String column) {
+        if (column.length() > 1 && column.startsWith("\"") && column.endsWith("\"")) {
+            return column.substring(1, column.length() - 1).replace("\"\"", "\"");
+        }
+
+        return column.toLowerCase(Locale.ROOT);
+    }
+}
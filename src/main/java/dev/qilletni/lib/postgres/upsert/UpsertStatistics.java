@@ -0,0 +1,13 @@
+package dev.qilletni.lib.postgres.upsert;
+
+/**
+ * The outcome of upserting rows into a table.
+ *
+ * @param inserted The amount of rows inserted
+ * @param updated  The amount of existing rows updated
+ * @param skipped  The amount of rows neither inserted nor updated, as they conflicted and nothing was to be updated,
+ *                 or a later row with the same conflict key replaced them
+ * @param chunks   The amount of statements the rows were sent in
+ */
+public record UpsertStatistics(long inserted, long updated, long skipped, int chunks) {
+}
@@ -0,0 +1,12 @@
+package dev.qilletni.lib.postgres.write;
+
+import java.util.List;
+
+/**
+ * An update queued by a {@link WriteBehindBuffer}, holding a copy of its parameters as they were when it was queued.
+ *
+ * @param sql        The SQL of the update
+ * @param parameters The parameters to bind, converted to plain Java values
+ */
+public record BufferedWrite(String sql, List<Object> parameters) {
+}
@@ -0,0 +1,303 @@
+package dev.qilletni.lib.postgres.write;
+
+import dev.qilletni.lib.postgres.DatabaseTypeUtility;
+import dev.qilletni.lib.postgres.cache.ResultCache;
+import dev.qilletni.lib.postgres.metrics.QueryMetrics;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues a connection's updates and runs them together in a single transaction, so a script making many small writes
+ * pays for one commit instead of one per write. Consecutive writes of the same SQL are sent as one JDBC batch.
+ * <p>
+ * The buffer is flushed on the connection itself once it holds {@link #getMaxStatements()} writes, or when asked to.
+ * If a write has been queued for {@link #getMaxDelayMillis()} without that happening, it is flushed in the background
+ * on a connection borrowed from the pool. A failure no caller was told about, such as of a background flush, is kept
+ * until {@link #takeFailure()}.
+ * <p>
+ * If a flush fails, the transaction is rolled back and its writes are dropped, as retrying them would likely fail the
+ * same way. A connection that is already in a transaction is never flushed on, as the writes would join and commit a
+ * transaction they aren't part of; they stay queued until the connection is back in autocommit mode or the background
+ * flush runs.
+ */
+public class WriteBehindBuffer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "qilletni-postgres-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConnectionPool pool;
+    private final QueryMetrics queryMetrics;
+    private final ResultCache resultCache;
+
+    private final int maxStatements;
+    private final long maxDelayMillis;
+
+    /**
+     * Held while a flush runs, so flushes from the connection and the background run one at a time and in order.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Guarded by this
+    private List<BufferedWrite> pending = new ArrayList<>();
+    private long oldestNanos;
+    private ScheduledFuture<?> scheduledFlush;
+    private SQLException failure;
+    private boolean closed;
+
+    /**
+     * Creates a buffer.
+     *
+     * @param pool           The pool background flushes borrow a connection from
+     * @param queryMetrics   The metrics flushed statements are recorded into
+     * @param resultCache    The cache whose results flushed writes make stale
+     * @param maxStatements  The amount of queued writes that makes {@link #add(BufferedWrite)} ask for a flush
+     * @param maxDelayMillis The longest a write is queued before it is flushed in the background
+     */
+    public WriteBehindBuffer(ConnectionPool pool, QueryMetrics queryMetrics, ResultCache resultCache, int maxStatements, long maxDelayMillis) {
+        this.pool = pool;
+        this.queryMetrics = queryMetrics;
+        this.resultCache = resultCache;
+        this.maxStatements = Math.max(1, maxStatements);
+        this.maxDelayMillis = Math.max(1, maxDelayMillis);
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Queues a write.
+     *
+     * @param write The write to queue
+     * @return If the buffer is full and should be flushed
+     */
+    public synchronized boolean add(BufferedWrite write) {
+        if (pending.isEmpty()) {
+            oldestNanos = System.nanoTime();
+            scheduleFlush(maxDelayMillis);
+        }
+
+        pending.add(write);
+        return pending.size() >= maxStatements;
+    }
+
+    public synchronized int pending() {
+        return pending.size();
+    }
+
+    /**
+     * Gets the failure of the last flush that failed without being reported since this was last called, clearing it.
+     *
+     * @return The failure, or null if no unreported flush failed
+     */
+    public synchronized SQLException takeFailure() {
+        var lastFailure = failure;
+        failure = null;
+        return lastFailure;
+    }
+
+    /**
+     * Keeps the failure of a flush whose caller can't report it, to be reported by {@link #takeFailure()}.
+     *
+     * @param failure The failure
+     */
+    public synchronized void keepFailure(SQLException failure) {
+        this.failure = failure;
+    }
+
+    private synchronized List<BufferedWrite> drain() {
+        var writes = pending;
+        pending = new ArrayList<>();
+
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        return writes;
+    }
+
+    /**
+     * Runs every queued write in a single transaction. If the connection is in a transaction already, nothing is run and
+     * the writes stay queued.
+     *
+     * @param connection The connection to run the writes on
+     * @return The amount of rows the writes affected, not counting writes the driver reported no count for
+     */
+    public long flush(Connection connection) throws SQLException {
+        flushLock.lock();
+
+        try {
+            if (!connection.getAutoCommit()) {
+                return 0;
+            }
+
+            var writes = drain();
+            if (writes.isEmpty()) {
+                return 0;
+            }
+
+            return runInTransaction(connection, writes);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private long runInTransaction(Connection connection, List<BufferedWrite> writes) throws SQLException {
+        connection.setAutoCommit(false);
+        long rows = 0;
+        String sql = null;
+
+        try {
+            int start = 0;
+            while (start < writes.size()) {
+                sql = writes.get(start).sql();
+                int end = start + 1;
+                while (end < writes.size() && writes.get(end).sql().equals(sql)) {
+                    end++;
+                }
+
+                rows += runBatch(connection, sql, writes.subList(start, end));
+                start = end;
+            }
+
+            sql = null;
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            var failedOn = sql == null ? "commit" : "\"%s\"".formatted(sql);
+            var sqlState = e instanceof SQLException sqlException ? sqlException.getSQLState() : null;
+            var failure = new SQLException("Flushing %d buffered writes failed on %s, and all of them were dropped: %s".formatted(writes.size(), failedOn, e.getMessage()), sqlState, e);
+
+            // Cleaning up may fail too, such as if the connection broke, which mustn't hide why the flush failed
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                failure.addSuppressed(rollbackFailure);
+            }
+
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException autoCommitFailure) {
+                failure.addSuppressed(autoCommitFailure);
+            }
+
+            throw failure;
+        }
+
+        connection.setAutoCommit(true);
+
+        for (var write : writes) {
+            resultCache.invalidateWrites(write.sql());
+        }
+
+        return rows;
+    }
+
+    /**
+     * Runs consecutive writes of the same SQL as a single batch.
+     */
+    private long runBatch(Connection connection, String sql, List<BufferedWrite> writes) throws SQLException {
+        long start = System.nanoTime();
+
+        try (var statement = connection.prepareStatement(sql)) {
+            for (var write : writes) {
+                var parameters = write.parameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    DatabaseTypeUtility.bindParameter(statement, i + 1, parameters.get(i));
+                }
+
+                statement.addBatch();
+            }
+
+            long rows = 0;
+            for (int updateCount : statement.executeBatch()) {
+                rows += Math.max(0, updateCount);
+            }
+
+            queryMetrics.record(sql, System.nanoTime() - start, rows, null);
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            queryMetrics.record(sql, System.nanoTime() - start, 0, e);
+            throw e;
+        }
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (!closed) {
+            scheduledFlush = SCHEDULER.schedule(() -> Thread.ofVirtual().start(this::flushInBackground), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Flushes the queued writes on a borrowed connection if the oldest has waited long enough, otherwise waits for it to.
+     */
+    private void flushInBackground() {
+        synchronized (this) {
+            if (pending.isEmpty() || closed) {
+                return;
+            }
+
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldestNanos);
+            if (waitedMillis < maxDelayMillis) {
+                scheduleFlush(maxDelayMillis - waitedMillis);
+                return;
+            }
+        }
+
+        try {
+            var pooledConnection = pool.borrow();
+
+            try {
+                flush(pooledConnection.connection());
+            } finally {
+                pool.release(pooledConnection);
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Background flush of buffered writes failed: {}", e.getMessage());
+
+            synchronized (this) {
+                failure = e;
+
+                // If no connection could be borrowed, the writes are still queued and are tried again later
+                if (!pending.isEmpty() && (scheduledFlush == null || scheduledFlush.isDone())) {
+                    scheduleFlush(maxDelayMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops flushing in the background. Writes still queued are dropped, so the buffer should be flushed first.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        pending.clear();
+    }
+}
@@ -0,0 +1,67 @@
+package dev.qilletni.lib.postgres.blob;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlobTransferTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamsIntoTheFile() throws Exception {
+        var bytes = new byte[100_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        var path = directory.resolve("track.mp3");
+
+        assertEquals(bytes.length, BlobTransfer.streamToFile(new ByteArrayInputStream(bytes), path));
+        assertArrayEquals(bytes, Files.readAllBytes(path));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(path), files.toList());
+        }
+    }
+
+    @Test
+    void failureSurvivesCleanupFailures() {
+        var calls = new ArrayList<String>();
+        var connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            calls.add(method.getName());
+
+            return switch (method.getName()) {
+                case "getAutoCommit" -> true;
+                case "setAutoCommit" -> {
+                    if (!(boolean) args[0]) {
+                        yield null;
+                    }
+
+                    throw new SQLException("connection closed while restoring autocommit");
+                }
+                case "unwrap" -> throw new SQLException("not a PostgreSQL connection");
+                case "rollback" -> throw new SQLException("connection closed while rolling back");
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        });
+
+        var failure = assertThrows(SQLException.class, () -> BlobTransfer.readLargeObject(connection, 1, directory.resolve("track.mp3")));
+
+        assertEquals("not a PostgreSQL connection", failure.getMessage());
+        assertEquals(2, failure.getSuppressed().length);
+        assertEquals(List.of("getAutoCommit", "setAutoCommit", "unwrap", "rollback", "setAutoCommit"), calls);
+    }
+}
@@ -0,0 +1,45 @@
+package dev.qilletni.lib.postgres.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedCacheTest {
+
+    @Test
+    void keepsValuesUntilFull() {
+        var cache = new BoundedCache<String, Integer>(2);
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        assertEquals(1, cache.get("a"));
+        assertEquals(2, cache.get("b"));
+    }
+
+    @Test
+    void isEmptiedOnceFull() {
+        var cache = new BoundedCache<String, Integer>(2);
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void replacingAValueKeepsTheRest() {
+        var cache = new BoundedCache<String, Integer>(2);
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("b", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("b"));
+    }
+}
@@ -0,0 +1,85 @@
+package dev.qilletni.lib.postgres.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResultCacheTest {
+
+    private static final ResultCacheKey ARTISTS = new ResultCacheKey("SELECT * FROM artist", List.of(), false);
+    private static final List<List<Object>> ROWS = List.of(List.of(1L, "Queen"));
+
+    @Test
+    void cachesReads() {
+        var cache = enabledCache();
+
+        cache.put(ARTISTS, ROWS, Set.of("artist"), 60_000, 0, cache.generation(), true);
+
+        assertEquals(ROWS, cache.get(ARTISTS));
+    }
+
+    @Test
+    void readsStartedBeforeAnInvalidationAreNotCached() {
+        var cache = enabledCache();
+        long generation = cache.generation();
+
+        cache.invalidate(Set.of("track"));
+        cache.put(ARTISTS, ROWS, Set.of("artist"), 60_000, 0, generation, false);
+
+        assertNull(cache.get(ARTISTS));
+    }
+
+    @Test
+    void replicaReadsOfRecentlyWrittenTablesAreNotCached() {
+        var cache = enabledCache();
+
+        cache.invalidate(Set.of("artist"));
+        cache.put(ARTISTS, ROWS, Set.of("artist"), 60_000, 0, cache.generation(), true);
+
+        assertNull(cache.get(ARTISTS));
+    }
+
+    @Test
+    void replicaReadsAfterAWriteToEveryTableAreNotCached() {
+        var cache = enabledCache();
+
+        cache.invalidate(null);
+        cache.put(ARTISTS, ROWS, Set.of("artist"), 60_000, 0, cache.generation(), true);
+
+        assertNull(cache.get(ARTISTS));
+    }
+
+    @Test
+    void primaryAndUnrelatedReplicaReadsAreCached() {
+        var cache = enabledCache();
+        var tracks = new ResultCacheKey("SELECT * FROM track", List.of(), false);
+
+        cache.invalidate(Set.of("artist"));
+        cache.put(ARTISTS, ROWS, Set.of("artist"), 60_000, 0, cache.generation(), false);
+        cache.put(tracks, ROWS, Set.of("track"), 60_000, 0, cache.generation(), true);
+
+        assertEquals(ROWS, cache.get(ARTISTS));
+        assertEquals(ROWS, cache.get(tracks));
+    }
+
+    @Test
+    void replicaReadsAreCachedWithoutALagWindow() {
+        var cache = enabledCache();
+        cache.setReplicaLagMillis(0);
+
+        cache.invalidate(Set.of("artist"));
+        cache.put(ARTISTS, ROWS, Set.of("artist"), 60_000, 0, cache.generation(), true);
+
+        assertEquals(ROWS, cache.get(ARTISTS));
+    }
+
+    private static ResultCache enabledCache() {
+        var cache = new ResultCache();
+        cache.configure(1_000_000, 60_000);
+        return cache;
+    }
+}
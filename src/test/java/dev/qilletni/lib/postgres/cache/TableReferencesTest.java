@@ -0,0 +1,67 @@
+package dev.qilletni.lib.postgres.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableReferencesTest {
+
+    @Test
+    void readTablesIncludeEveryIdentifier() {
+        var tables = TableReferences.readTables("SELECT a.name, t.title FROM artist a JOIN track t ON t.artist_id = a.id");
+
+        assertTrue(tables.containsAll(Set.of("artist", "track", "name", "title")));
+    }
+
+    @Test
+    void readTablesFoldUnquotedNames() {
+        var tables = TableReferences.readTables("SELECT * FROM Artist JOIN \"Track\" USING (id)");
+
+        assertTrue(tables.contains("artist"));
+        assertTrue(tables.contains("Track"));
+        assertFalse(tables.contains("track"));
+    }
+
+    @Test
+    void readTablesIgnoreLiterals() {
+        var tables = TableReferences.readTables("SELECT * FROM artist WHERE name = 'track'");
+
+        assertTrue(tables.contains("artist"));
+        assertFalse(tables.contains("track"));
+    }
+
+    @Test
+    void writtenTablesOfEachWrite() {
+        assertEquals(Set.of("artist"), TableReferences.writtenTables("INSERT INTO artist (name) VALUES ('a')"));
+        assertEquals(Set.of("artist"), TableReferences.writtenTables("UPDATE artist SET name = 'a' WHERE id = 1"));
+        assertEquals(Set.of("artist"), TableReferences.writtenTables("DELETE FROM artist WHERE id = 1"));
+        assertEquals(Set.of("artist"), TableReferences.writtenTables("MERGE INTO artist USING staged ON artist.id = staged.id WHEN MATCHED THEN DELETE"));
+        assertEquals(Set.of("artist"), TableReferences.writtenTables("COPY artist FROM STDIN"));
+    }
+
+    @Test
+    void writtenTablesUseTheLastPartOfQualifiedNames() {
+        assertEquals(Set.of("artist"), TableReferences.writtenTables("UPDATE public.artist SET name = 'a'"));
+        assertEquals(Set.of("artist"), TableReferences.writtenTables("DELETE FROM ONLY music.artist"));
+        assertEquals(Set.of("Artist"), TableReferences.writtenTables("INSERT INTO music.\"Artist\" DEFAULT VALUES"));
+    }
+
+    @Test
+    void writtenTablesOfEveryWriteInAStatement() {
+        var tables = TableReferences.writtenTables("WITH moved AS (DELETE FROM queue RETURNING *) INSERT INTO archive SELECT * FROM moved");
+
+        assertEquals(Set.of("queue", "archive"), tables);
+    }
+
+    @Test
+    void writtenTablesAreUnknownWithoutATarget() {
+        assertNull(TableReferences.writtenTables("TRUNCATE artist"));
+        assertNull(TableReferences.writtenTables("SELECT refresh_everything()"));
+        assertNull(TableReferences.writtenTables("ALTER TABLE artist ADD COLUMN genre text"));
+    }
+}
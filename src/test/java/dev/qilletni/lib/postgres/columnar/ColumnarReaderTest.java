@@ -0,0 +1,89 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import dev.qilletni.lib.postgres.fixtures.TextResultSet;
+import dev.qilletni.lib.postgres.fixtures.TextResultSet.Column;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarReaderTest {
+
+    @Test
+    void boolColumnsAreBooleans() throws Exception {
+        var result = ColumnarReader.read(resultSet(Types.BIT, "bool", List.of("t", "f")), 0);
+
+        var column = assertInstanceOf(BooleanColumn.class, result.columns().getFirst());
+        assertEquals(true, column.get(0));
+        assertEquals(false, column.get(1));
+    }
+
+    @Test
+    void bitStringsAreStrings() throws Exception {
+        var result = ColumnarReader.read(resultSet(Types.BIT, "bit", List.of("1010", "0001")), 0);
+
+        var column = assertInstanceOf(StringColumn.class, result.columns().getFirst());
+        assertEquals("1010", column.get(0));
+        assertEquals("0001", column.get(1));
+    }
+
+    @Test
+    void varbitColumnsAreStrings() throws Exception {
+        var result = ColumnarReader.read(resultSet(Types.OTHER, "varbit", List.of("101")), 0);
+
+        var column = assertInstanceOf(StringColumn.class, result.columns().getFirst());
+        assertEquals("101", column.get(0));
+    }
+
+    @Test
+    void repeatedStringsStayDictionaryEncoded() throws Exception {
+        var values = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            values.add(i % 3 == 0 ? null : "genre" + i % 7);
+        }
+
+        var column = (StringColumn) ColumnarReader.read(resultSet(Types.VARCHAR, "text", values), 0).columns().getFirst();
+
+        assertTrue(column.isDictionaryEncoded());
+        assertNull(column.get(0));
+        assertEquals("genre1", column.get(1));
+    }
+
+    @Test
+    void encodingStopsOnceLaterRowsAreMostlyDistinct() throws Exception {
+        // The first sample only repeats one value, the rest are all distinct
+        var values = new ArrayList<String>();
+        for (int i = 0; i < 1024; i++) {
+            values.add("same");
+        }
+
+        for (int i = 0; i < 8192; i++) {
+            values.add("title" + i);
+        }
+
+        var column = (StringColumn) ColumnarReader.read(resultSet(Types.VARCHAR, "text", values), 0).columns().getFirst();
+
+        assertFalse(column.isDictionaryEncoded());
+        assertEquals(values.size(), column.size());
+        assertEquals("same", column.get(1023));
+        assertEquals("title0", column.get(1024));
+        assertEquals("title8191", column.get(values.size() - 1));
+    }
+
+    @Test
+    void tooManyRowsReadNothing() throws Exception {
+        assertNull(ColumnarReader.read(resultSet(Types.VARCHAR, "text", List.of("a", "b", "c")), 2));
+    }
+
+    private static ResultSet resultSet(int sqlType, String typeName, List<String> values) {
+        return TextResultSet.of(new Column("value", sqlType, typeName), values);
+    }
+}
@@ -0,0 +1,52 @@
+package dev.qilletni.lib.postgres.columnar;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NumericColumnTest {
+
+    @Test
+    void aggregatesSkipNulls() {
+        var nulls = new BitSet();
+        nulls.set(1);
+        var column = new IntColumn(new int[]{4, 0, -2, 7}, nulls, 4);
+
+        assertEquals(9L, column.sum());
+        assertEquals(-2L, column.min());
+        assertEquals(7L, column.max());
+        assertEquals(3.0, column.mean());
+    }
+
+    @Test
+    void onlyNullsHaveNoAggregates() {
+        var nulls = new BitSet();
+        nulls.set(0, 2);
+        var column = new DoubleColumn(new double[]{0, 0}, nulls, 2);
+
+        assertNull(column.sum());
+        assertNull(column.min());
+        assertNull(column.max());
+        assertNull(column.mean());
+    }
+
+    @Test
+    void doublesAreAggregatedAsDoubles() {
+        var column = new DoubleColumn(new double[]{1.5, -0.5}, new BitSet(), 2);
+
+        assertEquals(1.0, column.sum());
+        assertEquals(-0.5, column.min());
+        assertEquals(1.5, column.max());
+    }
+
+    @Test
+    void overflowingSumBecomesADouble() {
+        var column = new LongColumn(new long[]{Long.MAX_VALUE, Long.MAX_VALUE, -1}, new BitSet(), 3);
+
+        assertEquals(2.0 * Long.MAX_VALUE - 1, column.sum());
+        assertEquals((2.0 * Long.MAX_VALUE - 1) / 3, column.mean());
+    }
+}
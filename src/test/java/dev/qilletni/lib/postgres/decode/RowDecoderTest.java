@@ -0,0 +1,55 @@
+package dev.qilletni.lib.postgres.decode;
+
+import dev.qilletni.lib.postgres.exceptions.DatabaseException;
+import dev.qilletni.lib.postgres.fixtures.TextResultSet;
+import dev.qilletni.lib.postgres.fixtures.TextResultSet.Column;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowDecoderTest {
+
+    private static final List<Column> COLUMNS = List.of(
+            new Column("active", Types.BIT, "bool"),
+            new Column("flags", Types.BIT, "bit"),
+            new Column("mask", Types.OTHER, "varbit"),
+            new Column("plays", Types.BIGINT, "int8"));
+
+    @Test
+    void bitStringsAreStrings() throws Exception {
+        var resultSet = singleRow("t", "0110", "101", "7");
+
+        assertEquals(Arrays.asList(true, "0110", "101", 7L), RowDecoder.fromMetadata(resultSet.getMetaData()).decodeRow(resultSet));
+    }
+
+    @Test
+    void nullsStayNull() throws Exception {
+        var resultSet = singleRow(null, null, null, null);
+
+        assertEquals(Arrays.asList(null, null, null, null), RowDecoder.fromMetadata(resultSet.getMetaData()).decodeRow(resultSet));
+    }
+
+    @Test
+    void columnsOutOfBoundsAreRejected() throws Exception {
+        var resultSet = singleRow("t", "1", "1", "1");
+        var rowDecoder = RowDecoder.fromMetadata(resultSet.getMetaData());
+
+        assertThrows(DatabaseException.class, () -> rowDecoder.decode(resultSet, 0));
+        assertThrows(DatabaseException.class, () -> rowDecoder.decode(resultSet, 5));
+    }
+
+    /**
+     * A result set positioned on its only row.
+     */
+    private static ResultSet singleRow(String... values) throws Exception {
+        var resultSet = TextResultSet.of(COLUMNS, List.of(Arrays.asList(values)));
+        resultSet.next();
+        return resultSet;
+    }
+}
@@ -0,0 +1,223 @@
+package dev.qilletni.lib.postgres.fixtures;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * An in-process JDBC driver for URLs like {@code jdbc:qilletni-test:<name>}, whose connections record what is done with
+ * them instead of talking to a server. Each call of {@link #newDatabase()} gets a URL of its own, so tests never see
+ * each other's connections.
+ */
+public class TestDriver implements Driver {
+
+    private static final String URL_PREFIX = "jdbc:qilletni-test:";
+
+    private static final Map<String, List<TestConnection>> CONNECTIONS = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new TestDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Gets the URL of a new, empty database.
+     */
+    public static String newDatabase() {
+        var url = URL_PREFIX + UUID.randomUUID();
+        CONNECTIONS.put(url, new CopyOnWriteArrayList<>());
+        return url;
+    }
+
+    /**
+     * Gets every connection opened to a database, in the order they were opened.
+     */
+    public static List<TestConnection> connections(String url) {
+        return CONNECTIONS.get(url);
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        var connection = new TestConnection();
+        CONNECTIONS.get(url).add(connection);
+        return connection.proxy();
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /**
+     * A connection of the {@link TestDriver}. Statements run through {@link Connection#createStatement()} and the
+     * statements prepared on it are recorded, along with transaction calls. Notifications sent through
+     * {@link #sendNotification(String, String)} are delivered by {@link PGConnection#getNotifications(int)}.
+     */
+    public static class TestConnection {
+
+        /**
+         * What was done with the connection, such as {@code commit}, {@code prepare <sql>} or {@code execute <sql>}.
+         */
+        public final List<String> calls = new CopyOnWriteArrayList<>();
+
+        private final BlockingQueue<PGNotification> notifications = new LinkedBlockingQueue<>();
+        private volatile boolean autoCommit = true;
+        private volatile boolean closed;
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Closes the connection as if the server went away, without the pool knowing.
+         */
+        public void breakConnection() {
+            closed = true;
+        }
+
+        /**
+         * Queues a notification for the connection, whether or not it listens to the channel.
+         */
+        public void sendNotification(String channel, String payload) {
+            notifications.add((PGNotification) Proxy.newProxyInstance(TestDriver.class.getClassLoader(), new Class<?>[]{PGNotification.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getName" -> channel;
+                case "getParameter" -> payload;
+                case "getPID" -> 1;
+                default -> throw new UnsupportedOperationException(method.getName());
+            }));
+        }
+
+        private Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(TestDriver.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getAutoCommit" -> autoCommit;
+                case "setAutoCommit" -> {
+                    autoCommit = (boolean) args[0];
+                    calls.add("setAutoCommit(%s)".formatted(autoCommit));
+                    yield null;
+                }
+                case "commit", "rollback", "clearWarnings" -> {
+                    calls.add(method.getName());
+                    yield null;
+                }
+                case "isClosed" -> closed;
+                case "isValid" -> !closed;
+                case "close" -> {
+                    closed = true;
+                    yield null;
+                }
+                case "createStatement" -> statement();
+                case "prepareStatement" -> preparedStatement((String) args[0]);
+                case "unwrap" -> pgConnection();
+                case "toString" -> "TestConnection@" + Integer.toHexString(hashCode());
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private PGConnection pgConnection() {
+            return (PGConnection) Proxy.newProxyInstance(TestDriver.class.getClassLoader(), new Class<?>[]{PGConnection.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("getNotifications") || args == null) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+
+                if (closed) {
+                    throw new SQLException("This connection has been closed.", "08003");
+                }
+
+                PGNotification first;
+                try {
+                    first = notifications.poll((int) args[0], TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    // Woken up by the listener closing, which then sees nothing arrived, like after a timeout
+                    Thread.currentThread().interrupt();
+                    first = null;
+                }
+
+                if (first == null) {
+                    return new PGNotification[0];
+                }
+
+                var received = new ArrayList<PGNotification>();
+                received.add(first);
+                notifications.drainTo(received);
+                return received.toArray(PGNotification[]::new);
+            });
+        }
+
+        private Statement statement() {
+            return (Statement) Proxy.newProxyInstance(TestDriver.class.getClassLoader(), new Class<?>[]{Statement.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "execute" -> {
+                    calls.add("execute " + args[0]);
+                    yield false;
+                }
+                case "close" -> null;
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private PreparedStatement preparedStatement(String sql) {
+            calls.add("prepare " + sql);
+
+            return (PreparedStatement) Proxy.newProxyInstance(TestDriver.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "clearParameters", "clearBatch" -> null;
+                case "close" -> {
+                    calls.add("close " + sql);
+                    yield null;
+                }
+                case "toString" -> sql;
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dev.qilletni.lib.postgres.fixtures;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A forward-only result set whose values are given as the text the server would send, for testing code that reads
+ * results through the driver's typed getters. Booleans are {@code t} or {@code f}, and null is SQL NULL.
+ */
+public class TextResultSet {
+
+    private TextResultSet() {}
+
+    /**
+     * Creates a result set of a single column.
+     *
+     * @param column The column
+     * @param values The value of each row
+     * @return The result set, positioned before the first row
+     */
+    public static ResultSet of(Column column, List<String> values) {
+        return of(List.of(column), values.stream().map(Collections::singletonList).toList());
+    }
+
+    /**
+     * Creates a result set.
+     *
+     * @param columns The columns
+     * @param rows    The values of each row, in column order
+     * @return The result set, positioned before the first row
+     */
+    public static ResultSet of(List<Column> columns, List<List<String>> rows) {
+        var metaData = (ResultSetMetaData) Proxy.newProxyInstance(TextResultSet.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getColumnCount" -> columns.size();
+            case "getColumnName", "getColumnLabel" -> columns.get((int) args[0] - 1).label();
+            case "getColumnType" -> columns.get((int) args[0] - 1).sqlType();
+            case "getColumnTypeName" -> columns.get((int) args[0] - 1).typeName();
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        var row = new int[]{-1};
+        var lastRead = new String[1];
+        return (ResultSet) Proxy.newProxyInstance(TextResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getMetaData":
+                    return metaData;
+                case "next":
+                    return ++row[0] < rows.size();
+                case "wasNull":
+                    return lastRead[0] == null;
+            }
+
+            var value = rows.get(row[0]).get((int) args[0] - 1);
+            lastRead[0] = value;
+
+            return switch (method.getName()) {
+                case "getString", "getObject" -> value;
+                case "getBoolean" -> "t".equals(value);
+                case "getInt" -> value == null ? 0 : Integer.parseInt(value);
+                case "getLong" -> value == null ? 0L : Long.parseLong(value);
+                case "getDouble" -> value == null ? 0D : Double.parseDouble(value);
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        });
+    }
+
+    /**
+     * A column of a {@link TextResultSet}.
+     *
+     * @param label    The name and label of the column
+     * @param sqlType  The {@link java.sql.Types} constant of the column
+     * @param typeName The PostgreSQL name of the column's type, such as {@code int8}
+     */
+    public record Column(String label, int sqlType, String typeName) {
+    }
+}
@@ -0,0 +1,46 @@
+package dev.qilletni.lib.postgres.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlNormalizerTest {
+
+    @Test
+    void literalsBecomePlaceholders() {
+        assertEquals("SELECT * FROM artist WHERE id = ? AND name = ?", SqlNormalizer.normalize("SELECT * FROM artist WHERE id = 42 AND name = 'Queen'"));
+        assertEquals("SELECT ? * price", SqlNormalizer.normalize("SELECT 1.5 * price"));
+    }
+
+    @Test
+    void escapedQuotesStayInTheirLiteral() {
+        assertEquals("SELECT * FROM artist WHERE name = ?", SqlNormalizer.normalize("SELECT * FROM artist WHERE name = 'Guns N'' Roses'"));
+    }
+
+    @Test
+    void digitsInIdentifiersAndParametersAreKept() {
+        assertEquals("SELECT col1 FROM table2 WHERE id = $1", SqlNormalizer.normalize("SELECT col1 FROM table2 WHERE id = $1"));
+    }
+
+    @Test
+    void commentsAreDropped() {
+        assertEquals("SELECT ?", SqlNormalizer.normalize("/* by id */ SELECT 1 -- trailing"));
+        assertEquals("SELECT ? FROM artist", SqlNormalizer.normalize("SELECT 1 -- first\nFROM artist"));
+    }
+
+    @Test
+    void whitespaceIsCollapsed() {
+        assertEquals("SELECT * FROM artist", SqlNormalizer.normalize("  SELECT *\n\tFROM   artist  "));
+    }
+
+    @Test
+    void placeholderListsBecomeOne() {
+        assertEquals("SELECT * FROM artist WHERE id IN (?)", SqlNormalizer.normalize("SELECT * FROM artist WHERE id IN (1, 2, 3)"));
+        assertEquals("SELECT * FROM artist WHERE id IN (?)", SqlNormalizer.normalize("SELECT * FROM artist WHERE id IN (?,?)"));
+    }
+
+    @Test
+    void statementsDifferingInLiteralsNormalizeTheSame() {
+        assertEquals(SqlNormalizer.normalize("UPDATE artist SET plays = 10 WHERE id = 1"), SqlNormalizer.normalize("UPDATE artist SET plays = 200 WHERE id = 7"));
+    }
+}
@@ -0,0 +1,104 @@
+package dev.qilletni.lib.postgres.notify;
+
+import dev.qilletni.lib.postgres.fixtures.TestDriver;
+import dev.qilletni.lib.postgres.pool.ConnectionPool;
+import dev.qilletni.lib.postgres.pool.PoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationListenerTest {
+
+    private final String url = TestDriver.newDatabase();
+    private final ConnectionPool pool = new ConnectionPool(url, "", "", PoolConfig.DEFAULT);
+    private NotificationListener listener;
+
+    @AfterEach
+    void close() {
+        listener.close();
+        pool.close();
+    }
+
+    @Test
+    void listensToQuotedChannels() throws Exception {
+        listener = new NotificationListener(pool, 10);
+
+        listener.listen("track \"plays\"");
+        listener.unlisten("track \"plays\"");
+
+        assertEquals(List.of("execute LISTEN \"track \"\"plays\"\"\"", "execute UNLISTEN \"track \"\"plays\"\"\""), connection(0).calls);
+        assertFalse(listener.isListening("track \"plays\""));
+    }
+
+    @Test
+    void queuesReceivedNotifications() throws Exception {
+        listener = new NotificationListener(pool, 10);
+        listener.listen("plays");
+
+        connection(0).sendNotification("plays", "1");
+        connection(0).sendNotification("plays", "2");
+
+        var notifications = awaitAll(2);
+        assertEquals(List.of(new Notification("plays", "1", 1), new Notification("plays", "2", 1)), notifications);
+        assertEquals(0, listener.pending());
+    }
+
+    @Test
+    void fullQueueHoldsBackNotifications() throws Exception {
+        listener = new NotificationListener(pool, 1);
+        listener.listen("plays");
+
+        connection(0).sendNotification("plays", "1");
+        connection(0).sendNotification("plays", "2");
+
+        waitFor(() -> listener.pending() == 1);
+        assertEquals(List.of(new Notification("plays", "1", 1)), listener.poll(10));
+        assertEquals(List.of(new Notification("plays", "2", 1)), listener.await(5_000, 10));
+    }
+
+    @Test
+    void brokenConnectionIsReopenedAndListenedOnAgain() throws Exception {
+        listener = new NotificationListener(pool, 10);
+        listener.listen("plays");
+
+        connection(0).breakConnection();
+
+        waitFor(() -> TestDriver.connections(url).size() == 2 && !connection(1).calls.isEmpty());
+        assertEquals(List.of("execute LISTEN \"plays\""), connection(1).calls);
+
+        connection(1).sendNotification("plays", "1");
+        assertEquals(List.of(new Notification("plays", "1", 1)), awaitAll(1));
+    }
+
+    private TestDriver.TestConnection connection(int index) {
+        return TestDriver.connections(url).get(index);
+    }
+
+    private List<Notification> awaitAll(int count) {
+        var notifications = new ArrayList<Notification>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (notifications.size() < count && System.nanoTime() < deadline) {
+            notifications.addAll(listener.await(100, count - notifications.size()));
+        }
+
+        return notifications;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(condition.getAsBoolean());
+    }
+}
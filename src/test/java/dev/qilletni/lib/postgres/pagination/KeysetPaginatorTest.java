@@ -0,0 +1,56 @@
+package dev.qilletni.lib.postgres.pagination;
+
+import dev.qilletni.lib.postgres.exceptions.InvalidPaginationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetPaginatorTest {
+
+    @Test
+    void firstPageReadsOneExtraRow() {
+        var paginator = new KeysetPaginator("SELECT * FROM track", List.of("id"), 50, false, null);
+
+        assertEquals("SELECT * FROM (SELECT * FROM track) AS keyset_page ORDER BY id LIMIT 51", paginator.getSql());
+    }
+
+    @Test
+    void nextPagesContinueFromTheLastKey() {
+        var paginator = new KeysetPaginator("SELECT * FROM track", List.of("album_id", "id"), 50, false, null);
+
+        assertEquals("SELECT * FROM (SELECT * FROM track) AS keyset_page WHERE (album_id, id) > (?, ?) ORDER BY album_id, id LIMIT 51", paginator.getNextPageSql());
+    }
+
+    @Test
+    void descendingPagesContinueBelowTheLastKey() {
+        var paginator = new KeysetPaginator("SELECT * FROM track", List.of("album_id", "id"), 10, true, null);
+
+        assertEquals("SELECT * FROM (SELECT * FROM track) AS keyset_page ORDER BY album_id DESC, id DESC LIMIT 11", paginator.getSql());
+        assertEquals("SELECT * FROM (SELECT * FROM track) AS keyset_page WHERE (album_id, id) < (?, ?) ORDER BY album_id DESC, id DESC LIMIT 11", paginator.getNextPageSql());
+    }
+
+    @Test
+    void trailingSemicolonsAreRemoved() {
+        var paginator = new KeysetPaginator("  SELECT * FROM track;; ", List.of("id"), 5, false, null);
+
+        assertEquals("SELECT * FROM (SELECT * FROM track) AS keyset_page ORDER BY id LIMIT 6", paginator.getSql());
+    }
+
+    @Test
+    void startsBeforeTheFirstPage() {
+        var paginator = new KeysetPaginator("SELECT * FROM track", List.of("id"), 5, false, null);
+
+        assertTrue(paginator.hasNextPage());
+        assertEquals(0, paginator.getPages());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(InvalidPaginationException.class, () -> new KeysetPaginator("SELECT * FROM track", List.of(), 5, false, null));
+        assertThrows(InvalidPaginationException.class, () -> new KeysetPaginator("SELECT * FROM track", List.of("id"), 0, false, null));
+    }
+}
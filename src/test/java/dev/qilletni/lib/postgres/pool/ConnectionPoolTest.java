@@ -0,0 +1,145 @@
+package dev.qilletni.lib.postgres.pool;
+
+import dev.qilletni.lib.postgres.fixtures.TestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+
+    private final String url = TestDriver.newDatabase();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void releasedConnectionIsBorrowedAgain() throws Exception {
+        pool = createPool(new PoolConfig(0, 2, 600_000, 1_800_000, 1_000, 64, 5));
+
+        var first = pool.borrow();
+        pool.release(first);
+        var second = pool.borrow();
+
+        assertSame(first, second);
+
+        var statistics = pool.getStatistics();
+        assertEquals(1, statistics.created());
+        assertEquals(1, statistics.active());
+        assertEquals(2, statistics.borrowCount());
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws Exception {
+        pool = createPool(new PoolConfig(0, 1, 600_000, 1_800_000, 50, 64, 5));
+
+        pool.borrow();
+
+        assertThrows(SQLTransientConnectionException.class, pool::borrow);
+
+        var statistics = pool.getStatistics();
+        assertEquals(1, statistics.borrowTimeouts());
+        assertEquals(0, statistics.waiting());
+        assertEquals(1, statistics.total());
+    }
+
+    @Test
+    void releaseRollsBackAnOpenTransaction() throws Exception {
+        pool = createPool(new PoolConfig(0, 1, 600_000, 1_800_000, 1_000, 64, 5));
+
+        var pooledConnection = pool.borrow();
+        pooledConnection.connection().setAutoCommit(false);
+        pool.release(pooledConnection);
+
+        var calls = TestDriver.connections(url).getFirst().calls;
+        assertTrue(calls.containsAll(List.of("rollback", "setAutoCommit(true)")), calls.toString());
+        assertEquals(1, pool.getStatistics().idle());
+    }
+
+    @Test
+    void brokenConnectionIsDiscardedOnRelease() throws Exception {
+        pool = createPool(new PoolConfig(0, 1, 600_000, 1_800_000, 1_000, 64, 5));
+
+        var broken = pool.borrow();
+        TestDriver.connections(url).getFirst().breakConnection();
+        pool.release(broken);
+
+        var statistics = pool.getStatistics();
+        assertEquals(0, statistics.total());
+        assertEquals(1, statistics.destroyed());
+
+        pool.release(pool.borrow());
+        assertEquals(2, pool.getStatistics().created());
+    }
+
+    @Test
+    void connectionWithOutdatedPropertiesIsClosedOnRelease() throws Exception {
+        pool = createPool(new PoolConfig(0, 1, 600_000, 1_800_000, 1_000, 64, 5));
+
+        var pooledConnection = pool.borrow();
+        pool.setConnectionProperty("ApplicationName", "qilletni");
+        pool.release(pooledConnection);
+
+        assertTrue(TestDriver.connections(url).getFirst().isClosed());
+        assertEquals(0, pool.getStatistics().idle());
+    }
+
+    @Test
+    void idleConnectionsBeyondTheMinimumAreEvicted() throws Exception {
+        pool = createPool(new PoolConfig(1, 3, 1, 1_800_000, 1_000, 64, 5));
+
+        var first = pool.borrow();
+        var second = pool.borrow();
+        var third = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        Thread.sleep(5);
+        pool.maintain();
+
+        var statistics = pool.getStatistics();
+        assertEquals(1, statistics.total());
+        assertEquals(1, statistics.idle());
+    }
+
+    @Test
+    void maintenanceFillsThePoolToItsMinimum() throws Exception {
+        pool = createPool(new PoolConfig(2, 4, 600_000, 1_800_000, 1_000, 64, 5));
+
+        pool.maintain();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getStatistics().idle() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        var statistics = pool.getStatistics();
+        assertEquals(2, statistics.idle());
+        assertEquals(2, statistics.created());
+    }
+
+    @Test
+    void borrowingFromAClosedPoolFails() {
+        pool = createPool(PoolConfig.DEFAULT);
+        pool.close();
+
+        var failure = assertThrows(SQLException.class, pool::borrow);
+        assertEquals("Connection pool is closed", failure.getMessage());
+    }
+
+    private ConnectionPool createPool(PoolConfig config) {
+        return new ConnectionPool(url, "", "", config);
+    }
+}
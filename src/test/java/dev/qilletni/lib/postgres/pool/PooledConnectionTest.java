@@ -0,0 +1,63 @@
+package dev.qilletni.lib.postgres.pool;
+
+import dev.qilletni.lib.postgres.fixtures.TestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PooledConnectionTest {
+
+    private final String url = TestDriver.newDatabase();
+    private final ConnectionPool pool = new ConnectionPool(url, "", "", PoolConfig.DEFAULT);
+    private PooledConnection pooledConnection;
+    private List<String> calls;
+
+    @BeforeEach
+    void borrow() throws Exception {
+        pooledConnection = pool.borrow();
+        calls = TestDriver.connections(url).getFirst().calls;
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void newConnectionKeepsTheServerDefault() throws Exception {
+        pooledConnection.applyStatementTimeout(0);
+        pool.release(pooledConnection);
+
+        assertEquals(List.of("clearWarnings"), calls);
+    }
+
+    @Test
+    void noTimeoutGoesBackToTheServerDefault() throws Exception {
+        pooledConnection.applyStatementTimeout(250);
+        pooledConnection.applyStatementTimeout(250);
+        pooledConnection.applyStatementTimeout(0);
+
+        assertEquals(List.of("execute SET statement_timeout = 250", "execute RESET statement_timeout"), calls);
+    }
+
+    @Test
+    void releaseResetsAChangedTimeout() throws Exception {
+        pooledConnection.applyStatementTimeout(250);
+        pool.release(pooledConnection);
+
+        assertEquals(List.of("execute SET statement_timeout = 250", "execute RESET statement_timeout", "clearWarnings"), calls);
+    }
+
+    @Test
+    void forgottenTimeoutIsSetAgain() throws Exception {
+        pooledConnection.applyStatementTimeout(250);
+        pooledConnection.forgetStatementTimeout();
+        pooledConnection.applyStatementTimeout(250);
+
+        assertEquals(List.of("execute SET statement_timeout = 250", "execute SET statement_timeout = 250"), calls);
+    }
+}
@@ -0,0 +1,68 @@
+package dev.qilletni.lib.postgres.replica;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadOnlyStatementsTest {
+
+    @Test
+    void queriesAreReadOnly() {
+        assertTrue(ReadOnlyStatements.isReadOnly("SELECT * FROM artist WHERE id = 1"));
+        assertTrue(ReadOnlyStatements.isReadOnly("  select name from artist"));
+        assertTrue(ReadOnlyStatements.isReadOnly("WITH recent AS (SELECT * FROM track) SELECT count(*) FROM recent"));
+        assertTrue(ReadOnlyStatements.isReadOnly("VALUES (1, 2)"));
+        assertTrue(ReadOnlyStatements.isReadOnly("TABLE artist"));
+        assertTrue(ReadOnlyStatements.isReadOnly("SHOW server_version"));
+        assertTrue(ReadOnlyStatements.isReadOnly("(SELECT 1) UNION (SELECT 2)"));
+    }
+
+    @Test
+    void writesAreNotReadOnly() {
+        assertFalse(ReadOnlyStatements.isReadOnly("INSERT INTO artist (name) VALUES ('a')"));
+        assertFalse(ReadOnlyStatements.isReadOnly("UPDATE artist SET name = 'a'"));
+        assertFalse(ReadOnlyStatements.isReadOnly("DELETE FROM artist"));
+        assertFalse(ReadOnlyStatements.isReadOnly("WITH gone AS (DELETE FROM artist RETURNING *) SELECT * FROM gone"));
+        assertFalse(ReadOnlyStatements.isReadOnly("SELECT * INTO artist_copy FROM artist"));
+    }
+
+    @Test
+    void lockingAndSessionChangesAreNotReadOnly() {
+        assertFalse(ReadOnlyStatements.isReadOnly("SELECT * FROM artist FOR UPDATE"));
+        assertFalse(ReadOnlyStatements.isReadOnly("SELECT * FROM artist FOR SHARE"));
+        assertFalse(ReadOnlyStatements.isReadOnly("SELECT nextval('artist_id_seq')"));
+        assertFalse(ReadOnlyStatements.isReadOnly("SELECT set_config('search_path', 'x', false)"));
+        assertFalse(ReadOnlyStatements.isReadOnly("SELECT pg_advisory_lock(1)"));
+        assertFalse(ReadOnlyStatements.isReadOnly("SELECT pg_notify('channel', 'payload')"));
+    }
+
+    @Test
+    void otherStatementsAreNotReadOnly() {
+        assertFalse(ReadOnlyStatements.isReadOnly("CREATE TABLE artist (id int)"));
+        assertFalse(ReadOnlyStatements.isReadOnly("SET search_path TO x"));
+        assertFalse(ReadOnlyStatements.isReadOnly("COPY artist TO STDOUT"));
+        assertFalse(ReadOnlyStatements.isReadOnly("BEGIN"));
+    }
+
+    @Test
+    void literalsAndCommentsAreIgnored() {
+        assertTrue(ReadOnlyStatements.isReadOnly("SELECT * FROM log WHERE message = 'update failed'"));
+        assertTrue(ReadOnlyStatements.isReadOnly("SELECT 1 -- delete later"));
+        assertTrue(ReadOnlyStatements.isReadOnly("/* insert */ SELECT 1"));
+    }
+
+    @Test
+    void keywordsOnlyMatchAsWholeWords() {
+        assertTrue(ReadOnlyStatements.isReadOnly("SELECT updated_at, deleted FROM artist"));
+        assertTrue(ReadOnlyStatements.isReadOnly("SELECT * FROM selections"));
+    }
+
+    @Test
+    void cachedVerdictIsStable() {
+        var sql = "SELECT * FROM artist WHERE id = 2";
+
+        assertTrue(ReadOnlyStatements.isReadOnly(sql));
+        assertTrue(ReadOnlyStatements.isReadOnly(sql));
+    }
+}
@@ -0,0 +1,79 @@
+package dev.qilletni.lib.postgres.scan;
+
+import dev.qilletni.lib.postgres.exceptions.InvalidScanException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PartitionedScanTest {
+
+    @Test
+    void splitsEvenly() {
+        assertEquals(List.of(
+                new KeyRange(1, 25, true, false),
+                new KeyRange(26, 50, false, false),
+                new KeyRange(51, 75, false, false),
+                new KeyRange(76, 100, false, true)
+        ), PartitionedScan.split(1, 100, 4));
+    }
+
+    @Test
+    void unevenSplitCoversEveryKey() {
+        var ranges = PartitionedScan.split(0, 9, 3);
+
+        assertEquals(3, ranges.size());
+        assertEquals(0, ranges.getFirst().lower());
+        assertEquals(9, ranges.getLast().upper());
+
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).upper() + 1, ranges.get(i).lower());
+        }
+    }
+
+    @Test
+    void splitsIntoFewerRangesThanKeys() {
+        assertEquals(List.of(new KeyRange(5, 5, true, true)), PartitionedScan.split(5, 5, 8));
+        assertEquals(2, PartitionedScan.split(5, 6, 8).size());
+    }
+
+    @Test
+    void splitsTheWholeLongRange() {
+        assertEquals(List.of(
+                new KeyRange(Long.MIN_VALUE, -1, true, false),
+                new KeyRange(0, Long.MAX_VALUE, false, true)
+        ), PartitionedScan.split(Long.MIN_VALUE, Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    void partitionSqlOfATable() {
+        var scan = new PartitionedScan(null, "track", "id", 3, false, 0);
+
+        assertEquals("SELECT * FROM track WHERE id <= 10 AND id IS NOT NULL", scan.partitionSql(new KeyRange(1, 10, true, false)));
+        assertEquals("SELECT * FROM track WHERE id >= 11 AND id <= 20 AND id IS NOT NULL", scan.partitionSql(new KeyRange(11, 20, false, false)));
+        assertEquals("SELECT * FROM track WHERE id >= 21 AND id IS NOT NULL", scan.partitionSql(new KeyRange(21, 30, false, true)));
+    }
+
+    @Test
+    void partitionSqlOfAnOrderedQuery() {
+        var scan = new PartitionedScan(null, "SELECT id, title FROM track", "id", 2, true, 0);
+
+        assertEquals("SELECT * FROM (SELECT id, title FROM track) AS qilletni_partitioned WHERE id >= 6 AND id IS NOT NULL ORDER BY id",
+                scan.partitionSql(new KeyRange(6, 10, false, true)));
+    }
+
+    @Test
+    void partitionSqlByCtid() {
+        var scan = new PartitionedScan(null, "track", "CTID", 2, false, 0);
+
+        assertEquals("SELECT * FROM track WHERE ctid < '(5,0)'::tid", scan.partitionSql(new KeyRange(0, 4, true, false)));
+        assertEquals("SELECT * FROM track WHERE ctid >= '(5,0)'::tid", scan.partitionSql(new KeyRange(5, 9, false, true)));
+    }
+
+    @Test
+    void queriesCantBeSplitByCtid() {
+        assertThrows(InvalidScanException.class, () -> new PartitionedScan(null, "SELECT * FROM track", "ctid", 2, false, 0));
+    }
+}
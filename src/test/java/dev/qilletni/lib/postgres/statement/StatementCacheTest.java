@@ -0,0 +1,98 @@
+package dev.qilletni.lib.postgres.statement;
+
+import dev.qilletni.lib.postgres.fixtures.TestDriver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.DriverManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+
+    private static final String SELECT_TRACK = "SELECT * FROM track WHERE id = ?";
+    private static final String SELECT_ALBUM = "SELECT * FROM album WHERE id = ?";
+    private static final String SELECT_ARTIST = "SELECT * FROM artist WHERE id = ?";
+
+    private List<String> calls;
+    private StatementCache cache;
+
+    @BeforeEach
+    void openConnection() throws Exception {
+        var url = TestDriver.newDatabase();
+        cache = new StatementCache(DriverManager.getConnection(url));
+        calls = TestDriver.connections(url).getFirst().calls;
+    }
+
+    @Test
+    void returnedStatementIsReused() throws Exception {
+        cache.prepare(SELECT_TRACK).close();
+        cache.prepare(SELECT_TRACK).close();
+
+        assertEquals(List.of("prepare " + SELECT_TRACK), calls);
+
+        var statistics = cache.getStatistics();
+        assertEquals(1, statistics.hits());
+        assertEquals(1, statistics.misses());
+    }
+
+    @Test
+    void leasedStatementIsNotShared() throws Exception {
+        var leased = cache.prepare(SELECT_TRACK);
+        var duplicate = cache.prepare(SELECT_TRACK);
+
+        duplicate.close();
+        assertEquals(List.of("prepare " + SELECT_TRACK, "prepare " + SELECT_TRACK, "close " + SELECT_TRACK), calls);
+
+        leased.close();
+        assertEquals(1, cache.getStatistics().size());
+        assertEquals(3, calls.size());
+    }
+
+    @Test
+    void evictionSkipsLeasedStatements() throws Exception {
+        cache.setCapacity(1);
+
+        var leased = cache.prepare(SELECT_TRACK);
+        cache.prepare(SELECT_ALBUM).close();
+
+        // The track statement is the least recently used, but still leased
+        assertFalse(calls.contains("close " + SELECT_TRACK));
+        assertTrue(calls.contains("close " + SELECT_ALBUM));
+
+        cache.prepare(SELECT_ARTIST);
+        leased.close();
+
+        assertTrue(calls.contains("close " + SELECT_TRACK));
+        assertEquals(1, cache.getStatistics().size());
+    }
+
+    @Test
+    void revokedLeaseIsReusable() throws Exception {
+        var stale = cache.prepare(SELECT_TRACK);
+        cache.revokeLeases();
+
+        var reused = cache.prepare(SELECT_TRACK);
+        stale.close();
+
+        // Closing the stale handle must not give back the statement leased to someone else
+        cache.prepare(SELECT_TRACK).close();
+        reused.close();
+
+        assertEquals(List.of("prepare " + SELECT_TRACK, "prepare " + SELECT_TRACK, "close " + SELECT_TRACK), calls);
+    }
+
+    @Test
+    void disabledCacheClosesEveryStatement() throws Exception {
+        cache.setCapacity(0);
+
+        cache.prepare(SELECT_TRACK).close();
+        cache.prepare(SELECT_TRACK).close();
+
+        assertEquals(List.of("prepare " + SELECT_TRACK, "close " + SELECT_TRACK, "prepare " + SELECT_TRACK, "close " + SELECT_TRACK), calls);
+        assertEquals(0, cache.getStatistics().size());
+    }
+}
@@ -0,0 +1,176 @@
+package dev.qilletni.lib.postgres.statement;
+
+import dev.qilletni.lib.postgres.exceptions.DatabaseException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementHandleTest {
+
+    @Test
+    void sendsChunksWithoutTouchingTheTransaction() throws Exception {
+        var batch = new RecordingBatch(-1);
+        var handle = batch.handle(2);
+
+        for (int i = 0; i < 5; i++) {
+            handle.addBatch();
+        }
+
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1}, handle.executeBatch());
+        assertEquals(List.of(2, 2, 1), batch.chunks);
+    }
+
+    @Test
+    void failedChunkIsReportedWithThePartialCounts() throws Exception {
+        // The second row of the second chunk fails
+        var batch = new RecordingBatch(4);
+        var handle = batch.handle(2);
+
+        handle.addBatch();
+        handle.addBatch();
+        handle.addBatch();
+        assertThrows(BatchUpdateException.class, handle::addBatch);
+        assertThrows(SQLException.class, handle::addBatch);
+
+        var failure = assertThrows(BatchUpdateException.class, handle::executeBatch);
+        assertArrayEquals(new int[]{1, 1, 1}, failure.getUpdateCounts());
+        assertEquals(List.of(2, 2), batch.chunks);
+    }
+
+    @Test
+    void failedLastChunkIsReportedWithThePartialCounts() throws Exception {
+        var batch = new RecordingBatch(2);
+        var handle = batch.handle(10);
+
+        handle.addBatch();
+        handle.addBatch();
+        handle.addBatch();
+
+        var failure = assertThrows(BatchUpdateException.class, handle::executeBatch);
+        assertArrayEquals(new int[]{1}, failure.getUpdateCounts());
+    }
+
+    @Test
+    void batchIsReusableAfterAFailure() throws Exception {
+        var batch = new RecordingBatch(1);
+        var handle = batch.handle(10);
+
+        handle.addBatch();
+        assertThrows(BatchUpdateException.class, handle::executeBatch);
+
+        handle.addBatch();
+        assertArrayEquals(new int[]{1}, handle.executeBatch());
+    }
+
+    @Test
+    void releasedLeaseIsNeverTouched() throws Exception {
+        var batch = new RecordingBatch(-1);
+        var handle = batch.handle(1);
+        var released = new boolean[1];
+        handle.bindLease(() -> released[0]);
+
+        handle.verifyOpen();
+        handle.addBatch();
+        released[0] = true;
+
+        assertThrows(DatabaseException.class, handle::verifyOpen);
+        handle.close();
+        assertEquals(List.of(1), batch.chunks);
+    }
+
+    @Test
+    void closedHandleIsRefused() throws Exception {
+        var batch = new RecordingBatch(-1);
+        var handle = batch.handle(1);
+
+        handle.verifyOpen();
+        handle.close();
+
+        assertThrows(DatabaseException.class, handle::verifyOpen);
+    }
+
+    @Test
+    void uncachedStatementIsClosedAfterTheLeaseEnded() throws Exception {
+        var batch = new RecordingBatch(-1);
+        var handle = batch.handle(1);
+        handle.bindLease(() -> true);
+
+        handle.close();
+
+        assertTrue(batch.statementClosed);
+    }
+
+    /**
+     * A statement that counts every row as one update, except the row with the given 1-indexed position among all rows
+     * sent, which fails along with the rest of its chunk. The statement has no connection, so the batch can't touch
+     * its transaction.
+     */
+    private static class RecordingBatch {
+
+        private final int failingRow;
+        private final List<Integer> chunks = new ArrayList<>();
+        private int pendingRows;
+        private int sentRows;
+        private boolean statementClosed;
+
+        RecordingBatch(int failingRow) {
+            this.failingRow = failingRow;
+        }
+
+        StatementHandle handle(int batchSize) {
+            var handle = new StatementHandle("INSERT INTO track (id) VALUES (?)", statement(), null);
+            handle.setBatchSize(batchSize);
+            return handle;
+        }
+
+        private PreparedStatement statement() {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "addBatch" -> {
+                    pendingRows++;
+                    yield null;
+                }
+                case "clearBatch" -> {
+                    pendingRows = 0;
+                    yield null;
+                }
+                case "executeBatch" -> executeBatch();
+                case "close" -> {
+                    statementClosed = true;
+                    yield null;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private int[] executeBatch() throws BatchUpdateException {
+            int rows = pendingRows;
+            pendingRows = 0;
+            chunks.add(rows);
+
+            if (failingRow > sentRows && failingRow <= sentRows + rows) {
+                int succeeded = failingRow - sentRows - 1;
+                sentRows += rows;
+
+                var counts = new int[succeeded];
+                Arrays.fill(counts, 1);
+                throw new BatchUpdateException("duplicate key", "23505", 0, counts);
+            }
+
+            sentRows += rows;
+            var counts = new int[rows];
+            Arrays.fill(counts, 1);
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package dev.qilletni.lib.postgres.upsert;
+
+import dev.qilletni.lib.postgres.exceptions.InvalidUpsertException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkUpsertTest {
+
+    private static final TableColumnTypes TYPES = new TableColumnTypes() {
+        @Override
+        public List<String> typesOf(Connection connection, String table, List<String> columns) {
+            var types = Map.of("id", "bigint", "name", "text", "plays", "integer", "tags", "text[]");
+            return columns.stream().map(types::get).toList();
+        }
+    };
+
+    @Test
+    void sqlUpdatingConflicts() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id", "name", "plays"), List.of("id"), List.of("name", "plays"));
+
+        assertEquals("WITH upserted AS (INSERT INTO track (id, name, plays) SELECT * FROM unnest(?::bigint[], ?::text[], ?::integer[]) "
+                + "ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, plays = EXCLUDED.plays RETURNING xmax = 0 AS inserted) "
+                + "SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted", upsert.getSql());
+    }
+
+    @Test
+    void sqlSkippingConflicts() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of("id"), List.of());
+
+        assertEquals("WITH upserted AS (INSERT INTO track (id, name) SELECT * FROM unnest(?::bigint[], ?::text[]) "
+                + "ON CONFLICT (id) DO NOTHING RETURNING xmax = 0 AS inserted) "
+                + "SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted", upsert.getSql());
+    }
+
+    @Test
+    void sqlSkippingAnyConflict() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id"), List.of(), List.of());
+
+        assertEquals("WITH upserted AS (INSERT INTO track (id) SELECT * FROM unnest(?::bigint[]) "
+                + "ON CONFLICT DO NOTHING RETURNING xmax = 0 AS inserted) "
+                + "SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted", upsert.getSql());
+    }
+
+    @Test
+    void rejectsInvalidColumns() {
+        assertThrows(InvalidUpsertException.class, () -> BulkUpsert.create(null, TYPES, "track", List.of(), List.of(), List.of()));
+        assertThrows(InvalidUpsertException.class, () -> BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of(), List.of("name")));
+        assertThrows(InvalidUpsertException.class, () -> BulkUpsert.create(null, TYPES, "track", List.of("name"), List.of("id"), List.of()));
+        assertThrows(InvalidUpsertException.class, () -> BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of("id"), List.of("plays")));
+        assertThrows(InvalidUpsertException.class, () -> BulkUpsert.create(null, TYPES, "track", List.of("id", "tags"), List.of("id"), List.of("tags")));
+    }
+
+    @Test
+    void conflictColumnsMatchIgnoringUnquotedCase() throws Exception {
+        BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of("ID"), List.of("Name"));
+    }
+
+    @Test
+    void rejectsRowsOfTheWrongSize() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of("id"), List.of("name"));
+
+        assertThrows(InvalidUpsertException.class, () -> upsert.run(new RecordingConnection().proxy(), List.of(List.of(1L)), 10));
+    }
+
+    @Test
+    void updatingCollapsesRepeatedKeysKeepingTheLast() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of("id"), List.of("name"));
+        var connection = new RecordingConnection();
+
+        var statistics = upsert.run(connection.proxy(), List.of(List.of(1L, "a"), List.of(2L, "b"), List.of(1L, "c")), 10);
+
+        assertEquals(List.of(List.of("2", "1"), List.of("b", "c")), connection.chunks.getFirst());
+        assertEquals(1, statistics.chunks());
+        assertEquals(1, statistics.skipped());
+    }
+
+    @Test
+    void skippingKeepsRepeatedKeys() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of("id"), List.of());
+        var connection = new RecordingConnection();
+
+        upsert.run(connection.proxy(), List.of(List.of(1L, "a"), List.of(1L, "b")), 10);
+
+        assertEquals(List.of(List.of("1", "1"), List.of("a", "b")), connection.chunks.getFirst());
+    }
+
+    @Test
+    void nullKeysAreNeverCollapsed() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id", "name"), List.of("id"), List.of("name"));
+        var connection = new RecordingConnection();
+
+        upsert.run(connection.proxy(), List.of(Arrays.asList(null, "a"), Arrays.asList(null, "b")), 10);
+
+        assertEquals(List.of(Arrays.asList(null, null), List.of("a", "b")), connection.chunks.getFirst());
+    }
+
+    @Test
+    void sendsChunksInOneTransaction() throws Exception {
+        var upsert = BulkUpsert.create(null, TYPES, "track", List.of("id"), List.of("id"), List.of());
+        var connection = new RecordingConnection();
+
+        var statistics = upsert.run(connection.proxy(), List.of(List.of(1L), List.of(2L), List.of(3L)), 2);
+
+        assertEquals(List.of(List.of(List.of("1", "2")), List.of(List.of("3"))), connection.chunks);
+        assertEquals(2, statistics.chunks());
+        assertEquals(List.of("setAutoCommit(false)", "commit", "setAutoCommit(true)"), connection.transactionCalls);
+    }
+
+    /**
+     * Records the arrays bound for each chunk, and reports every row of a chunk as inserted.
+     */
+    private static class RecordingConnection {
+
+        private final List<List<List<String>>> chunks = new ArrayList<>();
+        private final List<String> transactionCalls = new ArrayList<>();
+        private boolean autoCommit = true;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getAutoCommit" -> autoCommit;
+                case "setAutoCommit" -> {
+                    autoCommit = (boolean) args[0];
+                    transactionCalls.add("setAutoCommit(%s)".formatted(autoCommit));
+                    yield null;
+                }
+                case "commit", "rollback" -> {
+                    transactionCalls.add(method.getName());
+                    yield null;
+                }
+                case "createArrayOf" -> array((Object[]) args[1]);
+                case "prepareStatement" -> statement();
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private Array array(Object[] values) {
+            return (Array) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Array.class}, (proxy, method, args) -> {
+                if (method.getName().equals("getArray")) {
+                    return values;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private PreparedStatement statement() {
+            var bound = new HashMap<Integer, List<String>>();
+
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "setArray" -> {
+                    bound.put((int) args[0], Arrays.asList((String[]) ((Array) args[1]).getArray()));
+                    yield null;
+                }
+                case "executeQuery" -> {
+                    var chunk = new ArrayList<List<String>>();
+                    for (int i = 1; i <= bound.size(); i++) {
+                        chunk.add(bound.get(i));
+                    }
+
+                    chunks.add(chunk);
+                    yield resultSet(chunk.getFirst().size());
+                }
+                case "close" -> null;
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private ResultSet resultSet(long inserted) {
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "next" -> true;
+                case "getLong" -> (int) args[0] == 1 ? inserted : 0L;
+                case "close" -> null;
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package dev.qilletni.lib.postgres.write;
+
+import dev.qilletni.lib.postgres.cache.ResultCache;
+import dev.qilletni.lib.postgres.metrics.QueryMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindBufferTest {
+
+    private static final String INSERT_PLAY = "INSERT INTO play (track_id) VALUES (?)";
+    private static final String UPDATE_COUNT = "UPDATE track SET plays = plays + 1 WHERE id = ?";
+
+    private final WriteBehindBuffer buffer = new WriteBehindBuffer(null, new QueryMetrics(), new ResultCache(), 10, 60_000);
+
+    @AfterEach
+    void closeBuffer() {
+        buffer.close();
+    }
+
+    @Test
+    void flushesConsecutiveWritesAsBatchesInOneTransaction() throws Exception {
+        var connection = new RecordingConnection();
+
+        assertFalse(buffer.add(new BufferedWrite(INSERT_PLAY, List.of(1L))));
+        buffer.add(new BufferedWrite(INSERT_PLAY, List.of(2L)));
+        buffer.add(new BufferedWrite(UPDATE_COUNT, List.of(1L)));
+
+        assertEquals(3, buffer.flush(connection.proxy()));
+        assertEquals(0, buffer.pending());
+        assertEquals(List.of("setAutoCommit(false)", "executeBatch(2)", "executeBatch(1)", "commit", "setAutoCommit(true)"), connection.calls);
+    }
+
+    @Test
+    void fullBufferAsksForAFlush() {
+        for (int i = 0; i < 9; i++) {
+            assertFalse(buffer.add(new BufferedWrite(INSERT_PLAY, List.of((long) i))));
+        }
+
+        assertTrue(buffer.add(new BufferedWrite(INSERT_PLAY, List.of(9L))));
+    }
+
+    @Test
+    void writesWaitForAnOpenTransaction() throws Exception {
+        var connection = new RecordingConnection();
+        connection.autoCommit = false;
+
+        buffer.add(new BufferedWrite(INSERT_PLAY, List.of(1L)));
+
+        assertEquals(0, buffer.flush(connection.proxy()));
+        assertEquals(1, buffer.pending());
+        assertEquals(List.of(), connection.calls);
+    }
+
+    @Test
+    void failureSurvivesCleanupFailures() {
+        var connection = new RecordingConnection();
+        connection.failing = true;
+
+        buffer.add(new BufferedWrite(INSERT_PLAY, List.of(1L)));
+
+        var failure = assertThrows(SQLException.class, () -> buffer.flush(connection.proxy()));
+
+        assertTrue(failure.getMessage().startsWith("Flushing 1 buffered writes failed on \"%s\"".formatted(INSERT_PLAY)), failure.getMessage());
+        assertEquals("23505", failure.getSQLState());
+        assertEquals(2, failure.getSuppressed().length);
+        assertEquals(0, buffer.pending());
+    }
+
+    /**
+     * A connection recording the transaction calls and batches made on it. A failing connection fails every batch, and
+     * cleaning up after it.
+     */
+    private static class RecordingConnection {
+
+        private final List<String> calls = new ArrayList<>();
+        private boolean autoCommit = true;
+        private boolean failing;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getAutoCommit" -> autoCommit;
+                case "setAutoCommit" -> {
+                    if (failing && (boolean) args[0]) {
+                        throw new SQLException("connection closed while restoring autocommit");
+                    }
+
+                    autoCommit = (boolean) args[0];
+                    calls.add("setAutoCommit(%s)".formatted(autoCommit));
+                    yield null;
+                }
+                case "commit" -> {
+                    calls.add("commit");
+                    yield null;
+                }
+                case "rollback" -> {
+                    if (failing) {
+                        throw new SQLException("connection closed while rolling back");
+                    }
+
+                    calls.add("rollback");
+                    yield null;
+                }
+                case "prepareStatement" -> statement();
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private PreparedStatement statement() {
+            var rows = new int[1];
+
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "setObject", "close" -> null;
+                case "addBatch" -> {
+                    rows[0]++;
+                    yield null;
+                }
+                case "executeBatch" -> {
+                    if (failing) {
+                        throw new SQLException("duplicate key", "23505");
+                    }
+
+                    calls.add("executeBatch(%d)".formatted(rows[0]));
+                    var counts = new int[rows[0]];
+                    Arrays.fill(counts, 1);
+                    yield counts;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+}